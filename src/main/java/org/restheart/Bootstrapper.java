@@ -19,9 +19,12 @@ package org.restheart;
 
 import com.mongodb.MongoClient;
 import static org.restheart.Configuration.RESTHEART_VERSION;
+import org.restheart.db.DBCursorPoolStats;
 import org.restheart.db.PropsFixer;
 import org.restheart.db.MongoDBClientSingleton;
+import org.restheart.handlers.ElasticBlockingHandler;
 import org.restheart.handlers.ErrorHandler;
+import org.restheart.handlers.SingleFlightStats;
 import org.restheart.handlers.GzipEncodingHandler;
 import org.restheart.handlers.PipedHttpHandler;
 import org.restheart.handlers.RequestDispacherHandler;
@@ -38,6 +41,7 @@ import org.restheart.handlers.OptionsHandler;
 import org.restheart.handlers.PipedWrappingHandler;
 import org.restheart.handlers.injectors.BodyInjectorHandler;
 import org.restheart.handlers.metadata.MetadataEnforcerHandler;
+import org.restheart.handlers.stats.StatsHandler;
 import org.restheart.security.handlers.SecurityHandler;
 import org.restheart.security.handlers.CORSHandler;
 import org.restheart.utils.FileUtils;
@@ -46,6 +50,7 @@ import com.sun.akuma.Daemon;
 import static io.undertow.Handlers.path;
 import io.undertow.Undertow;
 import io.undertow.security.idm.IdentityManager;
+import io.undertow.server.HttpHandler;
 import io.undertow.server.handlers.HttpContinueAcceptingHandler;
 import io.undertow.server.handlers.resource.FileResourceManager;
 import java.io.File;
@@ -58,6 +63,8 @@ import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.UnrecoverableKeyException;
 import java.security.cert.CertificateException;
+import javax.management.JMException;
+import javax.management.ObjectName;
 import javax.net.ssl.KeyManagerFactory;
 import javax.net.ssl.SSLContext;
 
@@ -71,6 +78,7 @@ import io.undertow.server.handlers.RequestLimit;
 import io.undertow.server.handlers.RequestLimitingHandler;
 import io.undertow.server.handlers.resource.ResourceHandler;
 import io.undertow.util.HttpString;
+import java.lang.management.ManagementFactory;
 import java.lang.reflect.InvocationTargetException;
 import java.net.URISyntaxException;
 import java.net.URL;
@@ -537,6 +545,8 @@ public final class Bootstrapper {
             LOGGER.info("local cache not enabled");
         }
 
+        registerMBeans();
+
         hanldersPipe = getHandlersPipe(identityManager, accessManager);
 
         builder
@@ -550,6 +560,22 @@ public final class Bootstrapper {
         builder.build().start();
     }
 
+    private static void registerMBeans() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new DBCursorPoolStats(), new ObjectName(DBCursorPoolStats.OBJECT_NAME));
+            LOGGER.info("db cursor pool statistics exposed via JMX as {}", DBCursorPoolStats.OBJECT_NAME);
+        } catch (JMException ex) {
+            LOGGER.warn("error registering the db cursor pool statistics MBean", ex);
+        }
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new SingleFlightStats(), new ObjectName(SingleFlightStats.OBJECT_NAME));
+            LOGGER.info("single flight statistics exposed via JMX as {}", SingleFlightStats.OBJECT_NAME);
+        } catch (JMException ex) {
+            LOGGER.warn("error registering the single flight statistics MBean", ex);
+        }
+    }
+
     private static GracefulShutdownHandler getHandlersPipe(final IdentityManager identityManager, final AccessManager accessManager) {
         PipedHttpHandler coreHandlerChain
                 = new DbPropsInjectorHandler(
@@ -586,10 +612,14 @@ public final class Bootstrapper {
         
         paths.addPrefixPath("/_authtokens", new SecurityHandler(new AuthTokenHandler(), identityManager, accessManager));
 
+        // pipe the stats handler
+        
+        paths.addPrefixPath(StatsHandler.STATS_URI, new SecurityHandler(new StatsHandler(), identityManager, accessManager));
+
         return new GracefulShutdownHandler(
                 new RequestLimitingHandler(new RequestLimit(configuration.getRequestLimit()),
                         new AllowedMethodsHandler(
-                                new BlockingHandler(
+                                getBlockingHandler(
                                         new GzipEncodingHandler(
                                                 new ErrorHandler(
                                                         new HttpContinueAcceptingHandler(paths)
@@ -607,6 +637,15 @@ public final class Bootstrapper {
         );
     }
 
+    private static HttpHandler getBlockingHandler(final HttpHandler next) {
+        if (configuration.isElasticWorkers()) {
+            LOGGER.info("requests dispatched to elastic worker threads, up to {}", configuration.getElasticWorkersMax());
+            return new ElasticBlockingHandler(next, configuration.getElasticWorkersMax());
+        } else {
+            return new BlockingHandler(next);
+        }
+    }
+
     private static void pipeStaticResourcesHandlers(
             final Configuration conf,
             final PathHandler paths,
@@ -18,6 +18,8 @@
 package org.restheart;
 
 import ch.qos.logback.classic.Level;
+import org.restheart.db.DBCursorPool.EAGER_CURSOR_ALLOCATION_POLICY;
+import org.restheart.hal.metadata.CountStrategy;
 import org.restheart.utils.URLUtils;
 import java.io.File;
 import java.io.FileInputStream;
@@ -92,11 +94,33 @@ public class Configuration {
 
     private final boolean localCacheEnabled;
     private final long localCacheTtl;
+    private final long localCacheExpiry;
+    private final boolean prefetchEnabled;
+    private final int prefetchBufferSize;
+    private final int prefetchThreads;
+    private final int prefetchQueueSize;
+    private final CountStrategy.TYPE countDefaultStrategy;
+    private final long countCacheTtl;
+    private final int countThreads;
+    private final int countQueueSize;
+    private final int exportBatchSize;
+    private final boolean asyncPipeline;
+    private final int asyncPipelineThreads;
+    private final int asyncPipelineQueueSize;
+    private final boolean singleFlight;
+    private final boolean responseCache;
+    private final long responseCacheSize;
+    private final long responseCacheTTL;
+    private final boolean responseCacheGzip;
+    private final boolean collectionEtag;
 
     private final int requestsLimit;
+    private final long maxRequestBodySize;
 
     private final int ioThreads;
     private final int workerThreads;
+    private final boolean elasticWorkers;
+    private final int elasticWorkersMax;
     private final int bufferSize;
     private final int buffersPerRegion;
     private final boolean directBuffers;
@@ -109,6 +133,11 @@ public class Configuration {
     private final int[] eagerLinearSliceHeights;
     private final int eagerRndSliceMinWidht;
     private final int eagerRndMaxCursors;
+    private final int eagerPopulationThreads;
+    private final int eagerPopulationQueueSize;
+    private final long eagerTtl;
+    private final boolean eagerKeepAlive;
+    private final EAGER_CURSOR_ALLOCATION_POLICY eagerDefaultPolicy;
     
     private final boolean authTokenEnabled;
     private final int authTokenTtl;
@@ -173,6 +202,101 @@ public class Configuration {
      */
     public static final String LOCAL_CACHE_TTL_KEY = "local-cache-ttl";
 
+    /**
+     * the key for the local-cache-expiry property.
+     */
+    public static final String LOCAL_CACHE_EXPIRY_KEY = "local-cache-expiry";
+
+    /**
+     * the key for the prefetch-enabled property.
+     */
+    public static final String PREFETCH_ENABLED_KEY = "prefetch-enabled";
+
+    /**
+     * the key for the prefetch-buffer-size property.
+     */
+    public static final String PREFETCH_BUFFER_SIZE_KEY = "prefetch-buffer-size";
+
+    /**
+     * the key for the prefetch-threads property.
+     */
+    public static final String PREFETCH_THREADS_KEY = "prefetch-threads";
+
+    /**
+     * the key for the prefetch-queue-size property.
+     */
+    public static final String PREFETCH_QUEUE_SIZE_KEY = "prefetch-queue-size";
+
+    /**
+     * the key for the count-default-strategy property.
+     */
+    public static final String COUNT_DEFAULT_STRATEGY_KEY = "count-default-strategy";
+
+    /**
+     * the key for the count-cache-ttl property.
+     */
+    public static final String COUNT_CACHE_TTL_KEY = "count-cache-ttl";
+
+    /**
+     * the key for the count-threads property.
+     */
+    public static final String COUNT_THREADS_KEY = "count-threads";
+
+    /**
+     * the key for the count-queue-size property.
+     */
+    public static final String COUNT_QUEUE_SIZE_KEY = "count-queue-size";
+
+    /**
+     * the key for the export-batch-size property.
+     */
+    public static final String EXPORT_BATCH_SIZE_KEY = "export-batch-size";
+
+    /**
+     * the key for the async-pipeline property.
+     */
+    public static final String ASYNC_PIPELINE_KEY = "async-pipeline";
+
+    /**
+     * the key for the async-pipeline-threads property.
+     */
+    public static final String ASYNC_PIPELINE_THREADS_KEY = "async-pipeline-threads";
+
+    /**
+     * the key for the async-pipeline-queue-size property.
+     */
+    public static final String ASYNC_PIPELINE_QUEUE_SIZE_KEY = "async-pipeline-queue-size";
+
+    /**
+     * the key for the single-flight property.
+     */
+    public static final String SINGLE_FLIGHT_KEY = "single-flight";
+
+    /**
+     * the key for the response-cache property.
+     */
+    public static final String RESPONSE_CACHE_KEY = "response-cache";
+
+    /**
+     * the key for the response-cache-size property.
+     */
+    public static final String RESPONSE_CACHE_SIZE_KEY = "response-cache-size";
+
+    /**
+     * the key for the response-cache-ttl property.
+     */
+    public static final String RESPONSE_CACHE_TTL_KEY = "response-cache-ttl";
+
+    /**
+     * the key for the response-cache-gzip property.
+     */
+    public static final String RESPONSE_CACHE_GZIP_KEY = "response-cache-gzip";
+
+    /**
+     * the key for the collection-etag property.
+     */
+    public static final String COLLECTION_ETAG_KEY = "collection-etag";
+
     /**
      * the key for the force-gzip-encoding property.
      */
@@ -198,6 +322,16 @@ public class Configuration {
      */
     public static final String WORKER_THREADS_KEY = "worker-threads";
 
+    /**
+     * the key for the elastic-workers property.
+     */
+    public static final String ELASTIC_WORKERS_KEY = "elastic-workers";
+
+    /**
+     * the key for the elastic-workers-max property.
+     */
+    public static final String ELASTIC_WORKERS_MAX_KEY = "elastic-workers-max";
+
     /**
      * the key for the io-threads property.
      */
@@ -208,6 +342,11 @@ public class Configuration {
      */
     public static final String REQUESTS_LIMIT_KEY = "requests-limit";
 
+    /**
+     * the key for the max-request-body-size property.
+     */
+    public static final String MAX_REQUEST_BODY_SIZE_KEY = "max-request-body-size";
+
     /**
      * the key for the enable-log-file property.
      */
@@ -443,6 +582,31 @@ public class Configuration {
      * property.
      */
     public static final String EAGER_RND_MAX_CURSORS = "eager-cursor-allocation-random-max-cursors";
+
+    /**
+     * the key for the eager-cursor-allocation-population-threads property.
+     */
+    public static final String EAGER_POPULATION_THREADS = "eager-cursor-allocation-population-threads";
+
+    /**
+     * the key for the eager-cursor-allocation-population-queue-size property.
+     */
+    public static final String EAGER_POPULATION_QUEUE_SIZE = "eager-cursor-allocation-population-queue-size";
+
+    /**
+     * the key for the eager-cursor-allocation-ttl property.
+     */
+    public static final String EAGER_TTL = "eager-cursor-allocation-ttl";
+
+    /**
+     * the key for the eager-cursor-allocation-keep-alive property.
+     */
+    public static final String EAGER_KEEP_ALIVE = "eager-cursor-allocation-keep-alive";
+
+    /**
+     * the key for the eager-cursor-allocation-default-policy property.
+     */
+    public static final String EAGER_DEFAULT_POLICY = "eager-cursor-allocation-default-policy";
     
     /**
      * the key for the auth-token-enabled property.
@@ -517,10 +681,32 @@ public class Configuration {
 
         localCacheEnabled = true;
         localCacheTtl = 1000;
+        localCacheExpiry = 60000;
+        prefetchEnabled = false;
+        prefetchBufferSize = 16;
+        prefetchThreads = 2;
+        prefetchQueueSize = 100;
+        countDefaultStrategy = CountStrategy.TYPE.EXACT;
+        countCacheTtl = 60000;
+        countThreads = 4;
+        countQueueSize = 100;
+        exportBatchSize = 1000;
+        asyncPipeline = false;
+        asyncPipelineThreads = 32;
+        asyncPipelineQueueSize = 1000;
+        singleFlight = true;
+        responseCache = false;
+        responseCacheSize = 67108864;
+        responseCacheTTL = 60000;
+        responseCacheGzip = false;
+        collectionEtag = false;
 
         requestsLimit = 100;
+        maxRequestBodySize = (long) 16777216;
         ioThreads = 2;
         workerThreads = 32;
+        elasticWorkers = false;
+        elasticWorkersMax = 1000;
         bufferSize = 16384;
         buffersPerRegion = 20;
         directBuffers = true;
@@ -533,6 +719,11 @@ public class Configuration {
         eagerLinearSliceHeights = new int[]{4, 2, 1};
         eagerRndSliceMinWidht = 1000;
         eagerRndMaxCursors = 50;
+        eagerPopulationThreads = 2;
+        eagerPopulationQueueSize = 100;
+        eagerTtl = 480000;
+        eagerKeepAlive = false;
+        eagerDefaultPolicy = EAGER_CURSOR_ALLOCATION_POLICY.LINEAR;
         
         authTokenEnabled = true;
         authTokenTtl = 15; // minutes
@@ -651,12 +842,48 @@ public class Configuration {
         logLevel = level;
 
         requestsLimit = getAsIntegerOrDefault(conf, REQUESTS_LIMIT_KEY, 100);
+        maxRequestBodySize = getAsLongOrDefault(conf, MAX_REQUEST_BODY_SIZE_KEY, (long) 16777216);
 
         localCacheEnabled = getAsBooleanOrDefault(conf, LOCAL_CACHE_ENABLED_KEY, true);
         localCacheTtl = getAsLongOrDefault(conf, LOCAL_CACHE_TTL_KEY, (long) 1000);
+        localCacheExpiry = getAsLongOrDefault(conf, LOCAL_CACHE_EXPIRY_KEY, (long) 60000);
+        prefetchEnabled = getAsBooleanOrDefault(conf, PREFETCH_ENABLED_KEY, false);
+        prefetchBufferSize = getAsIntegerOrDefault(conf, PREFETCH_BUFFER_SIZE_KEY, 16);
+        prefetchThreads = getAsIntegerOrDefault(conf, PREFETCH_THREADS_KEY, 2);
+        prefetchQueueSize = getAsIntegerOrDefault(conf, PREFETCH_QUEUE_SIZE_KEY, 100);
+
+        String _countDefaultStrategy = getAsStringOrDefault(conf, COUNT_DEFAULT_STRATEGY_KEY, "EXACT");
+
+        CountStrategy.TYPE countStrategy;
+
+        try {
+            countStrategy = CountStrategy.TYPE.valueOf(_countDefaultStrategy.trim().toUpperCase());
+        } catch (IllegalArgumentException iae) {
+            if (!silent) {
+                LOGGER.info("wrong value for parameter {}: {}. using its default value {}", COUNT_DEFAULT_STRATEGY_KEY, _countDefaultStrategy, "EXACT");
+            }
+            countStrategy = CountStrategy.TYPE.EXACT;
+        }
+
+        countDefaultStrategy = countStrategy;
+        countCacheTtl = getAsLongOrDefault(conf, COUNT_CACHE_TTL_KEY, (long) 60000);
+        countThreads = getAsIntegerOrDefault(conf, COUNT_THREADS_KEY, 4);
+        countQueueSize = getAsIntegerOrDefault(conf, COUNT_QUEUE_SIZE_KEY, 100);
+        exportBatchSize = getAsIntegerOrDefault(conf, EXPORT_BATCH_SIZE_KEY, 1000);
+        asyncPipeline = getAsBooleanOrDefault(conf, ASYNC_PIPELINE_KEY, false);
+        asyncPipelineThreads = getAsIntegerOrDefault(conf, ASYNC_PIPELINE_THREADS_KEY, 32);
+        asyncPipelineQueueSize = getAsIntegerOrDefault(conf, ASYNC_PIPELINE_QUEUE_SIZE_KEY, 1000);
+        singleFlight = getAsBooleanOrDefault(conf, SINGLE_FLIGHT_KEY, true);
+        responseCache = getAsBooleanOrDefault(conf, RESPONSE_CACHE_KEY, false);
+        responseCacheSize = getAsLongOrDefault(conf, RESPONSE_CACHE_SIZE_KEY, (long) 67108864);
+        responseCacheTTL = getAsLongOrDefault(conf, RESPONSE_CACHE_TTL_KEY, (long) 60000);
+        responseCacheGzip = getAsBooleanOrDefault(conf, RESPONSE_CACHE_GZIP_KEY, false);
+        collectionEtag = getAsBooleanOrDefault(conf, COLLECTION_ETAG_KEY, false);
 
         ioThreads = getAsIntegerOrDefault(conf, IO_THREADS_KEY, 2);
         workerThreads = getAsIntegerOrDefault(conf, WORKER_THREADS_KEY, 32);
+        elasticWorkers = getAsBooleanOrDefault(conf, ELASTIC_WORKERS_KEY, false);
+        elasticWorkersMax = getAsIntegerOrDefault(conf, ELASTIC_WORKERS_MAX_KEY, 1000);
         bufferSize = getAsIntegerOrDefault(conf, BUFFER_SIZE_KEY, 16384);
         buffersPerRegion = getAsIntegerOrDefault(conf, BUFFERS_PER_REGION_KEY, 20);
         directBuffers = getAsBooleanOrDefault(conf, DIRECT_BUFFERS_KEY, true);
@@ -669,6 +896,25 @@ public class Configuration {
         eagerLinearSliceHeights = getAsArrayOfInts(conf, EAGER_LINEAR_HEIGHTS, new int[]{4, 2, 1});
         eagerRndSliceMinWidht = getAsIntegerOrDefault(conf, EAGER_RND_SLICE_MIN_WIDHT, 1000);
         eagerRndMaxCursors = getAsIntegerOrDefault(conf, EAGER_RND_MAX_CURSORS, 50);
+        eagerPopulationThreads = getAsIntegerOrDefault(conf, EAGER_POPULATION_THREADS, 2);
+        eagerPopulationQueueSize = getAsIntegerOrDefault(conf, EAGER_POPULATION_QUEUE_SIZE, 100);
+        eagerTtl = getAsLongOrDefault(conf, EAGER_TTL, (long) 480000);
+        eagerKeepAlive = getAsBooleanOrDefault(conf, EAGER_KEEP_ALIVE, false);
+
+        String _eagerDefaultPolicy = getAsStringOrDefault(conf, EAGER_DEFAULT_POLICY, "LINEAR");
+
+        EAGER_CURSOR_ALLOCATION_POLICY eagerPolicy;
+
+        try {
+            eagerPolicy = EAGER_CURSOR_ALLOCATION_POLICY.valueOf(_eagerDefaultPolicy.trim().toUpperCase());
+        } catch (IllegalArgumentException iae) {
+            if (!silent) {
+                LOGGER.info("wrong value for parameter {}: {}. using its default value {}", EAGER_DEFAULT_POLICY, _eagerDefaultPolicy, "LINEAR");
+            }
+            eagerPolicy = EAGER_CURSOR_ALLOCATION_POLICY.LINEAR;
+        }
+
+        eagerDefaultPolicy = eagerPolicy;
         
         authTokenEnabled = getAsBooleanOrDefault(conf, AUTH_TOKEN_ENABLED, true);
         authTokenTtl = getAsIntegerOrDefault(conf, AUTH_TOKEN_TTL, 15);
@@ -991,6 +1237,20 @@ public class Configuration {
         return workerThreads;
     }
 
+    /**
+     * @return the elasticWorkers
+     */
+    public boolean isElasticWorkers() {
+        return elasticWorkers;
+    }
+
+    /**
+     * @return the elasticWorkersMax
+     */
+    public int getElasticWorkersMax() {
+        return elasticWorkersMax;
+    }
+
     /**
      * @return the bufferSize
      */
@@ -1089,6 +1349,139 @@ public class Configuration {
         return localCacheTtl;
     }
 
+    /**
+     * @return the localCacheExpiry
+     */
+    public long getLocalCacheExpiry() {
+        return localCacheExpiry;
+    }
+
+    /**
+     * @return the prefetchEnabled
+     */
+    public boolean isPrefetchEnabled() {
+        return prefetchEnabled;
+    }
+
+    /**
+     * @return the prefetchBufferSize
+     */
+    public int getPrefetchBufferSize() {
+        return prefetchBufferSize;
+    }
+
+    /**
+     * @return the prefetchThreads
+     */
+    public int getPrefetchThreads() {
+        return prefetchThreads;
+    }
+
+    /**
+     * @return the prefetchQueueSize
+     */
+    public int getPrefetchQueueSize() {
+        return prefetchQueueSize;
+    }
+
+    /**
+     * @return the countDefaultStrategy
+     */
+    public CountStrategy.TYPE getCountDefaultStrategy() {
+        return countDefaultStrategy;
+    }
+
+    /**
+     * @return the countCacheTtl
+     */
+    public long getCountCacheTtl() {
+        return countCacheTtl;
+    }
+
+    /**
+     * @return the countThreads
+     */
+    public int getCountThreads() {
+        return countThreads;
+    }
+
+    /**
+     * @return the countQueueSize
+     */
+    public int getCountQueueSize() {
+        return countQueueSize;
+    }
+
+    /**
+     * @return the exportBatchSize
+     */
+    public int getExportBatchSize() {
+        return exportBatchSize;
+    }
+
+    /**
+     * @return the asyncPipeline
+     */
+    public boolean isAsyncPipeline() {
+        return asyncPipeline;
+    }
+
+    /**
+     * @return the asyncPipelineThreads
+     */
+    public int getAsyncPipelineThreads() {
+        return asyncPipelineThreads;
+    }
+
+    /**
+     * @return the asyncPipelineQueueSize
+     */
+    public int getAsyncPipelineQueueSize() {
+        return asyncPipelineQueueSize;
+    }
+
+    /**
+     * @return the singleFlight
+     */
+    public boolean isSingleFlight() {
+        return singleFlight;
+    }
+
+    /**
+     * @return the responseCache
+     */
+    public boolean isResponseCache() {
+        return responseCache;
+    }
+
+    /**
+     * @return the responseCacheSize
+     */
+    public long getResponseCacheSize() {
+        return responseCacheSize;
+    }
+
+    /**
+     * @return the responseCacheTTL
+     */
+    public long getResponseCacheTTL() {
+        return responseCacheTTL;
+    }
+
+    /**
+     * @return the responseCacheGzip
+     */
+    public boolean isResponseCacheGzip() {
+        return responseCacheGzip;
+    }
+
+    /**
+     * @return the collectionEtag
+     */
+    public boolean isCollectionEtag() {
+        return collectionEtag;
+    }
+
     /**
      * @return the requestsLimit
      */
@@ -1096,6 +1489,13 @@ public class Configuration {
         return requestsLimit;
     }
 
+    /**
+     * @return the maxRequestBodySize
+     */
+    public long getMaxRequestBodySize() {
+        return maxRequestBodySize;
+    }
+
     /**
      * @return the applicationLogicMounts
      */
@@ -1145,6 +1545,41 @@ public class Configuration {
         return eagerRndMaxCursors;
     }
 
+    /**
+     * @return the eagerPopulationThreads
+     */
+    public int getEagerPopulationThreads() {
+        return eagerPopulationThreads;
+    }
+
+    /**
+     * @return the eagerPopulationQueueSize
+     */
+    public int getEagerPopulationQueueSize() {
+        return eagerPopulationQueueSize;
+    }
+
+    /**
+     * @return the eagerTtl
+     */
+    public long getEagerTtl() {
+        return eagerTtl;
+    }
+
+    /**
+     * @return the eagerKeepAlive
+     */
+    public boolean isEagerKeepAlive() {
+        return eagerKeepAlive;
+    }
+
+    /**
+     * @return the eagerDefaultPolicy
+     */
+    public EAGER_CURSOR_ALLOCATION_POLICY getEagerDefaultPolicy() {
+        return eagerDefaultPolicy;
+    }
+
     /**
      * @return the eagerPoolSize
      */
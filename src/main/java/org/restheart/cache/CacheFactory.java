@@ -19,8 +19,10 @@ package org.restheart.cache;
 
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.ToIntFunction;
 import org.restheart.cache.impl.GuavaCache;
 import org.restheart.cache.impl.GuavaLoadingCache;
 
@@ -33,6 +35,10 @@ public class CacheFactory {
         return new GuavaLoadingCache(size, expirePolicy, ttl, loader);
     }
     
+    public static <K,V> LoadingCache<K,V> createLocalRefreshingLoadingCache(long size, long refreshAfter, long expireAfter, Executor executor, Function<K,V> loader) {
+        return new GuavaLoadingCache(size, refreshAfter, expireAfter, executor, loader);
+    }
+    
     public static <K,V> Cache<K,V> createLocalCache(long size, Cache.EXPIRE_POLICY expirePolicy, long ttl) {
         return new GuavaCache(size, expirePolicy, ttl);
     }
@@ -40,4 +46,8 @@ public class CacheFactory {
     public static <K,V> Cache<K,V> createLocalCache(long size, Cache.EXPIRE_POLICY expirePolicy, long ttl, Consumer<Map.Entry<K, Optional<V>>> remover) {
         return new GuavaCache(size, expirePolicy, ttl, remover);
     }
+    
+    public static <K,V> Cache<K,V> createLocalWeightedCache(long maxWeight, ToIntFunction<V> weigher, Cache.EXPIRE_POLICY expirePolicy, long ttl, Consumer<Map.Entry<K, Optional<V>>> remover) {
+        return new GuavaCache(maxWeight, weigher, expirePolicy, ttl, remover);
+    }
 }
\ No newline at end of file
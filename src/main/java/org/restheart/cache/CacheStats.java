@@ -0,0 +1,81 @@
+/*
+ * RESTHeart - the data REST API server
+ * Copyright (C) 2014 - 2015 SoftInstigate Srl
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.restheart.cache;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the hits, misses and loads of a cache.
+ *
+ * @author Andrea Di Cesare <andrea@softinstigate.com>
+ */
+public class CacheStats {
+
+    private final AtomicLong hits = new AtomicLong(0);
+    private final AtomicLong misses = new AtomicLong(0);
+    private final AtomicLong loads = new AtomicLong(0);
+    private final AtomicLong totalLoadTime = new AtomicLong(0);
+
+    public void recordHit() {
+        hits.incrementAndGet();
+    }
+
+    public void recordMiss() {
+        misses.incrementAndGet();
+    }
+
+    /**
+     *
+     * @param nanos the time spent loading the value
+     */
+    public void recordLoad(long nanos) {
+        loads.incrementAndGet();
+        totalLoadTime.addAndGet(nanos);
+    }
+
+    /**
+     * @return the number of the values found in the cache
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of the values not found in the cache
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return the number of the values loaded, on miss or on refresh
+     */
+    public long getLoads() {
+        return loads.get();
+    }
+
+    /**
+     * @return the average time spent loading a value in msecs
+     */
+    public double getAverageLoadTime() {
+        long _loads = loads.get();
+
+        return _loads == 0 ? 0 : (double) TimeUnit.NANOSECONDS.toMicros(totalLoadTime.get()) / _loads / 1000;
+    }
+}
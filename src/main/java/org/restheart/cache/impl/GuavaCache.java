@@ -20,10 +20,12 @@ package org.restheart.cache.impl;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
 import org.restheart.cache.Cache.EXPIRE_POLICY;
 
 /**
@@ -67,6 +69,34 @@ public class GuavaCache<K, V> implements org.restheart.cache.Cache<K, V> {
                 .build();
     }
 
+    /**
+     * creates a cache bounded by the total weight of its entries
+     *
+     * @param maxWeight the maximum total weight of the entries
+     * @param weigher computes the weight of a value
+     * @param expirePolicy
+     * @param ttl
+     * @param remover
+     */
+    public GuavaCache(long maxWeight, ToIntFunction<V> weigher, EXPIRE_POLICY expirePolicy, long ttl, Consumer<Map.Entry<K, Optional<V>>> remover) {
+        CacheBuilder builder = CacheBuilder.newBuilder();
+
+        builder.maximumWeight(maxWeight);
+        builder.weigher((Weigher<K, Optional<V>>) (K key, Optional<V> value) -> value.isPresent() ? weigher.applyAsInt(value.get()) : 0);
+
+        if (ttl > 0 && expirePolicy == EXPIRE_POLICY.AFTER_WRITE) {
+            builder.expireAfterWrite(ttl, TimeUnit.MILLISECONDS);
+        } else if (ttl > 0 && expirePolicy == EXPIRE_POLICY.AFTER_READ) {
+            builder.expireAfterAccess(ttl, TimeUnit.MILLISECONDS);
+        }
+
+        wrapped = builder
+                .removalListener((RemovalNotification notification) -> {
+                    remover.accept(notification);
+                })
+                .build();
+    }
+
     @Override
     public Optional<V> get(K key) {
         return wrapped.getIfPresent(key);
@@ -22,6 +22,7 @@ import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import org.restheart.cache.Cache.EXPIRE_POLICY;
@@ -54,6 +55,38 @@ public class GuavaLoadingCache<K, V> implements org.restheart.cache.LoadingCache
         });
     }
 
+    /**
+     * Creates a cache whose entries are reloaded asynchronously by the executor
+     * after refreshAfter msecs; in the meantime the old value is returned.
+     * Entries not refreshed are evicted after expireAfter msecs.
+     *
+     * @param size
+     * @param refreshAfter
+     * @param expireAfter
+     * @param executor
+     * @param loader
+     */
+    public GuavaLoadingCache(long size, long refreshAfter, long expireAfter, Executor executor, Function<K, V> loader) {
+        CacheBuilder builder = CacheBuilder.newBuilder();
+
+        builder.maximumSize(size);
+
+        if (refreshAfter > 0) {
+            builder.refreshAfterWrite(refreshAfter, TimeUnit.MILLISECONDS);
+        }
+
+        if (expireAfter > 0) {
+            builder.expireAfterWrite(expireAfter, TimeUnit.MILLISECONDS);
+        }
+
+        wrapped = builder.build(CacheLoader.asyncReloading(new CacheLoader<K, Optional<V>>() {
+            @Override
+            public Optional<V> load(K key) throws Exception {
+                return Optional.ofNullable(loader.apply(key));
+            }
+        }, executor));
+    }
+
     @Override
     public Optional<V> get(K key) {
         return wrapped.getIfPresent(key);
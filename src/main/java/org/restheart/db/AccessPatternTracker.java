@@ -0,0 +1,127 @@
+/*
+ * RESTHeart - the data REST API server
+ * Copyright (C) 2014 - 2015 SoftInstigate Srl
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.restheart.db;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+
+/**
+ * keeps track of the last skips requested for a query shape and detects its
+ * access pattern
+ *
+ * @author Andrea Di Cesare <andrea@softinstigate.com>
+ */
+public class AccessPatternTracker {
+
+    public enum ACCESS_PATTERN {
+
+        ONE_SHOT,
+        SEQUENTIAL,
+        RANDOM
+    };
+
+    private final int historySize;
+    private final int maxSequentialStep;
+
+    private final Deque<Integer> history;
+
+    /**
+     *
+     * @param historySize the number of last requested skips to consider
+     * @param maxSequentialStep the maximum forward step between two requests
+     * of a sequential access
+     */
+    public AccessPatternTracker(int historySize, int maxSequentialStep) {
+        this.historySize = historySize;
+        this.maxSequentialStep = maxSequentialStep;
+        this.history = new ArrayDeque<>(historySize);
+    }
+
+    /**
+     * records a request
+     *
+     * @param skipped the number of documents skipped by the request
+     * @return the access pattern detected including the request
+     */
+    public synchronized ACCESS_PATTERN record(int skipped) {
+        if (history.size() == historySize) {
+            history.removeFirst();
+        }
+
+        history.addLast(skipped);
+
+        return getPattern();
+    }
+
+    /**
+     * @return the access pattern detected
+     */
+    public synchronized ACCESS_PATTERN getPattern() {
+        int forwards = 0;
+        int repeats = 0;
+        int deltas = 0;
+
+        Iterator<Integer> it = history.iterator();
+        int previous = it.hasNext() ? it.next() : 0;
+
+        while (it.hasNext()) {
+            int current = it.next();
+            int delta = current - previous;
+
+            if (delta == 0) {
+                repeats++;
+            } else if (delta > 0 && delta <= maxSequentialStep) {
+                forwards++;
+            }
+
+            deltas++;
+            previous = current;
+        }
+
+        if (deltas == repeats) {
+            // a single request or always the same page
+            return ACCESS_PATTERN.ONE_SHOT;
+        } else if (forwards * 4 >= (deltas - repeats) * 3) {
+            return ACCESS_PATTERN.SEQUENTIAL;
+        } else {
+            return ACCESS_PATTERN.RANDOM;
+        }
+    }
+
+    /**
+     * @return the last forward step, i.e. the page size of a sequential
+     * access; 0 if no forward step has been recorded
+     */
+    public synchronized int getStride() {
+        Iterator<Integer> it = history.descendingIterator();
+        int next = it.hasNext() ? it.next() : 0;
+
+        while (it.hasNext()) {
+            int current = it.next();
+
+            if (next > current) {
+                return next - current;
+            }
+
+            next = current;
+        }
+
+        return 0;
+    }
+}
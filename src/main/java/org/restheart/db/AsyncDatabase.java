@@ -0,0 +1,66 @@
+/*
+ * RESTHeart - the data REST API server
+ * Copyright (C) 2014 - 2015 SoftInstigate Srl
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.restheart.db;
+
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The read operations of the async pipeline. The returned futures complete
+ * with the result of the query or exceptionally with the error of the
+ * corresponding Database method.
+ *
+ * @author Andrea Di Cesare <andrea@softinstigate.com>
+ */
+public interface AsyncDatabase {
+
+    /**
+     *
+     * @param collection
+     * @param page
+     * @param pagesize
+     * @param query the compiled filter and sort
+     * @param cursorAllocationPolicy
+     * @return the future of the page data
+     */
+    CompletableFuture<ArrayList<DBObject>> getCollectionData(DBCollection collection, int page, int pagesize, CompiledQuery query, DBCursorPool.EAGER_CURSOR_ALLOCATION_POLICY cursorAllocationPolicy);
+
+    /**
+     *
+     * @param collection
+     * @param pagesize
+     * @param query the compiled filter and sort
+     * @param continuationToken the continuation token of the previous page,
+     * null for the first page
+     * @return the future of the page data; it completes exceptionally with
+     * InvalidContinuationTokenException if the continuation token is invalid
+     */
+    CompletableFuture<ArrayList<DBObject>> getCollectionDataAfter(DBCollection collection, int pagesize, CompiledQuery query, String continuationToken);
+
+    /**
+     *
+     * @param collection
+     * @param documentId
+     * @param keys the projection or null to return the whole document
+     * @return the future of the document, completing with null if it does
+     * not exist
+     */
+    CompletableFuture<DBObject> getDocument(DBCollection collection, Object documentId, DBObject keys);
+}
@@ -0,0 +1,78 @@
+/*
+ * RESTHeart - the data REST API server
+ * Copyright (C) 2014 - 2015 SoftInstigate Srl
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.restheart.db;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import org.restheart.utils.AsyncPipelineExecutorSingleton;
+
+/**
+ * The AsyncDatabase implementation that executes the queries of a Database
+ * with an executor. The mongodb driver is blocking, so the queries still use
+ * a thread each, but not the worker threads serving the http requests.
+ *
+ * @author Andrea Di Cesare <andrea@softinstigate.com>
+ */
+public class AsyncDbsDAO implements AsyncDatabase {
+
+    private final Database dbsDAO;
+    private final Executor executor;
+
+    /**
+     * Creates an AsyncDbsDAO executing the queries with the executor of the
+     * async pipeline
+     *
+     * @param dbsDAO the database executing the queries
+     */
+    public AsyncDbsDAO(Database dbsDAO) {
+        this(dbsDAO, null);
+    }
+
+    /**
+     *
+     * @param dbsDAO the database executing the queries
+     * @param executor the executor of the queries
+     */
+    public AsyncDbsDAO(Database dbsDAO, Executor executor) {
+        this.dbsDAO = dbsDAO;
+        this.executor = executor;
+    }
+
+    @Override
+    public CompletableFuture<ArrayList<DBObject>> getCollectionData(DBCollection collection, int page, int pagesize, CompiledQuery query, DBCursorPool.EAGER_CURSOR_ALLOCATION_POLICY cursorAllocationPolicy) {
+        return CompletableFuture.supplyAsync(() -> dbsDAO.getCollectionData(collection, page, pagesize, query, cursorAllocationPolicy), getExecutor());
+    }
+
+    @Override
+    public CompletableFuture<ArrayList<DBObject>> getCollectionDataAfter(DBCollection collection, int pagesize, CompiledQuery query, String continuationToken) {
+        return CompletableFuture.supplyAsync(() -> dbsDAO.getCollectionDataAfter(collection, pagesize, query, continuationToken), getExecutor());
+    }
+
+    @Override
+    public CompletableFuture<DBObject> getDocument(DBCollection collection, Object documentId, DBObject keys) {
+        return CompletableFuture.supplyAsync(() -> collection.findOne(new BasicDBObject("_id", documentId), keys), getExecutor());
+    }
+
+    private Executor getExecutor() {
+        return executor == null ? AsyncPipelineExecutorSingleton.getInstance().getExecutor() : executor;
+    }
+}
@@ -17,20 +17,24 @@
  */
 package org.restheart.db;
 
+import com.mongodb.BasicDBList;
 import com.mongodb.BasicDBObject;
 import com.mongodb.DB;
 import com.mongodb.DBCollection;
 import com.mongodb.DBCursor;
 import com.mongodb.DBObject;
 import com.mongodb.MongoClient;
-import com.mongodb.util.JSON;
-import com.mongodb.util.JSONParseException;
 import org.restheart.utils.HttpStatus;
 import java.time.Instant;
 import java.util.ArrayList;
-import java.util.Deque;
-import org.bson.BSONObject;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
 import org.bson.types.ObjectId;
+import org.restheart.Bootstrapper;
+import org.restheart.cache.Cache;
+import org.restheart.cache.CacheFactory;
+import org.restheart.hal.metadata.CountStrategy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -49,6 +53,9 @@ class CollectionDAO {
 
     private static final BasicDBObject fieldsToReturn;
 
+    // the sizes counted with the CACHED strategy; the key is [db, collection, filter]
+    private static final Cache<List<Object>, CachedSize> cachedSizes = CacheFactory.createLocalCache(1000, Cache.EXPIRE_POLICY.AFTER_WRITE, Bootstrapper.getConf().getCountCacheTtl());
+
     CollectionDAO(MongoClient client) {
         this.client = client;
     }
@@ -110,82 +117,147 @@ class CollectionDAO {
      * account the filters in case).
      *
      * @param coll the mongodb DBCollection object.
-     * @param filters the filters to apply. it is a Deque collection of mongodb
-     * query conditions.
+     * @param query the compiled filter and sort
      * @return the number of documents in the given collection (taking into
      * account the filters in case)
      */
-    public long getCollectionSize(DBCollection coll, Deque<String> filters) {
-        final BasicDBObject query = new BasicDBObject();
-
-        if (filters != null) {
-            try {
-                filters.stream().forEach(f -> {
-                    query.putAll((BSONObject) JSON.parse(f));  // this can throw JSONParseException for invalid filter parameters
-                });
-            } catch (JSONParseException jpe) {
-                LOGGER.warn("****** error parsing filter expression {}", filters, jpe);
-            }
+    public long getCollectionSize(DBCollection coll, CompiledQuery query) {
+        return coll.count(query.getFilter());
+    }
+
+    /**
+     * Returns the number of documents in the given collection (taking into
+     * account the filters in case) computed with the given strategy.
+     *
+     * The ESTIMATED strategy uses the collection statistics, that don't take
+     * into account the filters; for filtered queries the CACHED strategy is
+     * used instead.
+     *
+     * @param coll the mongodb DBCollection object.
+     * @param query the compiled filter and sort
+     * @param strategy the count strategy
+     * @return the number of documents in the given collection (taking into
+     * account the filters in case)
+     */
+    public long getCollectionSize(DBCollection coll, CompiledQuery query, CountStrategy.TYPE strategy) {
+        if (strategy == null || strategy == CountStrategy.TYPE.EXACT) {
+            return getCollectionSize(coll, query);
+        }
+
+        if (strategy == CountStrategy.TYPE.ESTIMATED && query.isUnfiltered()) {
+            Object count = coll.getStats().get("count");
+
+            // the stats of a not existing collection don't have the count
+            return count instanceof Number ? ((Number) count).longValue() : 0;
         }
 
-        return coll.count(query);
+        String dbName = coll.getDB().getName();
+        String collName = coll.getName();
+
+        // the version must be read before counting
+        long version = CollectionVersions.getInstance().getVersion(dbName, collName);
+
+        List<Object> key = Arrays.asList(dbName, collName, query.getShape().getFilter());
+
+        Optional<CachedSize> cached = cachedSizes.get(key);
+
+        if (cached != null && cached.isPresent() && cached.get().version == version) {
+            return cached.get().size;
+        }
+
+        long size = getCollectionSize(coll, query);
+
+        cachedSizes.put(key, new CachedSize(version, size));
+
+        return size;
     }
 
     /**
      * Returs the DBCursor of the collection applying sorting and filtering.
+     * The cursor returns RawDBObjects, lazy documents decoded from the raw BSON
+     * only when their fields are accessed.
      *
      * @param coll the mongodb DBCollection object
-     * @param sortBy the Deque collection of fields to use for sorting (prepend
-     * field name with - for descending sorting)
-     * @param filters the filters to apply. it is a Deque collection of mongodb
-     * query conditions.
+     * @param query the compiled filter and sort
      * @return
-     * @throws JSONParseException
      */
-    DBCursor getCollectionDBCursor(DBCollection coll, Deque<String> sortBy, Deque<String> filters) throws JSONParseException {
-        // apply sort_by
-        DBObject sort = new BasicDBObject();
+    DBCursor getCollectionDBCursor(DBCollection coll, CompiledQuery query) {
+        return coll.find(query.getFilter(), query.getKeys()).sort(query.getSort()).setDecoderFactory(RawDBDecoder.FACTORY);
+    }
 
-        if (sortBy == null || sortBy.isEmpty()) {
-            sort.put("_id", -1);
-        } else {
-            sortBy.stream().forEach((s) -> {
+    /**
+     * Returns a page of data using the keyset pagination, i.e. the documents
+     * following the one the continuation token was generated from.
+     *
+     * @param coll the mongodb DBCollection object
+     * @param pagesize
+     * @param query the compiled filter and sort
+     * @param continuationToken the continuation token; null for the first page
+     * @return the page data
+     * @throws InvalidContinuationTokenException if the continuation token is
+     * invalid
+     */
+    ArrayList<DBObject> getCollectionDataAfter(
+            DBCollection coll,
+            int pagesize,
+            CompiledQuery query,
+            String continuationToken) throws InvalidContinuationTokenException {
+        DBObject filter = query.getFilter();
 
-                String _s = s.trim(); // the + sign is decoded into a space, in case remove it
+        if (continuationToken != null) {
+            DBObject range = ContinuationToken.getRangeQuery(query, continuationToken);
 
-                if (_s.startsWith("-")) {
-                    sort.put(_s.substring(1), -1);
-                } else if (_s.startsWith("+")) {
-                    sort.put(_s.substring(1), 1);
-                } else {
-                    sort.put(_s, 1);
-                }
-            });
+            if (filter.keySet().isEmpty()) {
+                filter = range;
+            } else {
+                BasicDBList and = new BasicDBList();
+                and.add(filter);
+                and.add(range);
+
+                filter = new BasicDBObject("$and", and);
+            }
         }
 
-        // apply filter
-        final BasicDBObject query = new BasicDBObject();
+        DBCursor cursor = coll.find(filter, query.getKeys()).sort(query.getKeysetSort()).limit(pagesize).setDecoderFactory(RawDBDecoder.FACTORY);
 
-        if (filters != null) {
-            filters.stream().forEach((String f) -> {
-                BSONObject filterQuery = (BSONObject) JSON.parse(f);
+        ArrayList<DBObject> ret = new ArrayList<>();
 
-                query.putAll(filterQuery);  // this can throw JSONParseException for invalid filter parameters
-            });
+        try {
+            while (cursor.hasNext()) {
+                ret.add(cursor.next());
+            }
+        } finally {
+            cursor.close();
         }
 
-        return coll.find(query).sort(sort);
+        return ret;
     }
 
     ArrayList<DBObject> getCollectionData(
             DBCollection coll,
             int page,
             int pagesize,
-            Deque<String> sortBy,
-            Deque<String> filters,
-            DBCursorPool.EAGER_CURSOR_ALLOCATION_POLICY eager) throws JSONParseException {
+            CompiledQuery query,
+            DBCursorPool.EAGER_CURSOR_ALLOCATION_POLICY eager) {
         ArrayList<DBObject> ret = new ArrayList<>();
 
+        PrefetchBuffer prefetchBuffer = PrefetchBuffer.getInstance();
+
+        long version = 0;
+
+        if (prefetchBuffer.isEnabled()) {
+            // the version must be read before querying the db
+            version = CollectionVersions.getInstance().getVersion(coll.getDB().getName(), coll.getName());
+
+            List<DBObject> prefetched = prefetchBuffer.get(query.getShape(), page, pagesize, version);
+
+            if (prefetched != null) {
+                ret.addAll(prefetched);
+
+                return ret;
+            }
+        }
+
         int toskip = pagesize * (page - 1);
 
         DBCursor cursor;
@@ -193,14 +265,14 @@ class CollectionDAO {
 
         if (eager != DBCursorPool.EAGER_CURSOR_ALLOCATION_POLICY.NONE) {
 
-            _cursor = DBCursorPool.getInstance().get(new DBCursorPoolEntryKey(coll, sortBy, filters, toskip, 0), eager);
+            _cursor = DBCursorPool.getInstance().get(new DBCursorPoolEntryKey(coll, query, toskip, 0), eager);
         }
 
         int alreadySkipped;
 
         // in case there is not cursor in the pool to reuse
         if (_cursor == null) {
-            cursor = getCollectionDBCursor(coll, sortBy, filters);
+            cursor = getCollectionDBCursor(coll, query);
             alreadySkipped = 0;
         } else {
             cursor = _cursor.getCursor();
@@ -208,30 +280,25 @@ class CollectionDAO {
         }
 
         if (toskip - alreadySkipped > 0) {
-            cursor.skip(toskip - alreadySkipped);
+            if (_cursor == null) {
+                cursor.skip(toskip);
+            } else {
+                // the query of a pooled cursor has already been executed, it cannot skip() anymore;
+                // the pool only returns cursors at most DBCursorPool.MAX_CLIENT_SIDE_SKIPS documents behind
+                for (int cont = alreadySkipped; cont < toskip && cursor.hasNext(); cont++) {
+                    cursor.next();
+                }
+            }
         }
 
-        while (pagesize > 0 && cursor.hasNext()) {
+        while (ret.size() < pagesize && cursor.hasNext()) {
             ret.add(cursor.next());
-            pagesize--;
         }
 
-        // add the _lastupdated_on and _created_on
-        ret.forEach(row -> {
-            Object etag = row.get("_etag");
-
-            if (row.get("_lastupdated_on") == null && etag != null && etag instanceof ObjectId) {
-                row.put("_lastupdated_on", Instant.ofEpochSecond(((ObjectId) etag).getTimestamp()).toString());
-            }
-
-            Object id = row.get("_id");
-
-            // generate the _created_on timestamp from the _id if this is an instance of ObjectId
-            if (row.get("_created_on") == null && id != null && id instanceof ObjectId) {
-                row.put("_created_on", Instant.ofEpochSecond(((ObjectId) id).getTimestamp()).toString());
-            }
+        if (prefetchBuffer.isEnabled() && pagesize > 0 && ret.size() == pagesize) {
+            // the cursor is positioned at the first document of the next page
+            prefetchBuffer.prefetch(query.getShape(), page + 1, pagesize, version, cursor);
         }
-        );
 
         return ret;
     }
@@ -385,4 +452,15 @@ class CollectionDAO {
         coll.createIndex(new BasicDBObject("_id", 1).append("_etag", 1), new BasicDBObject("name", "_id_etag_idx"));
         coll.createIndex(new BasicDBObject("_etag", 1), new BasicDBObject("name", "_etag_idx"));
     }
+
+    private static class CachedSize {
+
+        private final long version;
+        private final long size;
+
+        CachedSize(long version, long size) {
+            this.version = version;
+            this.size = size;
+        }
+    }
 }
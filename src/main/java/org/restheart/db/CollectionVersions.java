@@ -0,0 +1,111 @@
+/*
+ * RESTHeart - the data REST API server
+ * Copyright (C) 2014 - 2015 SoftInstigate Srl
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.restheart.db;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.bson.types.ObjectId;
+
+/**
+ * Keeps a version number for each collection that is incremented on every
+ * write handled by this RESTHeart instance. Data derived from a collection
+ * (prefetched pages, cached counts, etc) is tagged with the version read
+ * before querying the db and is valid only as long as the version does not
+ * change.
+ *
+ * Writes must increment the version after modifying the db, so that a reader
+ * cannot tag old data with the new version.
+ *
+ * Note that writes not handled by this instance (other instances or direct
+ * db accesses) are not tracked.
+ *
+ * @author Andrea Di Cesare <andrea@softinstigate.com>
+ */
+public class CollectionVersions {
+
+    /**
+     * the versions of the written collections and of the deleted dbs; the
+     * version of a collection is the sum of its own and of its db's, so that
+     * deleting the db changes the version of all its collections. reads do not
+     * add keys, so that requests of missing collections cannot grow the maps.
+     */
+    private final ConcurrentMap<String, AtomicLong> versions = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, AtomicLong> dbVersions = new ConcurrentHashMap<>();
+
+    // the version of the collections and dbs never written, it is never incremented
+    private static final AtomicLong ZERO = new AtomicLong(0);
+
+    // the versions restart from 0 with the instance, the id tells them apart
+    private final String instanceId = new ObjectId().toHexString();
+
+    public static CollectionVersions getInstance() {
+        return CollectionVersionsSingletonHolder.INSTANCE;
+    }
+
+    private CollectionVersions() {
+    }
+
+    /**
+     * @param dbName
+     * @param collName
+     * @return the current version of the collection
+     */
+    public long getVersion(String dbName, String collName) {
+        return versions.getOrDefault(getKey(dbName, collName), ZERO).get()
+                + dbVersions.getOrDefault(dbName, ZERO).get();
+    }
+
+    /**
+     * increments the version of the collection; to be called after every
+     * write to it
+     *
+     * @param dbName
+     * @param collName
+     */
+    public void increment(String dbName, String collName) {
+        versions.computeIfAbsent(getKey(dbName, collName), k -> new AtomicLong(0)).incrementAndGet();
+    }
+
+    /**
+     * increments the version of all the collections of the db; to be called
+     * after the db is deleted
+     *
+     * @param dbName
+     */
+    public void incrementDb(String dbName) {
+        dbVersions.computeIfAbsent(dbName, k -> new AtomicLong(0)).incrementAndGet();
+    }
+
+    /**
+     * @return the id of this instance, to qualify the versions in data sent to
+     * the clients (etags, tokens, etc) that can outlive it
+     */
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    private static String getKey(String dbName, String collName) {
+        return dbName + "/" + collName;
+    }
+
+    private static class CollectionVersionsSingletonHolder {
+
+        private static final CollectionVersions INSTANCE = new CollectionVersions();
+    };
+}
@@ -0,0 +1,233 @@
+/*
+ * RESTHeart - the data REST API server
+ * Copyright (C) 2014 - 2015 SoftInstigate Srl
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.restheart.db;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import com.mongodb.util.JSON;
+import com.mongodb.util.JSONParseException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import org.bson.BSONObject;
+import org.restheart.cache.Cache;
+import org.restheart.cache.CacheFactory;
+import org.restheart.hal.metadata.Projection;
+
+/**
+ * The filter, sort and projection of a collection query, parsed once per
+ * request from the filter, sort_by and keys query parameters and passed to the
+ * DAO methods.
+ *
+ * The filter, sort and keys objects are shared and must not be modified.
+ *
+ * @author Andrea Di Cesare <andrea@softinstigate.com>
+ */
+public final class CompiledQuery {
+
+    private static final long COMPILED_FILTERS_CACHE_SIZE = 1000;
+
+    // the parsed filter query parameters; the key is the filter string
+    private static final Cache<String, BSONObject> compiledFilters = CacheFactory.createLocalCache(COMPILED_FILTERS_CACHE_SIZE, Cache.EXPIRE_POLICY.NEVER, 0);
+
+    private final DBObject filter;
+    private final DBObject sort;
+    private final DBObject keysetSort;
+    private final DBObject keys;
+    private final DBObject requestedKeys;
+    private final Collection<String> requiredFields;
+    private final QueryShape shape;
+
+    /**
+     *
+     * @param dbName
+     * @param collName
+     * @param filter the filter query, possibly merging several filter query
+     * parameters
+     * @param sort the sort, as returned by DAOUtils.getSortObject()
+     */
+    public CompiledQuery(String dbName, String collName, DBObject filter, DBObject sort) {
+        this(dbName, collName, filter, sort, null);
+    }
+
+    /**
+     *
+     * @param dbName
+     * @param collName
+     * @param filter the filter query, possibly merging several filter query
+     * parameters
+     * @param sort the sort, as returned by DAOUtils.getSortObject()
+     * @param keys the projection, already checked with Projection.check(), or
+     * null to return the whole documents; _id, _etag and the sort_by fields are
+     * always returned
+     */
+    public CompiledQuery(String dbName, String collName, DBObject filter, DBObject sort, DBObject keys) {
+        this(dbName, collName, filter, sort, keys, Collections.emptySet());
+    }
+
+    /**
+     *
+     * @param dbName
+     * @param collName
+     * @param filter the filter query, possibly merging several filter query
+     * parameters
+     * @param sort the sort, as returned by DAOUtils.getSortObject()
+     * @param keys the projection, already checked with Projection.check(), or
+     * null to return the whole documents
+     * @param requiredFields the fields returned regardless of the projection,
+     * in addition to _id, _etag and the sort_by fields
+     */
+    public CompiledQuery(String dbName, String collName, DBObject filter, DBObject sort, DBObject keys, Collection<String> requiredFields) {
+        this.filter = filter;
+        this.sort = sort;
+        this.keysetSort = ContinuationToken.getKeysetSort(sort);
+        this.requestedKeys = keys;
+        this.requiredFields = requiredFields;
+        this.keys = Projection.normalize(keys, getRequiredFields(keysetSort, requiredFields));
+        this.shape = new QueryShape(dbName, collName, filter, sort, this.keys);
+    }
+
+    /**
+     * @param dbName
+     * @param collName
+     * @param filters the filter query parameters
+     * @param sortBy the sort_by query parameters
+     * @return the compiled query
+     * @throws JSONParseException if a filter is not valid json
+     * @throws IllegalArgumentException if a filter is not a json object
+     */
+    public static CompiledQuery compile(String dbName, String collName, Deque<String> filters, Deque<String> sortBy) throws JSONParseException, IllegalArgumentException {
+        BasicDBObject filterQuery = new BasicDBObject();
+
+        if (filters != null) {
+            filters.stream().forEach(f -> filterQuery.putAll(compileFilter(f)));
+        }
+
+        return new CompiledQuery(dbName, collName, filterQuery, DAOUtils.getSortObject(sortBy));
+    }
+
+    /**
+     * Parses a filter query parameter; identical filter strings are parsed
+     * once and then served from a LRU cache.
+     *
+     * @param filter the filter query parameter
+     * @return the parsed filter; it must not be modified
+     * @throws JSONParseException if the filter is not valid json
+     * @throws IllegalArgumentException if the filter is not a json object
+     */
+    public static BSONObject compileFilter(String filter) throws JSONParseException, IllegalArgumentException {
+        Optional<BSONObject> cached = compiledFilters.get(filter);
+
+        if (cached != null && cached.isPresent()) {
+            return cached.get();
+        }
+
+        Object _filter = JSON.parse(filter);
+
+        if (!(_filter instanceof BSONObject) || _filter instanceof List) {
+            throw new IllegalArgumentException("it is not a json object: " + filter + " => " + (_filter == null ? "null" : _filter.getClass().getSimpleName()));
+        }
+
+        compiledFilters.put(filter, (BSONObject) _filter);
+
+        return (BSONObject) _filter;
+    }
+
+    // the fields always returned, regardless of the projection
+    private static Collection<String> getRequiredFields(DBObject keysetSort, Collection<String> requiredFields) {
+        Set<String> ret = new LinkedHashSet<>(keysetSort.keySet());
+        ret.add("_etag");
+        ret.addAll(requiredFields);
+
+        return ret;
+    }
+
+    /**
+     * @param keys the projection, already checked with Projection.check()
+     * @return a query with the same filter, sort and required fields of this
+     * one and the given projection
+     */
+    public CompiledQuery withKeys(DBObject keys) {
+        return new CompiledQuery(shape.getDbName(), shape.getCollName(), filter, sort, keys, requiredFields);
+    }
+
+    /**
+     * @param requiredFields the fields returned regardless of the projection,
+     * as the reference fields of the relationships
+     * @return a query with the same filter, sort and projection of this one
+     * that also returns the given fields
+     */
+    public CompiledQuery withRequiredFields(Collection<String> requiredFields) {
+        if (requestedKeys == null || requiredFields.isEmpty()) {
+            return this;
+        }
+
+        return new CompiledQuery(shape.getDbName(), shape.getCollName(), filter, sort, requestedKeys, requiredFields);
+    }
+
+    /**
+     * @return the filter query
+     */
+    public DBObject getFilter() {
+        return filter;
+    }
+
+    /**
+     * @return the sort
+     */
+    public DBObject getSort() {
+        return sort;
+    }
+
+    /**
+     * @return the sort of the keyset pagination, i.e. the sort followed by _id
+     */
+    public DBObject getKeysetSort() {
+        return keysetSort;
+    }
+
+    /**
+     * @return the projection or null if the whole documents are returned
+     */
+    public DBObject getKeys() {
+        return keys;
+    }
+
+    /**
+     * @return true if the filter does not have any condition
+     */
+    public boolean isUnfiltered() {
+        return filter.keySet().isEmpty();
+    }
+
+    /**
+     * @return the canonical shape of the query
+     */
+    public QueryShape getShape() {
+        return shape;
+    }
+
+    @Override
+    public String toString() {
+        return "{ filter: " + filter + ", sort: " + sort + ", keys: " + keys + "}";
+    }
+}
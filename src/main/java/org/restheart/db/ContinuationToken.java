@@ -0,0 +1,141 @@
+/*
+ * RESTHeart - the data REST API server
+ * Copyright (C) 2014 - 2015 SoftInstigate Srl
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.restheart.db;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import com.mongodb.util.JSON;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The continuation token of the keyset pagination. It encodes the values of
+ * the sort keys of the last document of a page; the next page is retrieved
+ * with a range query on those values instead of skipping the documents of the
+ * previous pages.
+ *
+ * Note that a document missing a sort key has a null value for it and the
+ * documents following it might not be retrieved.
+ *
+ * @author Andrea Di Cesare <andrea@softinstigate.com>
+ */
+public class ContinuationToken {
+
+    private ContinuationToken() {
+    }
+
+    /**
+     * Returns the sort of the keyset pagination, i.e. the sort_by fields
+     * followed by _id, that makes the order total.
+     *
+     * @param sort the sort, as returned by DAOUtils.getSortObject()
+     * @return the sort of the keyset pagination
+     */
+    public static DBObject getKeysetSort(DBObject sort) {
+        DBObject ret = new BasicDBObject(sort.toMap());
+
+        if (!ret.containsField("_id")) {
+            ret.put("_id", 1);
+        }
+
+        return ret;
+    }
+
+    /**
+     * @param query the compiled query
+     * @param lastDocument the last document of the page
+     * @return the continuation token to get the documents following
+     * lastDocument
+     */
+    public static String encode(CompiledQuery query, DBObject lastDocument) {
+        BasicDBList values = new BasicDBList();
+
+        query.getKeysetSort().keySet().stream().forEach(key -> {
+            values.add(getValue(lastDocument, key));
+        });
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(JSON.serialize(values).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param query the compiled query
+     * @param token the continuation token
+     * @return the query that selects the documents following the one the
+     * token was generated from
+     * @throws InvalidContinuationTokenException if the token is invalid
+     */
+    public static DBObject getRangeQuery(CompiledQuery query, String token) throws InvalidContinuationTokenException {
+        DBObject sort = query.getKeysetSort();
+
+        Object _values;
+
+        try {
+            _values = JSON.parse(new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8));
+        } catch (RuntimeException re) {
+            throw new InvalidContinuationTokenException("invalid continuation token", re);
+        }
+
+        if (!(_values instanceof BasicDBList) || ((BasicDBList) _values).size() != sort.keySet().size()) {
+            throw new InvalidContinuationTokenException("invalid continuation token, it does not match the sort_by parameter");
+        }
+
+        BasicDBList values = (BasicDBList) _values;
+
+        List<String> keys = new ArrayList<>(sort.keySet());
+
+        // (k1 > v1) or (k1 = v1 and k2 > v2) or ... with < for descending keys
+        BasicDBList or = new BasicDBList();
+
+        for (int cont = 0; cont < keys.size(); cont++) {
+            BasicDBObject condition = new BasicDBObject();
+
+            for (int prev = 0; prev < cont; prev++) {
+                condition.append(keys.get(prev), values.get(prev));
+            }
+
+            String key = keys.get(cont);
+            String operator = ((Number) sort.get(key)).intValue() < 0 ? "$lt" : "$gt";
+
+            condition.append(key, new BasicDBObject(operator, values.get(cont)));
+
+            or.add(condition);
+        }
+
+        return or.size() == 1 ? (DBObject) or.get(0) : new BasicDBObject("$or", or);
+    }
+
+    private static Object getValue(DBObject document, String path) {
+        Object ret = document;
+
+        for (String token : path.split("\\.")) {
+            if (ret instanceof Map) {
+                ret = ((Map) ret).get(token);
+            } else if (ret instanceof DBObject) {
+                ret = ((DBObject) ret).get(token);
+            } else {
+                return null;
+            }
+        }
+
+        return ret;
+    }
+}
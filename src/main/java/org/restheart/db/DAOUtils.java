@@ -22,6 +22,7 @@ import com.mongodb.BasicDBObject;
 import com.mongodb.DBObject;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
@@ -32,6 +33,35 @@ import java.util.TreeMap;
  */
 public class DAOUtils {
 
+    /**
+     * @param sortBy the Deque collection of fields to use for sorting (prepend
+     * field name with - for descending sorting)
+     * @return the sort object; if sortBy is empty, sorts by descending _id
+     */
+    public static DBObject getSortObject(Deque<String> sortBy) {
+        // apply sort_by
+        DBObject sort = new BasicDBObject();
+
+        if (sortBy == null || sortBy.isEmpty()) {
+            sort.put("_id", -1);
+        } else {
+            sortBy.stream().forEach((s) -> {
+
+                String _s = s.trim(); // the + sign is decoded into a space, in case remove it
+
+                if (_s.startsWith("-")) {
+                    sort.put(_s.substring(1), -1);
+                } else if (_s.startsWith("+")) {
+                    sort.put(_s.substring(1), 1);
+                } else {
+                    sort.put(_s, 1);
+                }
+            });
+        }
+
+        return sort;
+    }
+
     /**
      * @param rows list of DBObject rows as returned by getDataFromCursor()
      * @return
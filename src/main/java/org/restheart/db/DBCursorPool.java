@@ -17,22 +17,34 @@
  */
 package org.restheart.db;
 
+import com.google.common.util.concurrent.Striped;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.mongodb.DBCursor;
 import org.restheart.Bootstrapper;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Objects;
+import java.util.NavigableSet;
 import java.util.Optional;
+import java.util.Set;
 import java.util.TreeMap;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
-import java.util.function.Predicate;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 import org.restheart.cache.Cache;
 import org.restheart.cache.CacheFactory;
-import org.restheart.cache.LoadingCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -58,16 +70,102 @@ public class DBCursorPool {
 
         LINEAR,
         RANDOM,
-        NONE
+        NONE,
+        AUTO
     };
 
     private final Cache<DBCursorPoolEntryKey, DBCursor> cache;
-    private final LoadingCache<DBCursorPoolEntryKey, Long> collSizes;
-
-    private static final long TTL = 8*60*1000; // in minutes - MUST BE < 10 since this 10 the TTL of the cursor in mongodb
+    private final Cache<QueryShape, Long> collSizes;
+
+    /**
+     * for each query shape, the keys of the pooled cursors ordered by skipped
+     */
+    private final ConcurrentMap<QueryShape, NavigableSet<DBCursorPoolEntryKey>> index = new ConcurrentHashMap<>();
+
+    private static final Comparator<DBCursorPoolEntryKey> SKIPPED_ORDER = Comparator
+            .comparingInt(DBCursorPoolEntryKey::getSkipped)
+            .thenComparingLong(DBCursorPoolEntryKey::getCursorId);
+
+    /**
+     * the eviction order among cursors with the same priority: the oldest first
+     */
+    private static final Comparator<PooledCursor> EVICTION_ORDER = Comparator
+            .comparingLong((PooledCursor p) -> p.key.getCursorId())
+            .thenComparingLong(p -> p.seq);
+
+    /**
+     * the pooled cursors by key; the priorities are computed lazily, only when
+     * putInPool needs to choose the cursor to evict
+     */
+    private final ConcurrentMap<DBCursorPoolEntryKey, PooledCursor> pooled = new ConcurrentHashMap<>();
+
+    private long pooledSeq = 0;
+
+    /**
+     * serializes putInPool, so that checking the pool capacity, evicting and
+     * putting a cursor is a single atomic step; the checkout does not take it
+     */
+    private final ReentrantLock poolLock = new ReentrantLock();
+
+    private static final long MAX_TTL = 9*60*1000; // in milliseconds - MUST BE < 10 minutes since this is the idle timeout of the cursors in mongodb
+    private static final long TTL = Math.min(Bootstrapper.getConf().getEagerTtl(), MAX_TTL); // in milliseconds
+    private static final boolean KEEP_ALIVE = Bootstrapper.getConf().isEagerKeepAlive();
     private static final long POOL_SIZE = Bootstrapper.getConf().getEagerPoolSize();
 
-    ExecutorService executor = Executors.newSingleThreadExecutor();
+    private static final int POPULATION_THREADS = Bootstrapper.getConf().getEagerPopulationThreads();
+    private static final int POPULATION_QUEUE_SIZE = Bootstrapper.getConf().getEagerPopulationQueueSize();
+
+    /**
+     * bounded executor for pool population; when the queue is full the
+     * population task is dropped
+     */
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * the population tasks submitted and not yet completed
+     */
+    private final Set<List<Object>> populatingSlices = ConcurrentHashMap.newKeySet();
+
+    /**
+     * serializes the population of the slices of the same query shape
+     */
+    private final Striped<Lock> populationLocks = Striped.lock(64);
+
+    private final AtomicLong droppedPopulations = new AtomicLong(0);
+
+    private static final int ACCESS_HISTORY_SIZE = 8;
+
+    /**
+     * the maximum number of documents a reused cursor is advanced on the
+     * client side, i.e. the first batch of a mongodb query already fetched by
+     * createCursor(); a pooled cursor farther than this from the request is
+     * not reused, since every skipped document would be fetched and decoded
+     */
+    public static final int MAX_CLIENT_SIDE_SKIPS = 101;
+
+    /**
+     * the access patterns of the query shapes requested with the AUTO policy
+     */
+    private final Cache<QueryShape, AccessPatternTracker> accessPatterns;
+
+    private final Map<AccessPatternTracker.ACCESS_PATTERN, AtomicLong> autoDecisions = new EnumMap<>(AccessPatternTracker.ACCESS_PATTERN.class);
+
+    private final AtomicLong savedSeeks = new AtomicLong(0);
+    private final AtomicLong autoSavedSeeks = new AtomicLong(0);
+
+    private final AtomicLong hits = new AtomicLong(0);
+    private final AtomicLong misses = new AtomicLong(0);
+    private final AtomicLong createdCursors = new AtomicLong(0);
+    private final AtomicLong evictedCursors = new AtomicLong(0);
+    private final AtomicLong populationTasks = new AtomicLong(0);
+    private final AtomicLong populationTime = new AtomicLong(0); // in nanoseconds
+    private final AtomicLong refreshedCursors = new AtomicLong(0);
+
+    /**
+     * the number of hits of each slice, i.e. [query shape, skipped]; it
+     * gives the priority of the pooled cursors
+     */
+    private final Cache<List<Object>, AtomicLong> sliceHits;
 
     public static DBCursorPool getInstance() {
         return DBCursorPoolSingletonHolder.INSTANCE;
@@ -75,17 +173,41 @@ public class DBCursorPool {
 
     private DBCursorPool(DbsDAO dbsDAO) {
         this.dbsDAO = dbsDAO;
+
+        executor = new ThreadPoolExecutor(POPULATION_THREADS, POPULATION_THREADS,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(POPULATION_QUEUE_SIZE),
+                new ThreadFactoryBuilder().setNameFormat("db-cursor-pool-populator-%d").setDaemon(true).build());
         
-        cache = CacheFactory.createLocalCache(POOL_SIZE, Cache.EXPIRE_POLICY.AFTER_READ, TTL, (Map.Entry<DBCursorPoolEntryKey, Optional<DBCursor>> entry) -> {
-            if (entry != null && entry.getValue() != null) {
+        // the pool size is enforced by putInPool according to the priorities,
+        // the cache only expires the cursors
+        cache = CacheFactory.createLocalCache(Long.MAX_VALUE, Cache.EXPIRE_POLICY.AFTER_READ, TTL, (Map.Entry<DBCursorPoolEntryKey, Optional<DBCursor>> entry) -> {
+            // close the cursor only if it is evicted; a checked out cursor is not pooled anymore
+            if (entry != null && entry.getValue() != null && unpool(entry.getKey())) {
+                evictedCursors.incrementAndGet();
                 entry.getValue().ifPresent(v -> v.close());
             }
         });
 
-        collSizes = CacheFactory.createLocalLoadingCache(100, org.restheart.cache.Cache.EXPIRE_POLICY.AFTER_WRITE, 60*1000, (DBCursorPoolEntryKey key) -> {
-            return dbsDAO.getCollectionSize(key.getCollection(), key.getFilter());
+        accessPatterns = CacheFactory.createLocalCache(1000, Cache.EXPIRE_POLICY.AFTER_READ, TTL);
+
+        for (AccessPatternTracker.ACCESS_PATTERN pattern : AccessPatternTracker.ACCESS_PATTERN.values()) {
+            autoDecisions.put(pattern, new AtomicLong(0));
+        }
+
+        collSizes = CacheFactory.createLocalCache(100, org.restheart.cache.Cache.EXPIRE_POLICY.AFTER_WRITE, 60*1000);
+
+        sliceHits = CacheFactory.createLocalCache(POOL_SIZE * 10, Cache.EXPIRE_POLICY.AFTER_READ, TTL);
+
+        if (Bootstrapper.getConf().getEagerTtl() > MAX_TTL) {
+            LOGGER.warn("db cursor pool ttl {} exceeds the mongodb cursor idle timeout, using {}", Bootstrapper.getConf().getEagerTtl(), MAX_TTL);
+        }
+
+        if (KEEP_ALIVE) {
+            // refresh the cursors of the hot slices before they expire
+            Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("db-cursor-pool-keep-alive-%d").setDaemon(true).build())
+                    .scheduleAtFixedRate(() -> keepAlive(), TTL / 4, TTL / 4, TimeUnit.MILLISECONDS);
         }
-        );
 
         if (LOGGER.isDebugEnabled()) {
             // print stats every 1 minute
@@ -94,80 +216,159 @@ public class DBCursorPool {
                     LOGGER.debug("db cursor pool size: {}\t{}", s, c);
                 });
 
+                LOGGER.debug("db cursor pool population queue: {}, dropped population tasks: {}", executor.getQueue().size(), droppedPopulations.get());
+                LOGGER.debug("db cursor pool saved seeks: {}, with AUTO policy: {}, AUTO policy decisions: {}", savedSeeks.get(), autoSavedSeeks.get(), getAutoPolicyDecisions());
+                LOGGER.debug("db cursor pool hits: {}, misses: {}, created cursors: {}, evicted cursors: {}, refreshed cursors: {}", hits.get(), misses.get(), createdCursors.get(), evictedCursors.get(), refreshedCursors.get());
+
                 LOGGER.trace("db cursor pool entries: {}", cache.asMap().keySet());
             }, 1, 1, TimeUnit.MINUTES);
         }
     }
 
-    public synchronized SkippedDBCursor get(DBCursorPoolEntryKey key, EAGER_CURSOR_ALLOCATION_POLICY allocationPolicy) {
+    public SkippedDBCursor get(DBCursorPoolEntryKey key, EAGER_CURSOR_ALLOCATION_POLICY allocationPolicy) {
+        QueryShape shape = key.getShape();
+
+        AccessPatternTracker.ACCESS_PATTERN pattern = null;
+
+        if (allocationPolicy == EAGER_CURSOR_ALLOCATION_POLICY.AUTO) {
+            pattern = trackAccess(shape, key.getSkipped());
+        }
+
         if (key.getSkipped() < SKIP_SLICE_LINEAR_WIDTH) {
             LOGGER.trace("no cursor to reuse found with skipped {} that is less than SKIP_SLICE_WIDTH {}", key.getSkipped(), SKIP_SLICE_LINEAR_WIDTH);
             return null;
         }
 
-        // return the dbcursor with the closest skips to the request
-        Optional<DBCursorPoolEntryKey> _bestKey = cache.asMap().keySet().stream()
-                .filter(cursorsPoolFilterGt(key))
-                .sorted(Comparator.comparingInt(DBCursorPoolEntryKey::getSkipped).reversed())
-                .findFirst();
+        SkippedDBCursor ret = null;
 
-        SkippedDBCursor ret;
+        NavigableSet<DBCursorPoolEntryKey> shapeIndex = index.get(shape);
 
-        if (_bestKey.isPresent()) {
-            Optional<DBCursor> _dbcur = cache.get(_bestKey.get());
+        if (shapeIndex != null) {
+            // the dbcursor with the closest skips to the request;
+            // probing with the lowest cursorId excludes cursors with skipped equal to the request 
+            DBCursorPoolEntryKey probe = new DBCursorPoolEntryKey(key.getCollection(), key.getQuery(), key.getSkipped(), Long.MIN_VALUE);
+            DBCursorPoolEntryKey bestKey = shapeIndex.lower(probe);
 
-            if (_dbcur != null && _dbcur.isPresent()) {
-                ret = new SkippedDBCursor(_dbcur.get(), _bestKey.get().getSkipped());
-                cache.invalidate(_bestKey.get());
+            while (bestKey != null && ret == null && key.getSkipped() - bestKey.getSkipped() <= MAX_CLIENT_SIDE_SKIPS) {
+                // unpooling the key checks the cursor out of the pool, only one thread can win it
+                if (unpool(bestKey)) {
+                    Optional<DBCursor> _dbcur = cache.asMap().remove(bestKey);
 
-                LOGGER.debug("found cursor to reuse in pool, asked with skipped {} and saving {} seeks", key.getSkipped(), _bestKey.get().getSkipped());
-            } else {
-                ret = null;
+                    if (_dbcur != null && _dbcur.isPresent()) {
+                        ret = new SkippedDBCursor(_dbcur.get(), bestKey.getSkipped());
+
+                        savedSeeks.addAndGet(bestKey.getSkipped());
+                        recordSliceHit(shape, bestKey.getSkipped());
+
+                        if (pattern != null) {
+                            autoSavedSeeks.addAndGet(bestKey.getSkipped());
+                        }
 
-                LOGGER.debug("no cursor to reuse found with skipped {}.", key.getSkipped());
+                        LOGGER.debug("found cursor to reuse in pool, asked with skipped {} and saving {} seeks", key.getSkipped(), bestKey.getSkipped());
+                    }
+                }
+
+                if (ret == null) {
+                    bestKey = shapeIndex.lower(probe);
+                }
             }
-        } else {
-            ret = null;
 
+            index.computeIfPresent(shape, (k, v) -> v.isEmpty() ? null : v);
+        }
+
+        if (ret == null) {
+            misses.incrementAndGet();
             LOGGER.debug("no cursor to reuse found with skipped {}.", key.getSkipped());
+        } else {
+            hits.incrementAndGet();
+        }
+
+        if (pattern == null) {
+            populateCache(key, allocationPolicy);
+        } else {
+            populateCache(key, shape, pattern);
         }
 
-        populateCache(key, allocationPolicy);
+        return ret;
+    }
+
+    /**
+     * records the request in the access pattern of the query shape
+     *
+     * @param shape
+     * @param skipped
+     * @return the access pattern detected
+     */
+    private AccessPatternTracker.ACCESS_PATTERN trackAccess(QueryShape shape, int skipped) {
+        Optional<AccessPatternTracker> tracker = accessPatterns.asMap().computeIfAbsent(shape,
+                k -> Optional.of(new AccessPatternTracker(ACCESS_HISTORY_SIZE, SKIP_SLICE_LINEAR_WIDTH)));
+
+        AccessPatternTracker.ACCESS_PATTERN ret = tracker.get().record(skipped);
+
+        autoDecisions.get(ret).incrementAndGet();
+
+        LOGGER.trace("access pattern detected for skipped {}: {}", skipped, ret);
 
         return ret;
     }
 
     private void populateCache(DBCursorPoolEntryKey key, EAGER_CURSOR_ALLOCATION_POLICY allocationPolicy) {
         if (allocationPolicy == EAGER_CURSOR_ALLOCATION_POLICY.LINEAR) {
-            populateCacheLinear(key);
+            populateCacheLinear(key, SKIP_SLICES_HEIGHTS);
         } else if (allocationPolicy == EAGER_CURSOR_ALLOCATION_POLICY.RANDOM) {
             populateCacheRandom(key);
         }
     }
 
-    private void populateCacheLinear(DBCursorPoolEntryKey key) {
+    /**
+     * populates the pool as decided by the AUTO policy: a sequential access
+     * gets the LINEAR slices, with heights not exceeding the requests that can
+     * fall into a slice; a random access gets the RANDOM slices and a one-shot
+     * access gets no cursors.
+     *
+     * @param key
+     * @param shape
+     * @param pattern
+     */
+    private void populateCache(DBCursorPoolEntryKey key, QueryShape shape, AccessPatternTracker.ACCESS_PATTERN pattern) {
+        if (pattern == AccessPatternTracker.ACCESS_PATTERN.SEQUENTIAL) {
+            Optional<AccessPatternTracker> tracker = accessPatterns.get(shape);
+
+            int stride = tracker != null && tracker.isPresent() ? tracker.get().getStride() : 0;
+
+            int[] heights = SKIP_SLICES_HEIGHTS.clone();
+
+            if (stride > 0) {
+                int requestsPerSlice = Math.max(1, (SKIP_SLICE_LINEAR_WIDTH + stride - 1) / stride);
+
+                for (int cont = 0; cont < heights.length; cont++) {
+                    heights[cont] = Math.min(heights[cont], requestsPerSlice);
+                }
+            }
+
+            populateCacheLinear(key, heights);
+        } else if (pattern == AccessPatternTracker.ACCESS_PATTERN.RANDOM) {
+            populateCacheRandom(key);
+        }
+    }
+
+    private void populateCacheLinear(DBCursorPoolEntryKey key, int[] heights) {
         if (key.getSkipped() < SKIP_SLICE_LINEAR_WIDTH) {
             return;
         }
 
         int firstSlice = key.getSkipped() / SKIP_SLICE_LINEAR_WIDTH;
 
-        executor.submit(() -> {
+        QueryShape shape = key.getShape();
+
+        submitPopulation(shape, "linear " + firstSlice, () -> {
             int slice = firstSlice;
 
-            for (int tohave : SKIP_SLICES_HEIGHTS) {
+            for (int tohave : heights) {
                 int sliceSkips = slice * SKIP_SLICE_LINEAR_WIDTH - SKIP_SLICE_LINEAR_DELTA;
-                DBCursorPoolEntryKey sliceKey = new DBCursorPoolEntryKey(key.getCollection(), key.getSort(), key.getFilter(), sliceSkips, -1);
+                DBCursorPoolEntryKey sliceKey = new DBCursorPoolEntryKey(key.getCollection(), key.getQuery(), sliceSkips, -1);
 
-                long existing = getSliceHeight(sliceKey);
-
-                for (long cont = tohave - existing; cont > 0; cont--) {
-                    DBCursor cursor = dbsDAO.getCollectionDBCursor(key.getCollection(), key.getSort(), key.getFilter());
-                    cursor.skip(sliceSkips);
-                    DBCursorPoolEntryKey newkey = new DBCursorPoolEntryKey(key.getCollection(), key.getSort(), key.getFilter(), sliceSkips, System.nanoTime());
-                    cache.put(newkey, cursor);
-                    LOGGER.debug("created new cursor in pool: {}", newkey);
-                }
+                populateSlice(shape, sliceKey, tohave);
 
                 slice++;
             }
@@ -175,8 +376,19 @@ public class DBCursorPool {
     }
 
     private void populateCacheRandom(DBCursorPoolEntryKey key) {
-        executor.submit(() -> {
-            Long size = collSizes.getLoading(key).get();
+        QueryShape shape = key.getShape();
+
+        submitPopulation(shape, "random", () -> {
+            Optional<Long> _size = collSizes.get(key.getShape());
+
+            Long size;
+
+            if (_size != null && _size.isPresent()) {
+                size = _size.get();
+            } else {
+                size = dbsDAO.getCollectionSize(key.getCollection(), key.getQuery());
+                collSizes.put(key.getShape(), size);
+            }
 
             int sliceWidht;
             int slices = 0;
@@ -193,53 +405,445 @@ public class DBCursorPool {
             for (int slice = 1; slice < slices; slice++) {
                 int sliceSkips = (int) slice * sliceWidht;
 
-                DBCursorPoolEntryKey sliceKey = new DBCursorPoolEntryKey(key.getCollection(), key.getSort(), key.getFilter(), sliceSkips, -1);
+                DBCursorPoolEntryKey sliceKey = new DBCursorPoolEntryKey(key.getCollection(), key.getQuery(), sliceSkips, -1);
+
+                populateSlice(shape, sliceKey, 1);
+            }
+        });
+    }
+
+    /**
+     * submits a population task unless an equal one is already in flight
+     *
+     * @param shape the query shape
+     * @param slices identifies the slices populated by the task
+     * @param task
+     */
+    private void submitPopulation(QueryShape shape, String slices, Runnable task) {
+        List<Object> taskId = Arrays.asList(shape, slices);
+
+        if (!populatingSlices.add(taskId)) {
+            LOGGER.trace("population of slices {} already in progress", slices);
+            return;
+        }
+
+        try {
+            executor.execute(() -> {
+                long start = System.nanoTime();
+
+                try {
+                    task.run();
+                } catch (Throwable t) {
+                    LOGGER.warn("error populating the db cursor pool", t);
+                } finally {
+                    populatingSlices.remove(taskId);
+                    populationTime.addAndGet(System.nanoTime() - start);
+                    populationTasks.incrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException ree) {
+            populatingSlices.remove(taskId);
+            droppedPopulations.incrementAndGet();
+            LOGGER.debug("db cursor pool population queue is full, dropping population of slices {}", slices);
+        }
+    }
+
+    private void populateSlice(QueryShape shape, DBCursorPoolEntryKey sliceKey, int tohave) {
+        Lock lock = populationLocks.get(shape);
 
-                long existing = getSliceHeight(sliceKey);
+        lock.lock();
 
-                for (long cont = 1 - existing; cont > 0; cont--) {
-                    DBCursor cursor = dbsDAO.getCollectionDBCursor(key.getCollection(), key.getSort(), key.getFilter());
-                    cursor.skip(sliceSkips);
-                    DBCursorPoolEntryKey newkey = new DBCursorPoolEntryKey(key.getCollection(), key.getSort(), key.getFilter(), sliceSkips, System.nanoTime());
-                    cache.put(newkey, cursor);
-                    LOGGER.debug("created new cursor in pool: {}", newkey);
+        try {
+            long existing = getSliceHeight(sliceKey);
+
+            for (long cont = tohave - existing; cont > 0; cont--) {
+                DBCursor cursor = createCursor(sliceKey);
+                DBCursorPoolEntryKey newkey = new DBCursorPoolEntryKey(sliceKey.getCollection(), sliceKey.getQuery(), sliceKey.getSkipped(), System.nanoTime());
+
+                if (!putInPool(newkey, cursor)) {
+                    cursor.close();
+                    LOGGER.debug("db cursor pool is full of cursors with higher priority, not pooling cursor {}", newkey);
+                    break;
                 }
+
+                createdCursors.incrementAndGet();
+                LOGGER.debug("created new cursor in pool: {}", newkey);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param key
+     * @return a cursor skipped as specified by the key
+     */
+    private DBCursor createCursor(DBCursorPoolEntryKey key) {
+        DBCursor cursor = dbsDAO.getCollectionDBCursor(key.getCollection(), key.getQuery());
+        cursor.skip(key.getSkipped());
+        cursor.hasNext(); // this executes the query, so that the db actually skips the documents now
+
+        return cursor;
+    }
+
+    /**
+     * puts the cursor in the pool; if the pool is full, the cursor with the
+     * lowest priority is evicted, unless it has an higher priority than the
+     * new one
+     *
+     * @param key
+     * @param cursor
+     * @return true if the cursor has been put in the pool
+     */
+    private boolean putInPool(DBCursorPoolEntryKey key, DBCursor cursor) {
+        long priority = getPriority(key);
+
+        List<Optional<DBCursor>> evicted = new ArrayList<>();
+
+        poolLock.lock();
+
+        try {
+            while (pooled.size() >= POOL_SIZE) {
+                PooledCursor victim = getLowestPriority();
+
+                if (victim == null) {
+                    break; // all checked out meanwhile
+                }
+
+                if (getPriority(victim.key) > priority) {
+                    return false;
+                }
+
+                // a concurrent get() can check out the victim first
+                if (unpool(victim.key)) {
+                    evicted.add(cache.asMap().remove(victim.key));
+                    evictedCursors.incrementAndGet();
+                } else {
+                    pooled.remove(victim.key, victim);
+                }
+            }
+
+            // the cursor must be in the cache and in pooled before its key is
+            // published in the index, otherwise a concurrent get() could check
+            // out the key and find no cursor
+            cache.put(key, cursor);
+            pooled.put(key, new PooledCursor(key, pooledSeq++));
+
+            index.compute(key.getShape(), (shape, shapeIndex) -> {
+                NavigableSet<DBCursorPoolEntryKey> ret = shapeIndex == null ? new ConcurrentSkipListSet<>(SKIPPED_ORDER) : shapeIndex;
+                ret.add(key);
+                return ret;
+            });
+        } finally {
+            poolLock.unlock();
+        }
+
+        evicted.stream().filter(c -> c != null).forEach(c -> c.ifPresent(v -> v.close()));
+
+        return true;
+    }
+
+    /**
+     * ranks the pooled cursors with their current priorities
+     *
+     * @return the pooled cursor with the lowest priority (the oldest one among
+     * cursors with the same priority) or null if the pool is empty
+     */
+    private PooledCursor getLowestPriority() {
+        PooledCursor ret = null;
+        long retPriority = Long.MAX_VALUE;
+
+        for (PooledCursor candidate : pooled.values()) {
+            long candidatePriority = getPriority(candidate.key);
+
+            if (ret == null || candidatePriority < retPriority
+                    || (candidatePriority == retPriority && EVICTION_ORDER.compare(candidate, ret) < 0)) {
+                ret = candidate;
+                retPriority = candidatePriority;
             }
+        }
+
+        return ret;
+    }
+
+    /**
+     * the priority of a pooled cursor is the number of hits of its slice
+     * multiplied by the seeks it saves
+     *
+     * @param key
+     * @return the priority
+     */
+    private long getPriority(DBCursorPoolEntryKey key) {
+        Optional<AtomicLong> hits = sliceHits.get(Arrays.asList(key.getShape(), key.getSkipped()));
+
+        return hits != null && hits.isPresent() ? hits.get().get() * key.getSkipped() : 0;
+    }
+
+    /**
+     * records the hit of the slice; the priority of its pooled cursors is
+     * updated lazily by the next eviction
+     *
+     * @param shape
+     * @param skipped
+     */
+    private void recordSliceHit(QueryShape shape, int skipped) {
+        sliceHits.asMap().computeIfAbsent(Arrays.asList(shape, skipped), k -> Optional.of(new AtomicLong(0))).get().incrementAndGet();
+    }
+
+    private void evict(DBCursorPoolEntryKey key) {
+        // the removal listener does not close the cursor of a key not pooled anymore
+        if (unpool(key)) {
+            Optional<DBCursor> cursor = cache.asMap().remove(key);
+
+            if (cursor != null) {
+                cursor.ifPresent(c -> c.close());
+            }
+
+            evictedCursors.incrementAndGet();
+        }
+    }
+
+    /**
+     * recreates the cursors of the slices with hits that are older than half
+     * the ttl, so that they are replaced before they expire. the cursors of
+     * the same slice are refreshed by a single population task.
+     */
+    private void keepAlive() {
+        long threshold = TimeUnit.MILLISECONDS.toNanos(TTL / 2);
+        long now = System.nanoTime();
+
+        index.forEach((shape, shapeIndex) -> {
+            // the cursorId of a pooled cursor is its creation time
+            Map<Integer, List<DBCursorPoolEntryKey>> stale = shapeIndex.stream()
+                    .filter(key -> now - key.getCursorId() > threshold)
+                    .filter(key -> getPriority(key) > 0)
+                    .collect(Collectors.groupingBy(DBCursorPoolEntryKey::getSkipped));
+
+            stale.forEach((skipped, keys) -> submitPopulation(shape, "refresh " + skipped, () -> refreshSlice(shape, keys)));
         });
     }
 
+    private void refreshSlice(QueryShape shape, List<DBCursorPoolEntryKey> keys) {
+        Lock lock = populationLocks.get(shape);
+
+        lock.lock();
+
+        try {
+            for (DBCursorPoolEntryKey key : keys) {
+                NavigableSet<DBCursorPoolEntryKey> shapeIndex = index.get(shape);
+
+                if (shapeIndex == null || !shapeIndex.contains(key)) {
+                    continue; // checked out or evicted meanwhile
+                }
+
+                DBCursor cursor = createCursor(key);
+                DBCursorPoolEntryKey newkey = new DBCursorPoolEntryKey(key.getCollection(), key.getQuery(), key.getSkipped(), System.nanoTime());
+
+                evict(key);
+
+                if (putInPool(newkey, cursor)) {
+                    refreshedCursors.incrementAndGet();
+                    LOGGER.debug("refreshed cursor in pool: {}", newkey);
+                } else {
+                    cursor.close();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
     private long getSliceHeight(DBCursorPoolEntryKey key) {
-        long ret = cache.asMap().keySet().stream()
-                .filter(cursorsPoolFilterEq(key))
-                .count();
+        NavigableSet<DBCursorPoolEntryKey> shapeIndex = index.get(key.getShape());
+
+        long ret;
+
+        if (shapeIndex == null) {
+            ret = 0;
+        } else {
+            ret = getSlice(shapeIndex, key.getSkipped()).size();
+        }
 
         LOGGER.trace("cursor in pool with skips {} are {}", key.getSkipped(), ret);
 
         return ret;
     }
 
-    private Predicate<? super DBCursorPoolEntryKey> cursorsPoolFilterEq(DBCursorPoolEntryKey key) {
-        return k
-                -> Objects.equals(k.getCollection().getDB().getName(), key.getCollection().getDB().getName())
-                && Objects.equals(k.getCollection().getName(), key.getCollection().getName())
-                && Arrays.equals(k.getFilter() != null ? k.getFilter().toArray() : null, key.getFilter() != null ? key.getFilter().toArray() : null)
-                && Arrays.equals(k.getSort() != null ? k.getSort().toArray() : null, key.getSort() != null ? key.getSort().toArray() : null)
-                && k.getSkipped() == key.getSkipped();
+    /**
+     * @param shapeIndex
+     * @param skipped
+     * @return the keys of the pooled cursors with the given skipped
+     */
+    private NavigableSet<DBCursorPoolEntryKey> getSlice(NavigableSet<DBCursorPoolEntryKey> shapeIndex, int skipped) {
+        DBCursorPoolEntryKey first = shapeIndex.isEmpty() ? null : shapeIndex.first();
+
+        if (first == null) {
+            return shapeIndex;
+        }
+
+        DBCursorPoolEntryKey from = new DBCursorPoolEntryKey(first.getCollection(), first.getQuery(), skipped, Long.MIN_VALUE);
+        DBCursorPoolEntryKey to = new DBCursorPoolEntryKey(first.getCollection(), first.getQuery(), skipped, Long.MAX_VALUE);
+
+        return shapeIndex.subSet(from, true, to, true);
     }
-    
-    private Predicate<? super DBCursorPoolEntryKey> cursorsPoolFilterGt(DBCursorPoolEntryKey key) {
-        return k
-                -> Objects.equals(k.getCollection().getDB().getName(), key.getCollection().getDB().getName())
-                && Objects.equals(k.getCollection().getName(), key.getCollection().getName())
-                && Arrays.equals(k.getFilter() != null ? k.getFilter().toArray() : null, key.getFilter() != null ? key.getFilter().toArray() : null)
-                && Arrays.equals(k.getSort() != null ? k.getSort().toArray() : null, key.getSort() != null ? key.getSort().toArray() : null)
-                && k.getSkipped() < key.getSkipped();
+
+    /**
+     * removes the key from the index and from the pooled cursors; only one
+     * thread can remove a key from the index, so only one unpools it
+     *
+     * @param key
+     * @return true if the key was pooled
+     */
+    private boolean unpool(DBCursorPoolEntryKey key) {
+        QueryShape shape = key.getShape();
+
+        NavigableSet<DBCursorPoolEntryKey> shapeIndex = index.get(shape);
+
+        boolean ret = shapeIndex != null && shapeIndex.remove(key);
+
+        // drop the index of a query shape with no more cursors
+        index.computeIfPresent(shape, (k, v) -> v.isEmpty() ? null : v);
+
+        if (ret) {
+            pooled.remove(key);
+        }
+
+        return ret;
+    }
+
+    /**
+     * @return the number of times the AUTO policy detected each access pattern
+     */
+    public Map<String, Long> getAutoPolicyDecisions() {
+        TreeMap<String, Long> ret = new TreeMap<>();
+
+        autoDecisions.forEach((pattern, count) -> ret.put(pattern.name(), count.get()));
+
+        return ret;
+    }
+
+    /**
+     * @return the seeks saved reusing pooled cursors
+     */
+    public long getSavedSeeks() {
+        return savedSeeks.get();
+    }
+
+    /**
+     * @return the seeks saved reusing pooled cursors with the AUTO policy
+     */
+    public long getAutoSavedSeeks() {
+        return autoSavedSeeks.get();
+    }
+
+    /**
+     * @return the number of population tasks dropped since the queue was full
+     */
+    public long getDroppedPopulations() {
+        return droppedPopulations.get();
+    }
+
+    /**
+     * @return the number of requests that reused a pooled cursor
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of requests that did not find a pooled cursor to
+     * reuse
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return the number of cursors created by the pool population
+     */
+    public long getCreatedCursors() {
+        return createdCursors.get();
+    }
+
+    /**
+     * @return the number of pooled cursors evicted because of the ttl or the
+     * pool size
+     */
+    public long getEvictedCursors() {
+        return evictedCursors.get();
+    }
+
+    /**
+     * @return the number of cursors recreated by the keep-alive
+     */
+    public long getRefreshedCursors() {
+        return refreshedCursors.get();
+    }
+
+    /**
+     * @return the number of population tasks waiting in the queue
+     */
+    public int getPopulationQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * @return the number of population tasks executed
+     */
+    public long getPopulationTasks() {
+        return populationTasks.get();
+    }
+
+    /**
+     * @return the average execution time of the population tasks in
+     * milliseconds
+     */
+    public double getAveragePopulationTime() {
+        long tasks = populationTasks.get();
+
+        return tasks == 0 ? 0 : populationTime.get() / 1_000_000d / tasks;
+    }
+
+    /**
+     * @return the number of pooled cursors
+     */
+    public int getLiveCursors() {
+        return pooled.size();
+    }
+
+    /**
+     * @return for each query shape, the number of pooled cursors per skipped
+     * documents
+     */
+    public Map<String, Map<Integer, Long>> getLiveCursorsByShape() {
+        TreeMap<String, Map<Integer, Long>> ret = new TreeMap<>();
+
+        index.forEach((shape, shapeIndex) -> {
+            ret.put(shape.toString(), new TreeMap<>(shapeIndex.stream()
+                    .collect(Collectors.groupingBy(DBCursorPoolEntryKey::getSkipped, Collectors.counting()))));
+        });
+
+        return ret;
     }
 
     private TreeMap<String, Long> getCacheSizes() {
         return new TreeMap<>(cache.asMap().keySet().stream().collect(Collectors.groupingBy(DBCursorPoolEntryKey::getCacheStatsGroup, Collectors.counting())));
     }
 
+    /**
+     * a pooled cursor; seq is the order in which it was pooled
+     */
+    private static class PooledCursor {
+
+        private final DBCursorPoolEntryKey key;
+        private final long seq;
+
+        PooledCursor(DBCursorPoolEntryKey key, long seq) {
+            this.key = key;
+            this.seq = seq;
+        }
+    }
+
     private static class DBCursorPoolSingletonHolder {
 
         private static final DBCursorPool INSTANCE = new DBCursorPool(new DbsDAO());
@@ -18,7 +18,6 @@
 package org.restheart.db;
 
 import com.mongodb.DBCollection;
-import java.util.Deque;
 import java.util.Formatter;
 import java.util.Objects;
 
@@ -28,15 +27,13 @@ import java.util.Objects;
  */
 public class DBCursorPoolEntryKey {
     private final DBCollection collection;
-    private final Deque<String> sort;
-    private final Deque<String> filter;
+    private final CompiledQuery query;
     private final int skipped;
     private final long cursorId;
 
-    public DBCursorPoolEntryKey(DBCollection collection, Deque<String> sort, Deque<String> filter, int skipped, long cursorId) {
+    public DBCursorPoolEntryKey(DBCollection collection, CompiledQuery query, int skipped, long cursorId) {
         this.collection = collection;
-        this.filter = filter;
-        this.sort = sort;
+        this.query = query;
         this.skipped = skipped;
         this.cursorId = cursorId;
     }
@@ -49,19 +46,19 @@ public class DBCursorPoolEntryKey {
     }
 
     /**
-     * @return the filter
+     * @return the compiled query
      */
-    public Deque<String> getFilter() {
-        return filter;
+    public CompiledQuery getQuery() {
+        return query;
     }
-
+    
     /**
-     * @return the sort
+     * @return the query shape
      */
-    public Deque<String> getSort() {
-        return sort;
+    public QueryShape getShape() {
+        return query.getShape();
     }
-    
+
     /**
      * @return the skipped
      */
@@ -78,7 +75,7 @@ public class DBCursorPoolEntryKey {
     
     @Override
     public int hashCode() {
-        return Objects.hash(collection, filter, sort, skipped, cursorId);
+        return Objects.hash(getShape(), skipped, cursorId);
     }
 
     @Override
@@ -90,13 +87,7 @@ public class DBCursorPoolEntryKey {
             return false;
         }
         final DBCursorPoolEntryKey other = (DBCursorPoolEntryKey) obj;
-        if (!Objects.equals(this.collection, other.collection)) {
-            return false;
-        }
-        if (!Objects.equals(this.filter, other.filter)) {
-            return false;
-        }
-        if (!Objects.equals(this.sort, other.sort)) {
+        if (!Objects.equals(this.getShape(), other.getShape())) {
             return false;
         }
         if (!Objects.equals(this.skipped, other.skipped)) {
@@ -111,8 +102,9 @@ public class DBCursorPoolEntryKey {
     @Override
     public String toString() {
         return "{ collection: " + collection.getFullName() + ", " +
-                "filter: " + (filter == null ? "null": filter.toString()) + ", " + 
-                "sort: " + (sort == null ? "null": sort.toString()) + ", "  +
+                "filter: " + getShape().getFilter() + ", " + 
+                "sort: " + getShape().getSort() + ", "  +
+                "keys: " + getShape().getKeys() + ", "  +
                 "skipped: " + skipped + ", "  +
                 "cursorId: " + cursorId + "}"; 
     }
@@ -120,6 +112,6 @@ public class DBCursorPoolEntryKey {
     String getCacheStatsGroup() {
         Formatter f = new Formatter();
         
-        return (filter == null ? "no filter" : filter.toString()) + " - " + (sort == null ? "no sort_by" : sort.toString()) + " - " + f.format("%10d", getSkipped());
+        return getShape().getFilter() + " - " + getShape().getSort() + " - " + f.format("%10d", getSkipped());
     }
 }
\ No newline at end of file
@@ -0,0 +1,89 @@
+/*
+ * RESTHeart - the data REST API server
+ * Copyright (C) 2014 - 2015 SoftInstigate Srl
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.restheart.db;
+
+/**
+ * Exposes the db cursor pool statistics via JMX with the object name
+ * org.restheart:type=DBCursorPool
+ *
+ * @author Andrea Di Cesare <andrea@softinstigate.com>
+ */
+public class DBCursorPoolStats implements DBCursorPoolStatsMBean {
+
+    public static final String OBJECT_NAME = "org.restheart:type=DBCursorPool";
+
+    @Override
+    public long getHits() {
+        return DBCursorPool.getInstance().getHits();
+    }
+
+    @Override
+    public long getMisses() {
+        return DBCursorPool.getInstance().getMisses();
+    }
+
+    @Override
+    public long getSavedSeeks() {
+        return DBCursorPool.getInstance().getSavedSeeks();
+    }
+
+    @Override
+    public long getAutoSavedSeeks() {
+        return DBCursorPool.getInstance().getAutoSavedSeeks();
+    }
+
+    @Override
+    public long getCreatedCursors() {
+        return DBCursorPool.getInstance().getCreatedCursors();
+    }
+
+    @Override
+    public long getEvictedCursors() {
+        return DBCursorPool.getInstance().getEvictedCursors();
+    }
+
+    @Override
+    public long getRefreshedCursors() {
+        return DBCursorPool.getInstance().getRefreshedCursors();
+    }
+
+    @Override
+    public int getLiveCursors() {
+        return DBCursorPool.getInstance().getLiveCursors();
+    }
+
+    @Override
+    public int getPopulationQueueSize() {
+        return DBCursorPool.getInstance().getPopulationQueueSize();
+    }
+
+    @Override
+    public long getPopulationTasks() {
+        return DBCursorPool.getInstance().getPopulationTasks();
+    }
+
+    @Override
+    public long getDroppedPopulations() {
+        return DBCursorPool.getInstance().getDroppedPopulations();
+    }
+
+    @Override
+    public double getAveragePopulationTime() {
+        return DBCursorPool.getInstance().getAveragePopulationTime();
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * RESTHeart - the data REST API server
+ * Copyright (C) 2014 - 2015 SoftInstigate Srl
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.restheart.db;
+
+/**
+ * The JMX interface of the db cursor pool statistics.
+ *
+ * @author Andrea Di Cesare <andrea@softinstigate.com>
+ */
+public interface DBCursorPoolStatsMBean {
+
+    long getHits();
+
+    long getMisses();
+
+    long getSavedSeeks();
+
+    long getAutoSavedSeeks();
+
+    long getCreatedCursors();
+
+    long getEvictedCursors();
+
+    long getRefreshedCursors();
+
+    int getLiveCursors();
+
+    int getPopulationQueueSize();
+
+    long getPopulationTasks();
+
+    long getDroppedPopulations();
+
+    double getAveragePopulationTime();
+}
@@ -22,12 +22,11 @@ import com.mongodb.DB;
 import com.mongodb.DBCollection;
 import com.mongodb.DBCursor;
 import com.mongodb.DBObject;
-import com.mongodb.util.JSONParseException;
 import io.undertow.server.HttpServerExchange;
 import java.util.ArrayList;
-import java.util.Deque;
 import java.util.List;
 import org.bson.types.ObjectId;
+import org.restheart.hal.metadata.CountStrategy;
 import org.restheart.handlers.IllegalQueryParamenterException;
 
 /**
@@ -77,13 +76,25 @@ public interface Database {
      * @param collection
      * @param page
      * @param pagesize
-     * @param sortBy
-     * @param filter
+     * @param query the compiled filter and sort
      * @param cursorAllocationPolicy
      * @param detectObjectids
      * @return Collection Data as ArrayList of DBObject
      */
-    ArrayList<DBObject> getCollectionData(DBCollection collection, int page, int pagesize, Deque<String> sortBy, Deque<String> filter, DBCursorPool.EAGER_CURSOR_ALLOCATION_POLICY cursorAllocationPolicy);
+    ArrayList<DBObject> getCollectionData(DBCollection collection, int page, int pagesize, CompiledQuery query, DBCursorPool.EAGER_CURSOR_ALLOCATION_POLICY cursorAllocationPolicy);
+
+    /**
+     *
+     * @param collection
+     * @param pagesize
+     * @param query the compiled filter and sort
+     * @param continuationToken the continuation token of the keyset
+     * pagination, null for the first page
+     * @return Collection Data as ArrayList of DBObject
+     * @throws InvalidContinuationTokenException if the continuation token is
+     * invalid
+     */
+    ArrayList<DBObject> getCollectionDataAfter(DBCollection collection, int pagesize, CompiledQuery query, String continuationToken) throws InvalidContinuationTokenException;
 
     /**
      *
@@ -97,11 +108,21 @@ public interface Database {
     /**
      *
      * @param collection
-     * @param filters
+     * @param query the compiled filter and sort
      * @return the number of documents in the given collection (taking into
      * account the filters in case)
      */
-    long getCollectionSize(DBCollection collection, Deque<String> filters);
+    long getCollectionSize(DBCollection collection, CompiledQuery query);
+
+    /**
+     *
+     * @param collection
+     * @param query the compiled filter and sort
+     * @param strategy the count strategy
+     * @return the number of documents in the given collection (taking into
+     * account the filters in case) computed with the given strategy
+     */
+    long getCollectionSize(DBCollection collection, CompiledQuery query, CountStrategy.TYPE strategy);
 
     /**
      *
@@ -204,14 +225,10 @@ public interface Database {
      * Returs the DBCursor of the collection applying sorting and filtering.
      *
      * @param collection the mongodb DBCollection object
-     * @param sortBy the Deque collection of fields to use for sorting (prepend
-     * field name with - for descending sorting)
-     * @param filters the filters to apply. it is a Deque collection of mongodb
-     * query conditions.
+     * @param query the compiled filter and sort
      * @return
-     * @throws JSONParseException
      */
-    DBCursor getCollectionDBCursor(DBCollection collection, Deque<String> sortBy, Deque<String> filters) throws JSONParseException;
+    DBCursor getCollectionDBCursor(DBCollection collection, CompiledQuery query);
 
     /**
      *
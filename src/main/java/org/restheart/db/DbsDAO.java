@@ -24,14 +24,15 @@ import com.mongodb.DBCursor;
 import com.mongodb.DBObject;
 import com.mongodb.MongoClient;
 import org.restheart.utils.HttpStatus;
+import org.restheart.hal.metadata.CountStrategy;
 import org.restheart.handlers.IllegalQueryParamenterException;
 import org.restheart.handlers.RequestContext;
 import org.restheart.handlers.injectors.LocalCachesSingleton;
+import org.restheart.hal.metadata.CollectionProps;
 import org.restheart.utils.ResponseHelper;
 import io.undertow.server.HttpServerExchange;
 import java.time.Instant;
 import java.util.ArrayList;
-import java.util.Deque;
 import java.util.List;
 import java.util.stream.Collectors;
 import org.bson.types.ObjectId;
@@ -221,8 +222,10 @@ public class DbsDAO implements Database {
                     DBObject collProperties;
 
                     if (LocalCachesSingleton.isEnabled()) {
-                        collProperties = LocalCachesSingleton.getInstance()
+                        CollectionProps cached = LocalCachesSingleton.getInstance()
                         .getCollectionProps(dbName, collName);
+
+                        collProperties = cached == null ? null : cached.getProps();
                     } else {
                         collProperties = collectionDAO.getCollectionProps(dbName, collName, true);
                     }
@@ -343,6 +346,7 @@ public class DbsDAO implements Database {
             return HttpStatus.SC_PRECONDITION_FAILED;
         } else {
             db.dropDatabase();
+            CollectionVersions.getInstance().incrementDb(dbName);
             return HttpStatus.SC_NO_CONTENT;
         }
     }
@@ -359,22 +363,40 @@ public class DbsDAO implements Database {
 
     @Override
     public int upsertCollection(String dbName, String collName, DBObject content, ObjectId etag, boolean updating, boolean patching) {
-        return collectionDAO.upsertCollection(dbName, collName, content, etag, updating, patching);
+        try {
+            return collectionDAO.upsertCollection(dbName, collName, content, etag, updating, patching);
+        } finally {
+            CollectionVersions.getInstance().increment(dbName, collName);
+        }
     }
 
     @Override
     public int deleteCollection(String dbName, String collectionName, ObjectId etag) {
-        return collectionDAO.deleteCollection(dbName, collectionName, etag);
+        try {
+            return collectionDAO.deleteCollection(dbName, collectionName, etag);
+        } finally {
+            CollectionVersions.getInstance().increment(dbName, collectionName);
+        }
+    }
+
+    @Override
+    public long getCollectionSize(DBCollection coll, CompiledQuery query) {
+        return collectionDAO.getCollectionSize(coll, query);
+    }
+
+    @Override
+    public long getCollectionSize(DBCollection coll, CompiledQuery query, CountStrategy.TYPE strategy) {
+        return collectionDAO.getCollectionSize(coll, query, strategy);
     }
 
     @Override
-    public long getCollectionSize(DBCollection coll, Deque<String> filters) {
-        return collectionDAO.getCollectionSize(coll, filters);
+    public ArrayList<DBObject> getCollectionData(DBCollection coll, int page, int pagesize, CompiledQuery query, DBCursorPool.EAGER_CURSOR_ALLOCATION_POLICY cursorAllocationPolicy) {
+        return collectionDAO.getCollectionData(coll, page, pagesize, query, cursorAllocationPolicy);
     }
 
     @Override
-    public ArrayList<DBObject> getCollectionData(DBCollection coll, int page, int pagesize, Deque<String> sortBy, Deque<String> filter, DBCursorPool.EAGER_CURSOR_ALLOCATION_POLICY cursorAllocationPolicy) {
-        return collectionDAO.getCollectionData(coll, page, pagesize, sortBy, filter, cursorAllocationPolicy);
+    public ArrayList<DBObject> getCollectionDataAfter(DBCollection coll, int pagesize, CompiledQuery query, String continuationToken) throws InvalidContinuationTokenException {
+        return collectionDAO.getCollectionDataAfter(coll, pagesize, query, continuationToken);
     }
 
     @Override
@@ -393,8 +415,8 @@ public class DbsDAO implements Database {
     }
 
     @Override
-    public DBCursor getCollectionDBCursor(DBCollection collection, Deque<String> sortBy, Deque<String> filters) {
-        return collectionDAO.getCollectionDBCursor(collection, sortBy, filters);
+    public DBCursor getCollectionDBCursor(DBCollection collection, CompiledQuery query) {
+        return collectionDAO.getCollectionDBCursor(collection, query);
     }
 
     @Override
@@ -70,6 +70,7 @@ public class DocumentDAO implements Repository {
 
         if (patching) {
             DBObject oldDocument = coll.findAndModify(idQuery, null, null, false, new BasicDBObject("$set", content), false, false);
+            CollectionVersions.getInstance().increment(dbName, collName);
 
             if (oldDocument == null) {
                 return HttpStatus.SC_NOT_FOUND;
@@ -83,6 +84,7 @@ public class DocumentDAO implements Repository {
             // it is not possible to do it with a single update
             // (even using $setOnInsert update because we'll need to use the $set operator for other data and this would make it a partial update (patch semantic) 
             DBObject oldDocument = coll.findAndModify(idQuery, null, null, false, content, false, true);
+            CollectionVersions.getInstance().increment(dbName, collName);
 
             if (oldDocument != null) { // upsertDocument
                 // check the old etag (in case restore the old document)
@@ -124,6 +126,7 @@ public class DocumentDAO implements Repository {
             content.put("_id", documentId);
 
             coll.insert(content);
+            CollectionVersions.getInstance().increment(dbName, collName);
 
             return HttpStatus.SC_CREATED;
         }
@@ -131,6 +134,7 @@ public class DocumentDAO implements Repository {
         BasicDBObject idQuery = new BasicDBObject("_id", documentId);
 
         DBObject oldDocument = coll.findAndModify(idQuery, null, null, false, content, false, true);
+        CollectionVersions.getInstance().increment(dbName, collName);
 
         if (oldDocument != null) {  // upsertDocument
             // check the old etag (in case restore the old document version)
@@ -157,6 +161,7 @@ public class DocumentDAO implements Repository {
         BasicDBObject idQuery = new BasicDBObject("_id", documentId);
 
         DBObject oldDocument = coll.findAndModify(idQuery, null, null, true, null, false, false);
+        CollectionVersions.getInstance().increment(dbName, collName);
 
         if (oldDocument == null) {
             return HttpStatus.SC_NOT_FOUND;
@@ -179,6 +184,7 @@ public class DocumentDAO implements Repository {
 
         if (requestEtag == null) {
             coll.save(oldDocument);
+            CollectionVersions.getInstance().increment(coll.getDB().getName(), coll.getName());
             return HttpStatus.SC_CONFLICT;
         }
 
@@ -188,6 +194,7 @@ public class DocumentDAO implements Repository {
             // oopps, we need to restore old document
             // they call it optimistic lock strategy
             coll.save(oldDocument);
+            CollectionVersions.getInstance().increment(coll.getDB().getName(), coll.getName());
             return HttpStatus.SC_PRECONDITION_FAILED;
         }
     }
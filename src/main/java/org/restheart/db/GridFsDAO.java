@@ -82,6 +82,8 @@ public class GridFsDAO implements GridFsRepository {
 
         gfsFile.save();
 
+        CollectionVersions.getInstance().increment(dbName, bucketName);
+
         return HttpStatus.SC_CREATED;
     }
 
@@ -97,6 +99,8 @@ public class GridFsDAO implements GridFsRepository {
             if (code == HttpStatus.SC_NO_CONTENT) {
                 // delete file
                 gridfs.remove(new BasicDBObject("_id", fileId));
+
+                CollectionVersions.getInstance().increment(dbName, bucketName);
             }
 
             return code;
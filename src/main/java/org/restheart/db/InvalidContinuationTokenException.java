@@ -0,0 +1,34 @@
+/*
+ * RESTHeart - the data REST API server
+ * Copyright (C) SoftInstigate Srl
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.restheart.db;
+
+/**
+ * thrown when the continuation token of a keyset pagination request can not
+ * be decoded or does not match the sort_by parameter
+ *
+ * @author Andrea Di Cesare <andrea@softinstigate.com>
+ */
+public class InvalidContinuationTokenException extends IllegalArgumentException {
+    public InvalidContinuationTokenException(String message) {
+        super(message);
+    }
+    
+    public InvalidContinuationTokenException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
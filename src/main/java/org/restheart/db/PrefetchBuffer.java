@@ -0,0 +1,342 @@
+/*
+ * RESTHeart - the data REST API server
+ * Copyright (C) 2014 - 2015 SoftInstigate Srl
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.restheart.db;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.bson.BasicBSONEncoder;
+import org.bson.LazyBSONObject;
+import org.restheart.Bootstrapper;
+import org.restheart.cache.Cache;
+import org.restheart.cache.CacheFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Buffers the next page of collection requests. After a page is served, the
+ * documents of the following one are read asynchronously from the same db
+ * cursor, so that a subsequent request of it is served without querying the
+ * db.
+ *
+ * The buffer is bounded by the estimated BSON size of the documents; a
+ * buffered page is valid only if the collection version did not change since
+ * it was read (see CollectionVersions).
+ *
+ * @author Andrea Di Cesare <andrea@softinstigate.com>
+ */
+public class PrefetchBuffer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PrefetchBuffer.class);
+
+    private static final boolean ENABLED = Bootstrapper.getConf().isPrefetchEnabled();
+    private static final long MAX_SIZE = Bootstrapper.getConf().getPrefetchBufferSize() * 1024l * 1024l; // in bytes
+
+    private static final long TTL = 60 * 1000; // in milliseconds, less than the db cursor timeout
+
+    private static final int THREADS = Bootstrapper.getConf().getPrefetchThreads();
+    private static final int QUEUE_SIZE = Bootstrapper.getConf().getPrefetchQueueSize();
+
+    private final Cache<PageKey, PrefetchedPage> pages;
+
+    private final ThreadPoolExecutor executor;
+
+    private final AtomicLong size = new AtomicLong(0);
+    private final AtomicLong hits = new AtomicLong(0);
+    private final AtomicLong misses = new AtomicLong(0);
+    private final AtomicLong prefetchedPages = new AtomicLong(0);
+    private final AtomicLong droppedPrefetches = new AtomicLong(0);
+
+    public static PrefetchBuffer getInstance() {
+        return PrefetchBufferSingletonHolder.INSTANCE;
+    }
+
+    private PrefetchBuffer() {
+        pages = CacheFactory.createLocalWeightedCache(MAX_SIZE, PrefetchedPage::getWeight, Cache.EXPIRE_POLICY.AFTER_WRITE, TTL,
+                (Map.Entry<PageKey, Optional<PrefetchedPage>> entry) -> {
+                    if (entry != null && entry.getValue() != null && entry.getValue().isPresent()) {
+                        PrefetchedPage page = entry.getValue().get();
+
+                        size.addAndGet(-page.getWeight());
+
+                        // close the cursor only if the page has not been taken
+                        if (page.take()) {
+                            page.closeCursor();
+                        }
+                    }
+                });
+
+        executor = new ThreadPoolExecutor(THREADS, THREADS,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_SIZE),
+                new ThreadFactoryBuilder().setNameFormat("prefetch-buffer-%d").setDaemon(true).build());
+
+        if (ENABLED && LOGGER.isDebugEnabled()) {
+            // print stats every 1 minute
+            Executors.newSingleThreadScheduledExecutor().scheduleAtFixedRate(() -> {
+                LOGGER.debug("prefetch buffer size: {} bytes, pages: {}, hits: {}, misses: {}", getSize(), getPages(), getHits(), getMisses());
+            }, 1, 1, TimeUnit.MINUTES);
+        }
+    }
+
+    /**
+     * @return true if the prefetch is enabled
+     */
+    public boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Returns the page if it was prefetched and the collection did not change
+     * since. The following page is prefetched in turn.
+     *
+     * @param shape
+     * @param page
+     * @param pagesize
+     * @param version the collection version read before this call
+     * @return the page documents or null if not buffered
+     */
+    List<DBObject> get(QueryShape shape, int page, int pagesize, long version) {
+        PageKey key = new PageKey(shape, page, pagesize);
+
+        Optional<PrefetchedPage> _prefetched = pages.get(key);
+
+        // taking the page before invalidating it keeps the removal listener from closing its cursor
+        if (_prefetched == null || !_prefetched.isPresent() || !_prefetched.get().take()) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        PrefetchedPage prefetched = _prefetched.get();
+
+        pages.invalidate(key);
+
+        if (prefetched.getVersion() != version) {
+            LOGGER.debug("discarding prefetched page {} of {}, the collection has been modified", page, shape);
+            prefetched.closeCursor();
+            misses.incrementAndGet();
+            return null;
+        }
+
+        hits.incrementAndGet();
+
+        if (prefetched.getCursor() != null) {
+            prefetch(shape, page + 1, pagesize, prefetched.getVersion(), prefetched.getCursor());
+        }
+
+        return prefetched.getData();
+    }
+
+    /**
+     * asynchronously reads the page from the cursor; the cursor is closed when
+     * the page is discarded or evicted
+     *
+     * @param shape
+     * @param page
+     * @param pagesize
+     * @param version the collection version read before querying the cursor
+     * @param cursor the cursor positioned at the first document of the page
+     */
+    void prefetch(QueryShape shape, int page, int pagesize, long version, DBCursor cursor) {
+        try {
+            executor.execute(() -> {
+                try {
+                    ArrayList<DBObject> data = new ArrayList<>();
+                    BasicBSONEncoder encoder = new BasicBSONEncoder();
+                    long weight = 0;
+
+                    while (data.size() < pagesize && cursor.hasNext()) {
+                        DBObject document = cursor.next();
+                        // lazy documents already know their bson size, no need to encode them
+                        weight += document instanceof LazyBSONObject ? ((LazyBSONObject) document).getBSONSize() : encoder.encode(document).length;
+                        data.add(document);
+                    }
+
+                    boolean exhausted = data.size() < pagesize;
+
+                    if (exhausted) {
+                        cursor.close();
+                    }
+
+                    PrefetchedPage prefetched = new PrefetchedPage(data, exhausted ? null : cursor, version, (int) Math.min(weight, Integer.MAX_VALUE));
+
+                    size.addAndGet(prefetched.getWeight());
+                    pages.put(new PageKey(shape, page, pagesize), prefetched);
+                    prefetchedPages.incrementAndGet();
+
+                    LOGGER.trace("prefetched page {} of {}, {} bytes", page, shape, weight);
+                } catch (Throwable t) {
+                    LOGGER.debug("error prefetching page {} of {}", page, shape, t);
+                    cursor.close();
+                }
+            });
+        } catch (RejectedExecutionException ree) {
+            droppedPrefetches.incrementAndGet();
+            LOGGER.debug("prefetch queue is full, not prefetching page {} of {}", page, shape);
+            cursor.close();
+        }
+    }
+
+    /**
+     * @return the estimated size in bytes of the buffered documents
+     */
+    public long getSize() {
+        return size.get();
+    }
+
+    /**
+     * @return the number of requests served from the buffer
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of requests not found in the buffer
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return the number of buffered pages
+     */
+    public long getPages() {
+        return pages.asMap().size();
+    }
+
+    /**
+     * @return the number of pages read in background
+     */
+    public long getPrefetchedPages() {
+        return prefetchedPages.get();
+    }
+
+    /**
+     * @return the number of pages not prefetched since the queue was full
+     */
+    public long getDroppedPrefetches() {
+        return droppedPrefetches.get();
+    }
+
+    /**
+     * @return the number of prefetch tasks waiting in the queue
+     */
+    public int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * @return the ratio of requests served from the buffer
+     */
+    public double getHitRate() {
+        long _hits = hits.get();
+        long total = _hits + misses.get();
+
+        return total == 0 ? 0 : (double) _hits / total;
+    }
+
+    private static class PageKey {
+        private final QueryShape shape;
+        private final int page;
+        private final int pagesize;
+
+        PageKey(QueryShape shape, int page, int pagesize) {
+            this.shape = shape;
+            this.page = page;
+            this.pagesize = pagesize;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(shape, page, pagesize);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+            final PageKey other = (PageKey) obj;
+            return page == other.page
+                    && pagesize == other.pagesize
+                    && Objects.equals(shape, other.shape);
+        }
+    }
+
+    private static class PrefetchedPage {
+        private final List<DBObject> data;
+        private final DBCursor cursor;
+        private final long version;
+        private final int weight;
+        private final AtomicBoolean taken = new AtomicBoolean(false);
+
+        PrefetchedPage(List<DBObject> data, DBCursor cursor, long version, int weight) {
+            this.data = data;
+            this.cursor = cursor;
+            this.version = version;
+            this.weight = weight;
+        }
+
+        /**
+         * @return true only for the first caller
+         */
+        boolean take() {
+            return taken.compareAndSet(false, true);
+        }
+
+        void closeCursor() {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+
+        List<DBObject> getData() {
+            return data;
+        }
+
+        DBCursor getCursor() {
+            return cursor;
+        }
+
+        long getVersion() {
+            return version;
+        }
+
+        int getWeight() {
+            return weight;
+        }
+    }
+
+    private static class PrefetchBufferSingletonHolder {
+
+        private static final PrefetchBuffer INSTANCE = new PrefetchBuffer();
+    };
+}
@@ -0,0 +1,170 @@
+/*
+ * RESTHeart - the data REST API server
+ * Copyright (C) 2014 - 2015 SoftInstigate Srl
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.restheart.db;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import com.mongodb.util.JSON;
+import java.util.Objects;
+import java.util.TreeSet;
+
+/**
+ * The canonical, immutable shape of a collection query: db, collection, filter,
+ * sort and projection. Logically identical queries have equal shapes: the filter is
+ * serialized with the keys of the query document and of the operator
+ * documents in alphabetical order (the order of the keys of other embedded
+ * documents is significant for mongodb and is kept), regardless of the
+ * formatting of the filter query parameters.
+ *
+ * It is the key of the cursor pool and of the caches of query results.
+ *
+ * @author Andrea Di Cesare <andrea@softinstigate.com>
+ */
+public final class QueryShape {
+    private final String dbName;
+    private final String collName;
+    private final String filter;
+    private final String sort;
+    private final String keys;
+    private final int hash;
+
+    /**
+     *
+     * @param dbName
+     * @param collName
+     * @param filter the filter query, possibly merging several filter query
+     * parameters
+     * @param sort the normalized sort, as returned by
+     * DAOUtils.getSortObject()
+     */
+    public QueryShape(String dbName, String collName, DBObject filter, DBObject sort) {
+        this(dbName, collName, filter, sort, null);
+    }
+
+    /**
+     *
+     * @param dbName
+     * @param collName
+     * @param filter the filter query, possibly merging several filter query
+     * parameters
+     * @param sort the normalized sort, as returned by
+     * DAOUtils.getSortObject()
+     * @param keys the projection or null to return the whole documents
+     */
+    public QueryShape(String dbName, String collName, DBObject filter, DBObject sort, DBObject keys) {
+        this.dbName = dbName;
+        this.collName = collName;
+        this.filter = JSON.serialize(canonicalize(filter, true));
+        this.sort = JSON.serialize(sort);
+        this.keys = keys == null ? null : JSON.serialize(canonicalize(keys, true));
+        this.hash = Objects.hash(dbName, collName, this.filter, this.sort, this.keys);
+    }
+
+    private static Object canonicalize(Object value, boolean sortKeys) {
+        if (value instanceof BasicDBList) {
+            BasicDBList ret = new BasicDBList();
+
+            ((BasicDBList) value).stream().forEach(element -> ret.add(canonicalize(element, sortKeys)));
+
+            return ret;
+        } else if (value instanceof DBObject) {
+            DBObject document = (DBObject) value;
+
+            BasicDBObject ret = new BasicDBObject();
+
+            boolean operators = document.keySet().stream().allMatch(k -> k.startsWith("$"));
+
+            Iterable<String> keys = sortKeys || operators ? new TreeSet<>(document.keySet()) : document.keySet();
+
+            // the conditions of the logical operators ($and, $or, $nor) are query documents
+            keys.forEach(k -> ret.put(k, canonicalize(document.get(k), isQueryDocument(k))));
+
+            return ret;
+        } else {
+            return value;
+        }
+    }
+
+    private static boolean isQueryDocument(String key) {
+        return key.equals("$and") || key.equals("$or") || key.equals("$nor") || key.equals("$not") || key.equals("$elemMatch");
+    }
+
+    /**
+     * @return the dbName
+     */
+    public String getDbName() {
+        return dbName;
+    }
+
+    /**
+     * @return the collName
+     */
+    public String getCollName() {
+        return collName;
+    }
+
+    /**
+     * @return the canonical filter
+     */
+    public String getFilter() {
+        return filter;
+    }
+
+    /**
+     * @return the canonical sort
+     */
+    public String getSort() {
+        return sort;
+    }
+
+    /**
+     * @return the canonical projection or null if the whole documents are
+     * returned
+     */
+    public String getKeys() {
+        return keys;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        final QueryShape other = (QueryShape) obj;
+        return hash == other.hash
+                && Objects.equals(dbName, other.dbName)
+                && Objects.equals(collName, other.collName)
+                && Objects.equals(filter, other.filter)
+                && Objects.equals(sort, other.sort)
+                && Objects.equals(keys, other.keys);
+    }
+
+    @Override
+    public String toString() {
+        return "{ db: " + dbName + ", collection: " + collName + ", filter: " + filter + ", sort: " + sort + ", keys: " + keys + "}";
+    }
+}
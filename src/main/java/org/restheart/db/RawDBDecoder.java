@@ -0,0 +1,66 @@
+/*
+ * RESTHeart - the data REST API server
+ * Copyright (C) 2014 - 2015 SoftInstigate Srl
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.restheart.db;
+
+import com.mongodb.DBCallback;
+import com.mongodb.DBCollection;
+import com.mongodb.DBDecoder;
+import com.mongodb.DBDecoderFactory;
+import com.mongodb.LazyDBCallback;
+import com.mongodb.LazyDBDecoder;
+
+/**
+ * Decodes the documents read from a cursor as RawDBObjects, keeping the raw
+ * BSON returned by mongodb; the fields are decoded only when accessed.
+ *
+ * @author Andrea Di Cesare <andrea@softinstigate.com>
+ */
+public class RawDBDecoder extends LazyDBDecoder {
+
+    /**
+     * the factory to pass to DBCursor.setDecoderFactory()
+     */
+    public static final DBDecoderFactory FACTORY = new DBDecoderFactory() {
+        @Override
+        public DBDecoder create() {
+            return new RawDBDecoder();
+        }
+    };
+
+    @Override
+    public DBCallback getDBCallback(DBCollection collection) {
+        return new RawDBCallback(collection);
+    }
+
+    private static class RawDBCallback extends LazyDBCallback {
+
+        RawDBCallback(DBCollection collection) {
+            super(collection);
+        }
+
+        @Override
+        public Object createObject(byte[] bytes, int offset) {
+            // the root document; the embedded ones are created as usual (they can be DBRefs)
+            if (offset == 0) {
+                return new RawDBObject(bytes, offset, this);
+            } else {
+                return super.createObject(bytes, offset);
+            }
+        }
+    }
+}
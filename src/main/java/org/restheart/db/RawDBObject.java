@@ -0,0 +1,182 @@
+/*
+ * RESTHeart - the data REST API server
+ * Copyright (C) 2014 - 2015 SoftInstigate Srl
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.restheart.db;
+
+import com.mongodb.LazyDBObject;
+import java.nio.charset.StandardCharsets;
+import org.bson.BSON;
+import org.bson.LazyBSONCallback;
+
+/**
+ * A lazy document that exposes the raw BSON it is backed by, so that it can be
+ * transcoded to json without decoding its fields.
+ *
+ * @author Andrea Di Cesare <andrea@softinstigate.com>
+ */
+public class RawDBObject extends LazyDBObject {
+
+    /**
+     *
+     * @param bytes
+     * @param offset
+     * @param callback
+     */
+    public RawDBObject(byte[] bytes, int offset, LazyBSONCallback callback) {
+        super(bytes, offset, callback);
+    }
+
+    /**
+     * @return the bytes the document is backed by
+     */
+    public byte[] getRawBytes() {
+        return getBytes();
+    }
+
+    /**
+     * @return the offset of the document in the bytes returned by getRawBytes()
+     */
+    public int getRawOffset() {
+        return getOffset();
+    }
+
+    /**
+     * looks for the key comparing the raw bytes, without decoding the keys of
+     * the document as LazyBSONObject does
+     *
+     * @param key
+     * @return
+     */
+    @Override
+    public boolean containsField(String key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public Object get(String key) {
+        return indexOf(key) < 0 ? null : super.get(key);
+    }
+
+    /**
+     * @return the offset of the element with the given key, -1 if missing
+     */
+    private int indexOf(String key) {
+        byte[] bytes = getBytes();
+        // ascii keys are compared char by byte, no need to encode them
+        String _key = isAscii(key) ? key : new String(key.getBytes(StandardCharsets.UTF_8), StandardCharsets.ISO_8859_1);
+
+        int offset = getOffset() + 4;
+
+        // an element is the type byte, the key as a cstring and the value
+        while (bytes[offset] != BSON.EOO) {
+            int keyEnd = cstringEnd(bytes, offset + 1);
+
+            if (keyEnd - offset - 1 == _key.length() && matches(bytes, offset + 1, _key)) {
+                return offset;
+            }
+
+            offset = keyEnd + 1 + valueSize(bytes, bytes[offset], keyEnd + 1);
+        }
+
+        return -1;
+    }
+
+    /**
+     * @param bytes
+     * @param type the type of the element
+     * @param offset the offset of the value of the element
+     * @return the size of the value of the element
+     */
+    public static int valueSize(byte[] bytes, byte type, int offset) {
+        switch (type) {
+            case BSON.NUMBER:
+            case BSON.DATE:
+            case BSON.TIMESTAMP:
+            case BSON.NUMBER_LONG:
+                return 8;
+            case BSON.STRING:
+            case BSON.CODE:
+            case BSON.SYMBOL:
+                return 4 + readInt(bytes, offset);
+            case BSON.OBJECT:
+            case BSON.ARRAY:
+            case BSON.CODE_W_SCOPE:
+                return readInt(bytes, offset);
+            case BSON.BINARY:
+                return 4 + 1 + readInt(bytes, offset);
+            case BSON.OID:
+                return 12;
+            case BSON.BOOLEAN:
+                return 1;
+            case BSON.REGEX:
+                int optionsStart = cstringEnd(bytes, offset) + 1;
+                return cstringEnd(bytes, optionsStart) + 1 - offset;
+            case BSON.REF:
+                return 4 + readInt(bytes, offset) + 12;
+            case BSON.NUMBER_INT:
+                return 4;
+            default:
+                // undefined, null, min key and max key
+                return 0;
+        }
+    }
+
+    /**
+     * @param bytes
+     * @param offset
+     * @return the offset of the terminating 0 of the cstring at offset
+     */
+    public static int cstringEnd(byte[] bytes, int offset) {
+        while (bytes[offset] != 0) {
+            offset++;
+        }
+
+        return offset;
+    }
+
+    /**
+     * @param bytes
+     * @param offset
+     * @return the little endian int32 at offset
+     */
+    public static int readInt(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xFF)
+                | (bytes[offset + 1] & 0xFF) << 8
+                | (bytes[offset + 2] & 0xFF) << 16
+                | (bytes[offset + 3] & 0xFF) << 24;
+    }
+
+    private static boolean matches(byte[] bytes, int offset, String key) {
+        for (int cont = 0; cont < key.length(); cont++) {
+            if ((bytes[offset + cont] & 0xFF) != key.charAt(cont)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean isAscii(String key) {
+        for (int cont = 0; cont < key.length(); cont++) {
+            if (key.charAt(cont) > 127) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
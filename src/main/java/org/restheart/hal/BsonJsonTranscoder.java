@@ -0,0 +1,354 @@
+/*
+ * RESTHeart - the data REST API server
+ * Copyright (C) 2014 - 2015 SoftInstigate Srl
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.restheart.hal;
+
+import com.mongodb.DBObject;
+import com.mongodb.LazyDBCallback;
+import com.mongodb.LazyDBObject;
+import com.mongodb.util.JSONSerializers;
+import com.mongodb.util.ObjectSerializer;
+import java.nio.charset.StandardCharsets;
+import org.bson.LazyBSONCallback;
+import org.restheart.db.RawDBObject;
+
+/**
+ * Writes raw BSON documents as json, in the same format of the strict
+ * JSONSerializer, without decoding them. The most common types are transcoded
+ * directly from the bytes; the others are decoded and passed to the
+ * serializer.
+ *
+ * @author Andrea Di Cesare <andrea@softinstigate.com>
+ */
+public final class BsonJsonTranscoder {
+
+    private static final LazyBSONCallback CALLBACK = new LazyDBCallback(null);
+
+    private static final ObjectSerializer SERIALIZER = JSONSerializers.getStrict();
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static final byte DOUBLE = 0x01;
+    private static final byte STRING = 0x02;
+    private static final byte DOCUMENT = 0x03;
+    private static final byte ARRAY = 0x04;
+    private static final byte OBJECT_ID = 0x07;
+    private static final byte BOOLEAN = 0x08;
+    private static final byte DATE = 0x09;
+    private static final byte NULL = 0x0A;
+    private static final byte INT32 = 0x10;
+    private static final byte INT64 = 0x12;
+
+    private BsonJsonTranscoder() {
+    }
+
+    /**
+     * An element of the root level of a RawDBObject. The same instance is
+     * moved from one element to the following by next().
+     */
+    static class Element {
+        private final byte[] bytes;
+        private final int documentOffset;
+        private int offset;
+        private int keyEnd;
+        private int valueOffset;
+        private boolean asciiKey;
+
+        Element(RawDBObject document) {
+            this.bytes = document.getRawBytes();
+            this.documentOffset = document.getRawOffset();
+            this.valueOffset = documentOffset + 4;
+        }
+
+        /**
+         * moves to the next element
+         *
+         * @return false if there are no more elements
+         */
+        boolean next() {
+            offset = offset == 0 ? valueOffset : valueOffset + RawDBObject.valueSize(bytes, bytes[offset], valueOffset);
+
+            if (bytes[offset] == 0) {
+                return false;
+            }
+
+            keyEnd = RawDBObject.cstringEnd(bytes, offset + 1);
+            valueOffset = keyEnd + 1;
+            asciiKey = isAscii(bytes, offset + 1, keyEnd);
+
+            return true;
+        }
+
+        /**
+         * @return the key of the current element
+         */
+        String getKey() {
+            return new String(bytes, offset + 1, keyEnd - offset - 1, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * @return the value of the current element, decoded
+         */
+        Object getValue() {
+            return new LazyDBObject(bytes, documentOffset, CALLBACK).get(getKey());
+        }
+
+        /**
+         * @param keys
+         * @return the index of the key of the current element in keys, -1 if
+         * missing
+         */
+        int indexOfKey(String[] keys) {
+            if (!asciiKey) {
+                String key = getKey();
+
+                for (int cont = 0; cont < keys.length; cont++) {
+                    if (keys[cont].equals(key)) {
+                        return cont;
+                    }
+                }
+
+                return -1;
+            }
+
+            int length = keyEnd - offset - 1;
+
+            for (int cont = 0; cont < keys.length; cont++) {
+                if (keys[cont].length() == length && matches(keys[cont])) {
+                    return cont;
+                }
+            }
+
+            return -1;
+        }
+
+        private boolean matches(String key) {
+            for (int cont = 0; cont < key.length(); cont++) {
+                if (bytes[offset + 1 + cont] != key.charAt(cont)) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        /**
+         * writes the key of the current element
+         *
+         * @param buf
+         */
+        void writeKey(StringBuilder buf) {
+            writeString(bytes, offset + 1, keyEnd, buf);
+        }
+
+        /**
+         * writes the value of the current element
+         *
+         * @param serializer
+         * @param buf
+         */
+        void writeValue(ObjectSerializer serializer, StringBuilder buf) {
+            BsonJsonTranscoder.writeValue(bytes, documentOffset, offset, keyEnd, serializer, buf);
+        }
+    }
+
+    /**
+     * writes the document as json; a RawDBObject is transcoded without
+     * decoding it
+     *
+     * @param document
+     * @param buf
+     */
+    public static void writeJson(DBObject document, StringBuilder buf) {
+        if (document instanceof RawDBObject) {
+            RawDBObject raw = (RawDBObject) document;
+
+            writeDocument(raw.getRawBytes(), raw.getRawOffset(), false, SERIALIZER, buf);
+        } else {
+            SERIALIZER.serialize(document, buf);
+        }
+    }
+
+    /**
+     * writes the document or the array starting at offset
+     *
+     * @param bytes
+     * @param offset
+     * @param array
+     * @param serializer
+     * @param buf
+     */
+    static void writeDocument(byte[] bytes, int offset, boolean array, ObjectSerializer serializer, StringBuilder buf) {
+        buf.append(array ? "[ " : "{ ");
+
+        int pos = offset + 4;
+        boolean first = true;
+
+        while (bytes[pos] != 0) {
+            int keyEnd = RawDBObject.cstringEnd(bytes, pos + 1);
+
+            if (!first) {
+                buf.append(" , ");
+            }
+
+            first = false;
+
+            if (!array) {
+                writeString(bytes, pos + 1, keyEnd, buf);
+                buf.append(" : ");
+            }
+
+            pos = writeValue(bytes, offset, pos, keyEnd, serializer, buf);
+        }
+
+        buf.append(array ? "]" : "}");
+    }
+
+    /**
+     * writes the value of the element starting at offset
+     *
+     * @return the offset of the following element
+     */
+    private static int writeValue(byte[] bytes, int documentOffset, int offset, int keyEnd, ObjectSerializer serializer, StringBuilder buf) {
+        byte type = bytes[offset];
+        int pos = keyEnd + 1;
+
+        switch (type) {
+            case DOUBLE:
+                buf.append(Double.longBitsToDouble(readLong(bytes, pos)));
+                break;
+            case STRING:
+                writeString(bytes, pos + 4, pos + 4 + RawDBObject.readInt(bytes, pos) - 1, buf);
+                break;
+            case DOCUMENT:
+                writeDocument(bytes, pos, false, serializer, buf);
+                break;
+            case ARRAY:
+                writeDocument(bytes, pos, true, serializer, buf);
+                break;
+            case OBJECT_ID:
+                buf.append("{ \"$oid\" : \"");
+
+                for (int cont = pos; cont < pos + 12; cont++) {
+                    buf.append(HEX[(bytes[cont] >> 4) & 0xF]).append(HEX[bytes[cont] & 0xF]);
+                }
+
+                buf.append("\"}");
+                break;
+            case BOOLEAN:
+                buf.append(bytes[pos] != 0);
+                break;
+            case DATE:
+                buf.append("{ \"$date\" : ").append(readLong(bytes, pos)).append("}");
+                break;
+            case NULL:
+                serializer.serialize(null, buf);
+                break;
+            case INT32:
+                buf.append(RawDBObject.readInt(bytes, pos));
+                break;
+            case INT64:
+                buf.append(readLong(bytes, pos));
+                break;
+            default:
+                // decode the other types, the key identifies the element in its document or array
+                String key = new String(bytes, offset + 1, keyEnd - offset - 1, StandardCharsets.UTF_8);
+                LazyDBObject document = new LazyDBObject(bytes, documentOffset, CALLBACK);
+
+                serializer.serialize(document.get(key), buf);
+        }
+
+        return pos + RawDBObject.valueSize(bytes, type, pos);
+    }
+
+    /**
+     * writes the string escaping it as JSON.string() does
+     *
+     * @param s
+     * @param buf
+     */
+    static void writeString(String s, StringBuilder buf) {
+        buf.append('"');
+
+        for (int cont = 0; cont < s.length(); cont++) {
+            appendEscaped(s.charAt(cont), buf);
+        }
+
+        buf.append('"');
+    }
+
+    /**
+     * writes the utf-8 string between start and end; ascii strings are escaped
+     * straight from the bytes
+     */
+    private static void writeString(byte[] bytes, int start, int end, StringBuilder buf) {
+        if (!isAscii(bytes, start, end)) {
+            writeString(new String(bytes, start, end - start, StandardCharsets.UTF_8), buf);
+            return;
+        }
+
+        buf.append('"');
+
+        for (int cont = start; cont < end; cont++) {
+            appendEscaped((char) bytes[cont], buf);
+        }
+
+        buf.append('"');
+    }
+
+    private static void appendEscaped(char c, StringBuilder buf) {
+        switch (c) {
+            case '\\':
+                buf.append("\\\\");
+                break;
+            case '"':
+                buf.append("\\\"");
+                break;
+            case '\n':
+                buf.append("\\n");
+                break;
+            case '\r':
+                buf.append("\\r");
+                break;
+            case '\t':
+                buf.append("\\t");
+                break;
+            case '\b':
+                buf.append("\\b");
+                break;
+            default:
+                // as JSON.string(), the other control characters are dropped
+                if (c >= 32) {
+                    buf.append(c);
+                }
+        }
+    }
+
+    private static boolean isAscii(byte[] bytes, int start, int end) {
+        for (int cont = start; cont < end; cont++) {
+            if (bytes[cont] < 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static long readLong(byte[] bytes, int pos) {
+        return (RawDBObject.readInt(bytes, pos) & 0xFFFFFFFFL) | ((long) RawDBObject.readInt(bytes, pos + 4)) << 32;
+    }
+}
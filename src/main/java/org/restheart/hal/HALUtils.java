@@ -53,6 +53,29 @@ public class HALUtils {
 
         TreeMap<String, String> links = new TreeMap<>();
 
+        if (context.isKeyset()) {
+            // the query string contains at least the keyset or after parameter
+            String queryStringNoPagingProps = URLUtils.decodeQueryString(URLUtils.getQueryStringRemovingParams(exchange, "page", "after"));
+
+            if (queryStringNoPagingProps == null || queryStringNoPagingProps.isEmpty()) {
+                queryStringNoPagingProps = "keyset";
+            } else {
+                queryStringNoPagingProps = queryStringNoPagingProps.replaceAll("&+$", "");
+
+                if (exchange.getQueryParameters().get("keyset") == null) {
+                    queryStringNoPagingProps = queryStringNoPagingProps + "&keyset";
+                }
+            }
+
+            links.put("first", requestPath + "?" + queryStringNoPagingProps);
+
+            if (context.getNextContinuationToken() != null) {
+                links.put("next", requestPath + "?" + queryStringNoPagingProps + "&after=" + context.getNextContinuationToken());
+            }
+
+            return links;
+        }
+
         if (queryString == null || queryString.isEmpty()) {
             // i.e. the url contains the count paramenter and there is a next page
             if (totalPages > 0 && page < totalPages) {
@@ -22,8 +22,21 @@ import com.mongodb.BasicDBObject;
 import com.mongodb.DBObject;
 import com.mongodb.util.JSONSerializers;
 import com.mongodb.util.ObjectSerializer;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import org.bson.BSONObject;
+import org.bson.LazyBSONObject;
+import org.restheart.db.RawDBObject;
 import org.restheart.handlers.RequestContext;
 
 /**
@@ -31,37 +44,65 @@ import org.restheart.handlers.RequestContext;
  * @author Andrea Di Cesare <andrea@softinstigate.com>
  */
 public class Representation {
-    private final ObjectSerializer serializer = JSONSerializers.getStrict();
+    private static final ObjectSerializer serializer = JSONSerializers.getStrict();
 
     /**
      * Supported content types
      */
     public static final String HAL_JSON_MEDIA_TYPE = "application/hal+json";
     public static final String JSON_MEDIA_TYPE = "application/json";
+    public static final String NDJSON_MEDIA_TYPE = "application/x-ndjson";
+    public static final String BSON_MEDIA_TYPE = "application/bson";
     public static final String APP_FORM_URLENCODED_TYPE = "application/x-www-form-urlencoded";
     public static final String MULTIPART_FORM_DATA_TYPE = "multipart/form-data";
 
+    /**
+     * the size of the json chunks written by write()
+     */
+    private static final int WRITE_CHUNK_SIZE = 8 * 1024;
+
     private final BasicDBObject properties;
-    private final BasicDBObject embedded;
+    private final Map<String, List<Representation>> embedded;
+    private final Map<String, EmbeddedDocuments> embeddedDocuments;
     private final BasicDBObject links;
 
+    /**
+     * the document whose properties are read only when the representation is
+     * serialized; the properties added before it precede its fields
+     */
+    private DBObject document = null;
+    private int documentIndex = 0;
+    private Set<String> documentOverrides = null;
+
     /**
      *
      * @param href
      */
     public Representation(String href) {
         properties = new BasicDBObject();
-        embedded = new BasicDBObject();
+        embedded = new LinkedHashMap<>();
+        embeddedDocuments = new LinkedHashMap<>();
         links = new BasicDBObject();
 
         links.put("self", new BasicDBObject("href", href));
     }
+
+    /**
+     * a representation without the self link, for the embedded documents
+     * whose links are added by their DocumentWriter
+     */
+    private Representation() {
+        properties = new BasicDBObject();
+        embedded = new LinkedHashMap<>();
+        embeddedDocuments = new LinkedHashMap<>();
+        links = new BasicDBObject();
+    }
     
     public RequestContext.TYPE getType() {
         if (properties == null)
             return null;
         
-        Object _type = properties.get("_type");
+        Object _type = getProperty("_type");
         
         if (_type == null)
             return null;
@@ -70,10 +111,35 @@ public class Representation {
     }
 
     BasicDBObject getDBObject() {
-        BasicDBObject ret = new BasicDBObject(properties);
+        BasicDBObject ret = new BasicDBObject();
+
+        forEachProperty((key, value) -> ret.append(key, value), false);
+
+        if (!embedded.isEmpty() || !embeddedDocuments.isEmpty()) {
+            BasicDBObject _embedded = new BasicDBObject();
 
-        if (!embedded.isEmpty()) {
-            ret.append("_embedded", embedded);
+            embeddedDocuments.forEach((rel, documents) -> {
+                BasicDBList repArray = new BasicDBList();
+
+                documents.documents.stream().forEach(document -> repArray.add(documents.getDBObject(document)));
+
+                _embedded.append(rel, repArray);
+            });
+
+            embedded.forEach((rel, reps) -> {
+                BasicDBList repArray = (BasicDBList) _embedded.get(rel);
+
+                if (repArray == null) {
+                    repArray = new BasicDBList();
+                    _embedded.append(rel, repArray);
+                }
+
+                for (Representation rep : reps) {
+                    repArray.add(rep.getDBObject());
+                }
+            });
+
+            ret.append("_embedded", _embedded);
         }
 
         if (!links.isEmpty()) {
@@ -115,9 +181,26 @@ public class Representation {
      * @param value
      */
     public void addProperty(String key, Object value) {
+        if (document != null) {
+            documentOverrides.add(key);
+        }
+
         properties.append(key, value);
     }
 
+    /**
+     *
+     * @param key
+     * @return the value of the property, null if missing
+     */
+    public Object getProperty(String key) {
+        if (document != null && !documentOverrides.contains(key) && document.containsField(key)) {
+            return document.get(key);
+        }
+
+        return properties.get(key);
+    }
+
     /**
      *
      * @param props
@@ -127,24 +210,69 @@ public class Representation {
             return;
         }
 
+        if (document != null) {
+            documentOverrides.addAll(props.keySet());
+        }
+
         properties.putAll(props);
     }
 
+    /**
+     * Adds the fields of the document as properties without copying them: they
+     * are read from the document only when the representation is serialized,
+     * so that a lazy document gets decoded one field at a time and a
+     * RawDBObject is transcoded to json without decoding it.
+     * The result is the same as adding the fields with addProperties(); the
+     * document must not be modified afterwards.
+     *
+     * @param document
+     * @throws IllegalStateException if a document has already been added
+     */
+    public void addDocument(DBObject document) {
+        if (document == null) {
+            return;
+        }
+
+        if (this.document != null) {
+            throw new IllegalStateException("a document has already been added to the representation");
+        }
+
+        this.document = document;
+        this.documentIndex = properties.size();
+        this.documentOverrides = new HashSet<>();
+    }
+
     /**
      *
      * @param rel
      * @param rep
      */
     public void addRepresentation(String rel, Representation rep) {
-        BasicDBList repArray = (BasicDBList) embedded.get(rel);
+        embedded.computeIfAbsent(rel, k -> new ArrayList<>()).add(rep);
+    }
 
-        if (repArray == null) {
-            repArray = new BasicDBList();
+    /**
+     * Adds the documents as embedded representations that are written
+     * directly to the output by the given writer while this representation is
+     * serialized, one document at a time, without creating a Representation
+     * for each of them. They precede the representations added with
+     * addRepresentation() with the same rel; the documents must not be
+     * modified afterwards.
+     *
+     * @param rel
+     * @param documents
+     * @param writer
+     */
+    public void addDocuments(String rel, List<DBObject> documents, DocumentWriter writer) {
+        if (documents == null || documents.isEmpty()) {
+            return;
+        }
 
-            embedded.append(rel, repArray);
+        if (embeddedDocuments.containsKey(rel)) {
+            throw new IllegalStateException("documents have already been added with rel " + rel);
         }
 
-        repArray.add(rep.getDBObject());
+        embeddedDocuments.put(rel, new EmbeddedDocuments(documents, writer));
     }
 
     public void addWarning(String warning) {
@@ -153,16 +281,542 @@ public class Representation {
         addRepresentation("rh:warnings", nrep);
     }
 
+    /**
+     * Writes the representation as json, in the same format of toString(),
+     * serializing one property or embedded representation at a time, without
+     * building the whole json string.
+     *
+     * @param writer
+     * @throws IOException
+     */
+    public void write(Writer writer) throws IOException {
+        ChunkedWriter out = new ChunkedWriter(writer);
+
+        write(out);
+
+        out.flush();
+    }
+
+    private void write(ChunkedWriter out) throws IOException {
+        StringBuilder buf = out.buf;
+
+        buf.append("{ ");
+
+        PropertyWriter propertyWriter = new PropertyWriter(out);
+
+        forEachProperty(propertyWriter, true);
+
+        boolean first = propertyWriter.first;
+
+        if (!embedded.isEmpty() || !embeddedDocuments.isEmpty()) {
+            first = appendKey(buf, "_embedded", first);
+            buf.append("{ ");
+
+            boolean firstRel = true;
+
+            for (Map.Entry<String, EmbeddedDocuments> rel : embeddedDocuments.entrySet()) {
+                firstRel = appendKey(buf, rel.getKey(), firstRel);
+                buf.append("[ ");
+
+                boolean firstRep = rel.getValue().write(out);
+
+                writeRepresentations(out, embedded.get(rel.getKey()), firstRep);
+
+                buf.append("]");
+            }
+
+            for (Map.Entry<String, List<Representation>> rel : embedded.entrySet()) {
+                if (!embeddedDocuments.containsKey(rel.getKey())) {
+                    firstRel = appendKey(buf, rel.getKey(), firstRel);
+                    buf.append("[ ");
+
+                    writeRepresentations(out, rel.getValue(), true);
+
+                    buf.append("]");
+                }
+            }
+
+            buf.append("}");
+        }
+
+        if (!links.isEmpty()) {
+            appendKey(buf, "_links", first);
+            serializer.serialize(links, buf);
+        }
+
+        buf.append("}");
+        out.writeIfFull();
+    }
+
+    private static void writeRepresentations(ChunkedWriter out, List<Representation> reps, boolean first) throws IOException {
+        if (reps == null) {
+            return;
+        }
+
+        for (Representation rep : reps) {
+            if (!first) {
+                out.buf.append(" , ");
+            }
+
+            first = false;
+            rep.write(out);
+        }
+    }
+
+    /**
+     * iterates the properties in the same order they would have if the
+     * document fields were added with addProperties()
+     *
+     * @param consumer
+     * @param transcode if true, the fields of a RawDBObject document are
+     * passed to consumer.acceptRaw(), to be written without decoding them
+     */
+    private <E extends Exception> void forEachProperty(PropertyConsumer<E> consumer, boolean transcode) throws E {
+        if (document == null) {
+            for (String key : properties.keySet()) {
+                consumer.accept(key, properties.get(key));
+            }
+
+            return;
+        }
+
+        // the properties added before the document; a document field with the same key keeps their position
+        String[] preceding = new String[documentIndex];
+        Iterator<String> keys = properties.keySet().iterator();
+
+        for (int cont = 0; cont < documentIndex; cont++) {
+            preceding[cont] = keys.next();
+            consumer.accept(preceding[cont], getProperty(preceding[cont]));
+        }
+
+        // the properties added after the document override its fields with the same key
+        String[] overrides = documentOverrides.toArray(new String[documentOverrides.size()]);
+        boolean[] overridden = new boolean[overrides.length];
+
+        if (transcode && document instanceof RawDBObject) {
+            BsonJsonTranscoder.Element field = new BsonJsonTranscoder.Element((RawDBObject) document);
+
+            while (field.next()) {
+                if (field.indexOfKey(preceding) < 0) {
+                    int override = field.indexOfKey(overrides);
+
+                    if (override < 0) {
+                        consumer.acceptRaw(field);
+                    } else {
+                        overridden[override] = true;
+                        consumer.accept(overrides[override], properties.get(overrides[override]));
+                    }
+                }
+            }
+        } else {
+            for (Map.Entry<String, Object> field : documentFields()) {
+                String key = field.getKey();
+
+                if (indexOf(preceding, key) < 0) {
+                    int override = indexOf(overrides, key);
+
+                    if (override < 0) {
+                        consumer.accept(key, field.getValue());
+                    } else {
+                        overridden[override] = true;
+                        consumer.accept(key, properties.get(key));
+                    }
+                }
+            }
+        }
+
+        while (keys.hasNext()) {
+            String key = keys.next();
+            int override = indexOf(overrides, key);
+
+            if (override < 0 || !overridden[override]) {
+                consumer.accept(key, properties.get(key));
+            }
+        }
+    }
+
+    private static int indexOf(String[] keys, String key) {
+        for (int cont = 0; cont < keys.length; cont++) {
+            if (keys[cont].equals(key)) {
+                return cont;
+            }
+        }
+
+        return -1;
+    }
+
+    private Iterable<Map.Entry<String, Object>> documentFields() {
+        return documentFields(document);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Iterable<Map.Entry<String, Object>> documentFields(DBObject document) {
+        if (document instanceof LazyBSONObject) {
+            // decodes the values while iterating
+            return ((LazyBSONObject) document).entrySet();
+        } else if (document instanceof Map) {
+            return ((Map<String, Object>) document).entrySet();
+        } else {
+            return ((Map<String, Object>) document.toMap()).entrySet();
+        }
+    }
+
+    @FunctionalInterface
+    private interface PropertyConsumer<E extends Exception> {
+        void accept(String key, Object value) throws E;
+
+        /**
+         * consumes a field of a RawDBObject; by default it is decoded and
+         * passed to accept()
+         *
+         * @param field
+         * @throws E
+         */
+        default void acceptRaw(BsonJsonTranscoder.Element field) throws E {
+            accept(field.getKey(), field.getValue());
+        }
+    }
+
+    private static class PropertyWriter implements PropertyConsumer<IOException> {
+        private final ChunkedWriter out;
+        private boolean first = true;
+
+        PropertyWriter(ChunkedWriter out) {
+            this.out = out;
+        }
+
+        @Override
+        public void accept(String key, Object value) throws IOException {
+            first = appendKey(out.buf, key, first);
+            serializer.serialize(value, out.buf);
+            out.writeIfFull();
+        }
+
+        @Override
+        public void acceptRaw(BsonJsonTranscoder.Element field) throws IOException {
+            if (!first) {
+                out.buf.append(" , ");
+            }
+
+            first = false;
+
+            field.writeKey(out.buf);
+            out.buf.append(" : ");
+            field.writeValue(serializer, out.buf);
+            out.writeIfFull();
+        }
+    }
+
+    /**
+     * writes the embedded representation of a document added with
+     * addDocuments()
+     */
+    @FunctionalInterface
+    public interface DocumentWriter {
+        /**
+         * @param document
+         * @param out the output of the properties, warnings and links of the
+         * embedded representation, to be called in this order
+         * @throws IOException
+         */
+        void write(DBObject document, DocumentOutput out) throws IOException;
+    }
+
+    /**
+     * the output of a document representation, either written as json while
+     * the embedding representation is serialized or added to a Representation
+     * (see getDocumentOutput())
+     */
+    public interface DocumentOutput {
+        /**
+         * @param key
+         * @param value
+         * @throws IOException
+         */
+        void addProperty(String key, Object value) throws IOException;
+
+        /**
+         * adds the fields of the document as properties, transcoding the ones
+         * of a RawDBObject without decoding them
+         *
+         * @param document
+         * @param skipped the keys of the properties already added, that the
+         * fields of the document must not override
+         * @throws IOException
+         */
+        void addFields(DBObject document, String... skipped) throws IOException;
+
+        /**
+         * adds the warnings as embedded rh:warnings representations, as
+         * Representation.addWarning() does
+         *
+         * @param warnings
+         * @throws IOException
+         */
+        void addWarnings(List<String> warnings) throws IOException;
+
+        /**
+         * @param links the links of the representation, as self and the
+         * others added with Representation.addLink()
+         * @throws IOException
+         */
+        void addLinks(DBObject links) throws IOException;
+    }
+
+    /**
+     * @return an output that adds the properties, warnings and links of a
+     * document representation to this representation
+     */
+    public DocumentOutput getDocumentOutput() {
+        return new RepresentationOutput();
+    }
+
+    private class RepresentationOutput implements DocumentOutput {
+        @Override
+        public void addProperty(String key, Object value) {
+            Representation.this.addProperty(key, value);
+        }
+
+        @Override
+        public void addFields(DBObject document, String... skipped) {
+            addDocument(document);
+
+            // the properties added before the document keep their value
+            for (String key : skipped) {
+                if (properties.containsField(key)) {
+                    documentOverrides.add(key);
+                }
+            }
+        }
+
+        @Override
+        public void addWarnings(List<String> warnings) {
+            if (warnings != null) {
+                warnings.forEach(w -> addWarning(w));
+            }
+        }
+
+        @Override
+        public void addLinks(DBObject links) {
+            if (links != null) {
+                Representation.this.links.putAll(links);
+            }
+        }
+    }
+
+    /**
+     * writes the json of an embedded document representation, in the same
+     * format of a Representation
+     */
+    private static final class JsonDocumentOutput implements DocumentOutput {
+        private final ChunkedWriter out;
+        private boolean first = true;
+
+        private JsonDocumentOutput(ChunkedWriter out) {
+            this.out = out;
+        }
+
+        @Override
+        public void addProperty(String key, Object value) throws IOException {
+            first = appendKey(out.buf, key, first);
+            serializer.serialize(value, out.buf);
+            out.writeIfFull();
+        }
+
+        @Override
+        public void addFields(DBObject document, String... skipped) throws IOException {
+            if (document instanceof RawDBObject) {
+                BsonJsonTranscoder.Element field = new BsonJsonTranscoder.Element((RawDBObject) document);
+
+                while (field.next()) {
+                    if (field.indexOfKey(skipped) < 0) {
+                        if (!first) {
+                            out.buf.append(" , ");
+                        }
+
+                        first = false;
+
+                        field.writeKey(out.buf);
+                        out.buf.append(" : ");
+                        field.writeValue(serializer, out.buf);
+                        out.writeIfFull();
+                    }
+                }
+            } else {
+                for (Map.Entry<String, Object> field : documentFields(document)) {
+                    if (indexOf(skipped, field.getKey()) < 0) {
+                        addProperty(field.getKey(), field.getValue());
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void addWarnings(List<String> warnings) throws IOException {
+            if (warnings == null || warnings.isEmpty()) {
+                return;
+            }
+
+            first = appendKey(out.buf, "_embedded", first);
+            out.buf.append("{ ");
+            appendKey(out.buf, "rh:warnings", true);
+            out.buf.append("[ ");
+
+            boolean firstWarning = true;
+
+            for (String warning : warnings) {
+                if (!firstWarning) {
+                    out.buf.append(" , ");
+                }
+
+                firstWarning = false;
+
+                Representation nrep = new Representation("#warnings");
+                nrep.addProperty("message", warning);
+                nrep.write(out);
+            }
+
+            out.buf.append("]}");
+        }
+
+        @Override
+        public void addLinks(DBObject links) throws IOException {
+            if (links != null && !links.keySet().isEmpty()) {
+                first = appendKey(out.buf, "_links", first);
+                serializer.serialize(links, out.buf);
+                out.writeIfFull();
+            }
+        }
+    }
+
+    private static class EmbeddedDocuments {
+        private final List<DBObject> documents;
+        private final DocumentWriter writer;
+
+        EmbeddedDocuments(List<DBObject> documents, DocumentWriter writer) {
+            this.documents = documents;
+            this.writer = writer;
+        }
+
+        /**
+         * @param out
+         * @return true if no document has been written
+         * @throws IOException
+         */
+        boolean write(ChunkedWriter out) throws IOException {
+            boolean first = true;
+
+            for (DBObject document : documents) {
+                if (!first) {
+                    out.buf.append(" , ");
+                }
+
+                first = false;
+                write(document, out);
+            }
+
+            return first;
+        }
+
+        private void write(DBObject document, ChunkedWriter out) throws IOException {
+            out.buf.append("{ ");
+            writer.write(document, new JsonDocumentOutput(out));
+            out.buf.append("}");
+            out.writeIfFull();
+        }
+
+        /**
+         * @param document
+         * @return the embedded representation of the document, added to a
+         * Representation rather than written as json
+         */
+        DBObject getDBObject(DBObject document) {
+            Representation rep = new Representation();
+
+            try {
+                writer.write(document, rep.getDocumentOutput());
+            } catch (IOException ioe) {
+                // never thrown adding to a representation
+                throw new UncheckedIOException(ioe);
+            }
+
+            return rep.getDBObject();
+        }
+    }
+
+    private static boolean appendKey(StringBuilder buf, String key, boolean first) {
+        if (!first) {
+            buf.append(" , ");
+        }
+
+        BsonJsonTranscoder.writeString(key, buf);
+        buf.append(" : ");
+
+        return false;
+    }
+
+    /**
+     * buffers the json and writes it in chunks of WRITE_CHUNK_SIZE chars
+     */
+    private static class ChunkedWriter {
+        private final Writer writer;
+        // a chunk exceeds WRITE_CHUNK_SIZE by the last property written
+        private final StringBuilder buf = new StringBuilder(2 * WRITE_CHUNK_SIZE);
+        private char[] chars = new char[2 * WRITE_CHUNK_SIZE];
+
+        ChunkedWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        void writeIfFull() throws IOException {
+            if (buf.length() >= WRITE_CHUNK_SIZE) {
+                flush();
+            }
+        }
+
+        void flush() throws IOException {
+            if (chars.length < buf.length()) {
+                chars = new char[buf.length()];
+            }
+
+            // copying to a reused array, Writer.append() would copy the buffer to a new String
+            buf.getChars(0, buf.length(), chars, 0);
+            writer.write(chars, 0, buf.length());
+            buf.setLength(0);
+        }
+    }
+
     @Override
     public String toString() {
-        return serializer.serialize(getDBObject());
+        StringWriter writer = new StringWriter();
+
+        try {
+            write(writer);
+        } catch (IOException ioe) {
+            // never thrown writing to a StringWriter
+            throw new UncheckedIOException(ioe);
+        }
+
+        return writer.toString();
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(embedded, links, properties);
+        // equal representations have the same self link
+        Object self = links.get("self");
+
+        return self instanceof DBObject ? Objects.hashCode(((DBObject) self).get("href")) : 0;
     }
 
+    /**
+     * compares the properties, embedded representations and links, as
+     * returned by getDBObject(), without serializing them. it builds the
+     * DBObjects of both representations, so it is not meant for hot paths.
+     *
+     * @param obj
+     * @return true if the representations are equal
+     */
+
     @Override
     public boolean equals(Object obj) {
         if (obj == null) {
@@ -172,15 +826,6 @@ public class Representation {
             return false;
         }
         final Representation other = (Representation) obj;
-        if (!Objects.equals(this.properties, other.properties)) {
-            return false;
-        }
-        if (!Objects.equals(this.embedded, other.embedded)) {
-            return false;
-        }
-        if (!Objects.equals(this.links, other.links)) {
-            return false;
-        }
-        return true;
+        return Objects.equals(this.getDBObject(), other.getDBObject());
     }
 }
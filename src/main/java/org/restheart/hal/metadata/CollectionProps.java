@@ -0,0 +1,128 @@
+/*
+ * RESTHeart - the data REST API server
+ * Copyright (C) 2014 - 2015 SoftInstigate Srl
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.restheart.hal.metadata;
+
+import com.mongodb.DBObject;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An immutable snapshot of the properties of a collection, with its metadata
+ * (relationships, count strategy, default projection and response cache
+ * setting) parsed once when the properties are loaded.
+ *
+ * The invalid metadata are reported by their getters throwing the
+ * InvalidMetadataException of the parsing.
+ *
+ * @author Andrea Di Cesare <andrea@softinstigate.com>
+ */
+public class CollectionProps extends Props {
+
+    private List<Relationship> relationships = null;
+    private InvalidMetadataException relationshipsError = null;
+
+    private CountStrategy.TYPE countStrategy = null;
+    private InvalidMetadataException countStrategyError = null;
+
+    private DBObject keys = null;
+    private InvalidMetadataException keysError = null;
+
+    private Boolean responseCache = null;
+    private InvalidMetadataException responseCacheError = null;
+
+    /**
+     *
+     * @param props the collection properties as read from the db
+     */
+    public CollectionProps(DBObject props) {
+        super(props);
+
+        try {
+            this.relationships = Collections.unmodifiableList(Relationship.getFromJson(props));
+        } catch (InvalidMetadataException ime) {
+            this.relationshipsError = ime;
+        }
+
+        try {
+            this.countStrategy = CountStrategy.getFromJson(props);
+        } catch (InvalidMetadataException ime) {
+            this.countStrategyError = ime;
+        }
+
+        try {
+            DBObject _keys = Projection.getFromJson(props);
+            this.keys = _keys == null ? null : new ReadOnlyDBObject(_keys);
+        } catch (InvalidMetadataException ime) {
+            this.keysError = ime;
+        }
+
+        try {
+            this.responseCache = ResponseCachePolicy.getFromJson(props);
+        } catch (InvalidMetadataException ime) {
+            this.responseCacheError = ime;
+        }
+    }
+
+    /**
+     * @return the relationships, read-only
+     * @throws InvalidMetadataException
+     */
+    public List<Relationship> getRelationships() throws InvalidMetadataException {
+        if (relationshipsError != null) {
+            throw relationshipsError;
+        }
+
+        return relationships;
+    }
+
+    /**
+     * @return the count strategy or null if not specified
+     * @throws InvalidMetadataException
+     */
+    public CountStrategy.TYPE getCountStrategy() throws InvalidMetadataException {
+        if (countStrategyError != null) {
+            throw countStrategyError;
+        }
+
+        return countStrategy;
+    }
+
+    /**
+     * @return the default projection, read-only, or null if not specified
+     * @throws InvalidMetadataException
+     */
+    public DBObject getKeys() throws InvalidMetadataException {
+        if (keysError != null) {
+            throw keysError;
+        }
+
+        return keys;
+    }
+
+    /**
+     * @return the response cache setting or null if not specified
+     * @throws InvalidMetadataException
+     */
+    public Boolean getResponseCache() throws InvalidMetadataException {
+        if (responseCacheError != null) {
+            throw responseCacheError;
+        }
+
+        return responseCache;
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * RESTHeart - the data REST API server
+ * Copyright (C) 2014 - 2015 SoftInstigate Srl
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.restheart.hal.metadata;
+
+import com.mongodb.DBObject;
+import java.util.Arrays;
+
+/**
+ * The strategy used to compute the size of the collection when the count
+ * query parameter is specified. It can be set for each collection via the
+ * count-strategy collection property; otherwise the default strategy of the
+ * configuration applies.
+ *
+ * @author Andrea Di Cesare <andrea@softinstigate.com>
+ */
+public class CountStrategy {
+
+    public enum TYPE {
+        EXACT, // counts the documents on every request
+        CACHED, // counts the documents and caches the result until the ttl expires or the collection is written
+        ESTIMATED // uses the collection statistics for unfiltered counts, CACHED otherwise
+    };
+
+    public static final String COUNT_STRATEGY_ELEMENT_NAME = "count-strategy";
+
+    private CountStrategy() {
+    }
+
+    /**
+     *
+     * @param collProps
+     * @return the count strategy of the collection or null if not specified
+     * @throws InvalidMetadataException
+     */
+    public static TYPE getFromJson(DBObject collProps) throws InvalidMetadataException {
+        if (collProps == null) {
+            return null;
+        }
+
+        Object _strategy = collProps.get(COUNT_STRATEGY_ELEMENT_NAME);
+
+        if (_strategy == null) {
+            return null;
+        }
+
+        if (!(_strategy instanceof String)) {
+            throw new InvalidMetadataException("invalid " + COUNT_STRATEGY_ELEMENT_NAME + " element.");
+        }
+
+        try {
+            return TYPE.valueOf(((String) _strategy).trim().toUpperCase());
+        } catch (IllegalArgumentException iae) {
+            throw new InvalidMetadataException("invalid " + COUNT_STRATEGY_ELEMENT_NAME + " value: " + _strategy + ". valid values are " + Arrays.toString(TYPE.values()), iae);
+        }
+    }
+}
@@ -15,39 +15,22 @@
  * You should have received a copy of the GNU Affero General Public License
  * along with this program.  If not, see <http://www.gnu.org/licenses/>.
  */
-package org.restheart.utils;
+package org.restheart.hal.metadata;
 
-import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.nio.charset.Charset;
-import org.xnio.channels.Channels;
-import org.xnio.channels.StreamSourceChannel;
+import com.mongodb.DBObject;
 
 /**
+ * An immutable snapshot of the properties of a db.
  *
  * @author Andrea Di Cesare <andrea@softinstigate.com>
  */
-public class ChannelReader {
-
-    final static Charset charset = Charset.forName("utf-8");
+public class DbProps extends Props {
 
     /**
      *
-     * @param channel
-     * @return
-     * @throws IOException
+     * @param props the db properties as read from the db
      */
-    public static String read(StreamSourceChannel channel) throws IOException {
-        StringBuilder content = new StringBuilder();
-
-        ByteBuffer buf = ByteBuffer.allocate(128);
-
-        while (Channels.readBlocking(channel, buf) != -1) {
-            buf.flip();
-            content.append(charset.decode(buf));
-            buf.clear();
-        }
-
-        return content.toString();
+    public DbProps(DBObject props) {
+        super(props);
     }
 }
@@ -0,0 +1,154 @@
+/*
+ * RESTHeart - the data REST API server
+ * Copyright (C) 2014 - 2015 SoftInstigate Srl
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.restheart.hal.metadata;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The projection applied to the documents read from a collection, i.e. the
+ * fields to return or to exclude. It is specified with the keys query parameter
+ * or, as default for the requests that don't specify it, with the keys
+ * collection property.
+ *
+ * @author Andrea Di Cesare <andrea@softinstigate.com>
+ */
+public class Projection {
+
+    public static final String KEYS_ELEMENT_NAME = "keys";
+
+    private Projection() {
+    }
+
+    /**
+     *
+     * @param collProps
+     * @return the default projection of the collection or null if not
+     * specified
+     * @throws InvalidMetadataException
+     */
+    public static DBObject getFromJson(DBObject collProps) throws InvalidMetadataException {
+        if (collProps == null) {
+            return null;
+        }
+
+        Object _keys = collProps.get(KEYS_ELEMENT_NAME);
+
+        if (_keys == null) {
+            return null;
+        }
+
+        if (!(_keys instanceof DBObject) || _keys instanceof List) {
+            throw new InvalidMetadataException("invalid " + KEYS_ELEMENT_NAME + " element, it is not a json object.");
+        }
+
+        check((DBObject) _keys);
+
+        return (DBObject) _keys;
+    }
+
+    /**
+     * checks that the projection is valid: the values are 0, 1, booleans or
+     * $slice, $elemMatch or $meta operators and inclusions and exclusions are
+     * not mixed, apart from the exclusion of _id
+     *
+     * @param keys
+     * @throws InvalidMetadataException
+     */
+    public static void check(DBObject keys) throws InvalidMetadataException {
+        boolean including = false;
+        boolean excluding = false;
+
+        for (String key : keys.keySet()) {
+            if (key.isEmpty() || key.startsWith("$")) {
+                throw new InvalidMetadataException("invalid key " + key + ", it cannot be empty or start with $");
+            }
+
+            Object value = keys.get(key);
+
+            if (value instanceof Number || value instanceof Boolean) {
+                boolean include = value instanceof Boolean ? (Boolean) value : ((Number) value).doubleValue() != 0;
+
+                if (include) {
+                    including = true;
+                } else if (!key.equals("_id")) {
+                    excluding = true;
+                }
+            } else if (value instanceof DBObject && !(value instanceof List)) {
+                DBObject operator = (DBObject) value;
+
+                if (operator.keySet().size() != 1
+                        || !(operator.containsField("$slice") || operator.containsField("$elemMatch") || operator.containsField("$meta"))) {
+                    throw new InvalidMetadataException("invalid value of key " + key + ", only the $slice, $elemMatch and $meta operators are allowed");
+                }
+            } else {
+                throw new InvalidMetadataException("invalid value of key " + key + ", it must be 0, 1, a boolean or a projection operator");
+            }
+        }
+
+        if (including && excluding) {
+            throw new InvalidMetadataException("inclusions and exclusions cannot be mixed, apart from the exclusion of _id");
+        }
+    }
+
+    /**
+     * @param keys
+     * @return true if the projection includes only the specified fields
+     */
+    public static boolean isInclusion(DBObject keys) {
+        return keys.keySet().stream().anyMatch(key -> {
+            Object value = keys.get(key);
+
+            return (value instanceof Boolean && (Boolean) value)
+                    || (value instanceof Number && ((Number) value).doubleValue() != 0);
+        });
+    }
+
+    /**
+     * Makes sure that the projection returns the required fields, that are
+     * needed by the server to generate the links, check the ETag and compute
+     * the continuation tokens: they are added to the projections that include
+     * only the specified fields and removed from the ones that exclude them.
+     *
+     * @param keys a valid projection
+     * @param required the fields that must be returned
+     * @return the projection to pass to mongodb or null if keys is null or
+     * empty
+     */
+    public static DBObject normalize(DBObject keys, Collection<String> required) {
+        if (keys == null || keys.keySet().isEmpty()) {
+            return null;
+        }
+
+        BasicDBObject ret = new BasicDBObject();
+        ret.putAll(keys);
+
+        if (isInclusion(keys)) {
+            required.stream()
+                    .filter(field -> keys.keySet().stream().noneMatch(key -> field.startsWith(key + ".")))
+                    .forEach(field -> ret.put(field, 1));
+        } else {
+            required.stream().forEach(field -> ret.removeField(field));
+        }
+
+        // excluding only required fields means returning the whole documents
+        return ret.keySet().isEmpty() ? null : ret;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * RESTHeart - the data REST API server
+ * Copyright (C) 2014 - 2015 SoftInstigate Srl
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.restheart.hal.metadata;
+
+import com.mongodb.DBObject;
+import java.time.Instant;
+import org.bson.types.ObjectId;
+
+/**
+ * An immutable snapshot of the properties of a db or a collection. It is built
+ * once when the properties are loaded and shared read-only by the requests.
+ *
+ * @author Andrea Di Cesare <andrea@softinstigate.com>
+ */
+public abstract class Props {
+
+    private final DBObject props;
+    private final ObjectId etag;
+
+    /**
+     *
+     * @param props the properties as read from the db
+     */
+    protected Props(DBObject props) {
+        this.props = new ReadOnlyDBObject(props);
+
+        Object _etag = props.get("_etag");
+
+        this.etag = _etag instanceof ObjectId ? (ObjectId) _etag : null;
+    }
+
+    /**
+     * @return the properties, read-only
+     */
+    public DBObject getProps() {
+        return props;
+    }
+
+    /**
+     * @return the etag or null if missing
+     */
+    public ObjectId getEtag() {
+        return etag;
+    }
+
+    /**
+     * @return the time of the last update, from the etag, or null if missing
+     */
+    public Instant getLastUpdatedOn() {
+        return etag == null ? null : Instant.ofEpochSecond(etag.getTimestamp());
+    }
+
+    /**
+     * @return true if there are no properties
+     */
+    public boolean isEmpty() {
+        return props.keySet().isEmpty();
+    }
+}
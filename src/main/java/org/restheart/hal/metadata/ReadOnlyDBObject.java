@@ -0,0 +1,113 @@
+/*
+ * RESTHeart - the data REST API server
+ * Copyright (C) 2014 - 2015 SoftInstigate Srl
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.restheart.hal.metadata;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import org.bson.BSONObject;
+
+/**
+ * A read-only copy of a DBObject; the methods that would modify it throw
+ * UnsupportedOperationException. The copy is shallow: nested objects must not
+ * be modified.
+ *
+ * @author Andrea Di Cesare <andrea@softinstigate.com>
+ */
+class ReadOnlyDBObject implements DBObject {
+
+    private final BasicDBObject wrapped;
+
+    ReadOnlyDBObject(DBObject obj) {
+        this.wrapped = new BasicDBObject();
+        this.wrapped.putAll(obj);
+    }
+
+    @Override
+    public Object get(String key) {
+        return wrapped.get(key);
+    }
+
+    @Override
+    public boolean containsKey(String key) {
+        return wrapped.containsField(key);
+    }
+
+    @Override
+    public boolean containsField(String key) {
+        return wrapped.containsField(key);
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return Collections.unmodifiableSet(wrapped.keySet());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map toMap() {
+        return Collections.unmodifiableMap(wrapped.toMap());
+    }
+
+    @Override
+    public boolean isPartialObject() {
+        return false;
+    }
+
+    @Override
+    public Object put(String key, Object v) {
+        throw new UnsupportedOperationException("read-only object");
+    }
+
+    @Override
+    public void putAll(BSONObject o) {
+        throw new UnsupportedOperationException("read-only object");
+    }
+
+    @Override
+    public void putAll(Map m) {
+        throw new UnsupportedOperationException("read-only object");
+    }
+
+    @Override
+    public Object removeField(String key) {
+        throw new UnsupportedOperationException("read-only object");
+    }
+
+    @Override
+    public void markAsPartialObject() {
+        throw new UnsupportedOperationException("read-only object");
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ReadOnlyDBObject ? wrapped.equals(((ReadOnlyDBObject) o).wrapped) : wrapped.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return wrapped.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return wrapped.toString();
+    }
+}
@@ -24,9 +24,9 @@ import org.restheart.utils.URLUtils;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import org.restheart.utils.UnsupportedDocumentIdException;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 /**
  *
@@ -34,8 +34,6 @@ import org.slf4j.LoggerFactory;
  */
 public class Relationship {
 
-    private static final Logger LOGGER = LoggerFactory.getLogger(Relationship.class);
-
     public enum TYPE {
         ONE_TO_ONE,
         ONE_TO_MANY,
@@ -65,6 +63,13 @@ public class Relationship {
     private final String referenceField;
     private final boolean detectOids;
 
+    // the parts of the links that depend only on the relationship definition, without spaces as the links
+    private final String linkInfix;
+    private final String linkSuffix;
+
+    // the /db/coll prefixes of the links, mapped by the mongo-mounts, by db and mount
+    private final ConcurrentMap<String, String> linkPrefixes = new ConcurrentHashMap<>();
+
     /**
      *
      * @param rel
@@ -83,6 +88,8 @@ public class Relationship {
         this.targetCollection = targetCollection;
         this.referenceField = referenceField;
         this.detectOids = detectOids;
+        this.linkInfix = getLinkInfix(type, role, referenceField);
+        this.linkSuffix = getLinkSuffix(type, role, detectOids);
     }
 
     /**
@@ -115,6 +122,54 @@ public class Relationship {
         this.targetCollection = targetCollection;
         this.referenceField = referenceField;
         this.detectOids = detectOids == null ? true: detectOids;
+        this.linkInfix = getLinkInfix(this.type, this.role, referenceField);
+        this.linkSuffix = getLinkSuffix(this.type, this.role, this.detectOids);
+    }
+
+    /**
+     * @return the part of the link between the /db/coll prefix and the
+     * reference value
+     */
+    private static String getLinkInfix(TYPE type, ROLE role, String referenceField) {
+        String infix;
+
+        if (role == ROLE.OWNING) {
+            if (type == TYPE.ONE_TO_ONE || type == TYPE.MANY_TO_ONE) {
+                infix = "/";
+            } else {
+                infix = "?filter={'_id':{'$in':";
+            }
+        } else {
+            if (type == TYPE.ONE_TO_ONE || type == TYPE.ONE_TO_MANY) {
+                infix = "?filter={'" + referenceField + "':";
+            } else {
+                infix = "?filter={'" + referenceField + "':{'$elemMatch':{'$eq':";
+            }
+        }
+
+        return URLUtils.removeSpaces(infix);
+    }
+
+    /**
+     * @return the part of the link following the reference value; for links
+     * to documents, it depends on the id and it is not precomputed
+     */
+    private static String getLinkSuffix(TYPE type, ROLE role, boolean detectOids) {
+        String detectOidsParam = detectOids ? "" : "&detect_oids=false";
+
+        if (role == ROLE.OWNING) {
+            if (type == TYPE.ONE_TO_ONE || type == TYPE.MANY_TO_ONE) {
+                return null;
+            } else {
+                return "}}" + detectOidsParam;
+            }
+        } else {
+            if (type == TYPE.ONE_TO_ONE || type == TYPE.ONE_TO_MANY) {
+                return "}" + detectOidsParam;
+            } else {
+                return "}}}" + detectOidsParam;
+            }
+        }
     }
 
     /**
@@ -214,8 +269,8 @@ public class Relationship {
     public String getRelationshipLink(RequestContext context, String dbName, String collName, DBObject data) throws IllegalArgumentException, UnsupportedDocumentIdException {
         Object _referenceValue = data.get(referenceField);
         String db = (targetDb == null ? dbName : targetDb);
-        
-        // check _referenceValue
+
+        // the link is the precomputed parts with the reference value in between
         if (role == ROLE.OWNING) {
             if (_referenceValue == null) {
                 return null; // the reference field is missing or it value is null => do not generate a link
@@ -223,29 +278,33 @@ public class Relationship {
 
             if (type == TYPE.ONE_TO_ONE || type == TYPE.MANY_TO_ONE) {
                 Object id = _referenceValue;
-                return URLUtils.getUriWithDocId(context, db, targetCollection, id, detectOids);
+                return getLinkPrefix(context, db) + linkInfix + URLUtils.removeSpaces(id.toString())
+                        + URLUtils.getDocIdTypeQueryString(id, detectOids);
             } else {
-                if (!(_referenceValue instanceof BasicDBList)) {
+                if (!(_referenceValue instanceof List)) {
                     throw new IllegalArgumentException("in resource " + dbName + "/" + collName + "/" + data.get("_id")
                             + " the " + type.name() + " relationship ref-field " + this.referenceField + " should be an array, but is " + _referenceValue);
                 }
 
-                Object[] ids = ((BasicDBList) _referenceValue).toArray();
-                return URLUtils.getUriWithFilterMany(context, db, targetCollection, ids, detectOids);
+                Object[] ids = ((List) _referenceValue).toArray();
+                return getLinkPrefix(context, db) + linkInfix + URLUtils.removeSpaces(URLUtils.getIdsString(ids)) + linkSuffix;
             }
         } else {
             // INVERSE
             Object id = data.get("_id");
-            
-            if (type == TYPE.ONE_TO_ONE || type == TYPE.ONE_TO_MANY) {
-                return URLUtils.getUriWithFilterOne(context, db, targetCollection, referenceField, id, detectOids);
-            } else if (type == TYPE.MANY_TO_ONE || type == TYPE.MANY_TO_MANY) {
-                return URLUtils.getUriWithFilterManyInverse(context, db, targetCollection, referenceField, id, detectOids);
-            }
+
+            return getLinkPrefix(context, db) + linkInfix + URLUtils.removeSpaces(URLUtils.getIdString(id)) + linkSuffix;
         }
+    }
+
+    /**
+     * @return the /db/coll prefix of the links, mapped by the mongo-mount of
+     * the request
+     */
+    private String getLinkPrefix(RequestContext context, String db) {
+        String key = db + " " + context.getUriPrefix() + " " + context.getMappingUri();
 
-        LOGGER.debug("returned null link. this = {}, data = {}", this, data);
-        return null;
+        return linkPrefixes.computeIfAbsent(key, k -> context.mapUri(URLUtils.removeSpaces("/" + db + "/" + targetCollection)));
     }
 
     /**
@@ -0,0 +1,61 @@
+/*
+ * RESTHeart - the data REST API server
+ * Copyright (C) 2014 - 2015 SoftInstigate Srl
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.restheart.hal.metadata;
+
+import com.mongodb.DBObject;
+
+/**
+ * Enables or disables the response cache for the collection and its
+ * documents. It can be set for each collection via the response-cache
+ * collection property; otherwise the response-cache option of the
+ * configuration applies.
+ *
+ * @author Andrea Di Cesare <andrea@softinstigate.com>
+ */
+public class ResponseCachePolicy {
+
+    public static final String RESPONSE_CACHE_ELEMENT_NAME = "response-cache";
+
+    private ResponseCachePolicy() {
+    }
+
+    /**
+     *
+     * @param collProps
+     * @return true if the response cache is enabled for the collection, false
+     * if it is disabled or null if not specified
+     * @throws InvalidMetadataException
+     */
+    public static Boolean getFromJson(DBObject collProps) throws InvalidMetadataException {
+        if (collProps == null) {
+            return null;
+        }
+
+        Object _enabled = collProps.get(RESPONSE_CACHE_ELEMENT_NAME);
+
+        if (_enabled == null) {
+            return null;
+        }
+
+        if (!(_enabled instanceof Boolean)) {
+            throw new InvalidMetadataException("invalid " + RESPONSE_CACHE_ELEMENT_NAME + " element. it must be a boolean.");
+        }
+
+        return (Boolean) _enabled;
+    }
+}
@@ -20,6 +20,10 @@ package org.restheart.handlers;
 import com.mongodb.DBObject;
 import io.undertow.server.HttpServerExchange;
 import io.undertow.util.Headers;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.TreeMap;
 import org.restheart.hal.HALUtils;
@@ -41,16 +45,38 @@ public abstract class AbstractRepresentationFactory {
      * @param embeddedData
      * @param size
      * @throws IllegalQueryParamenterException
+     * @throws IOException
      */
     public void sendHal(HttpServerExchange exchange, RequestContext context, List<DBObject> embeddedData, long size)
-            throws IllegalQueryParamenterException {
+            throws IllegalQueryParamenterException, IOException {
         Representation rep = getRepresentation(exchange, context, embeddedData, size);
         
         if (context.getWarnings() != null)
             context.getWarnings().forEach(w -> rep.addWarning(w));
         
+        sendRepresentation(exchange, rep);
+    }
+
+    /**
+     * Streams the representation to the response channel while serializing
+     * it, via the (pooled buffers backed) exchange output stream.
+     *
+     * @param exchange
+     * @param rep
+     * @throws IOException
+     */
+    public static void sendRepresentation(HttpServerExchange exchange, Representation rep) throws IOException {
         exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, HAL_JSON_MEDIA_TYPE);
-        exchange.getResponseSender().send(rep.toString());
+
+        if (!exchange.isBlocking()) {
+            exchange.startBlocking();
+        }
+
+        Writer writer = new OutputStreamWriter(exchange.getOutputStream(), StandardCharsets.UTF_8);
+
+        rep.write(writer);
+
+        writer.flush();
     }
 
     protected abstract Representation getRepresentation(HttpServerExchange exchange, RequestContext context, List<DBObject> embeddedData, long size)
@@ -63,6 +89,10 @@ public abstract class AbstractRepresentationFactory {
 
             rep.addProperty("_size", size);
             rep.addProperty("_total_pages", Math.max(1, Math.round(Math.ceil(_size / _pagesize))));
+
+            if (context.isSizeEstimated()) {
+                rep.addProperty("_size_estimated", true);
+            }
         }
     }
 
@@ -0,0 +1,207 @@
+/*
+ * RESTHeart - the data REST API server
+ * Copyright (C) 2014 - 2015 SoftInstigate Srl
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.restheart.handlers;
+
+import io.undertow.security.api.SecurityContext;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.SameThreadExecutor;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import org.restheart.Bootstrapper;
+import org.restheart.db.AsyncDatabase;
+import org.restheart.db.AsyncDbsDAO;
+import org.restheart.db.Database;
+import org.restheart.db.DbsDAO;
+
+/**
+ * A PipedHttpHandler that handles the request in two phases: the query, that
+ * returns a future of the data read from mongodb, and the response, that sends
+ * it.
+ *
+ * If the future is already completed, as when the async pipeline is disabled,
+ * the response is sent by the calling thread. Otherwise the worker thread is
+ * released and, on completion, the response is dispatched to the executor of
+ * the blocking handler.
+ *
+ * @author Andrea Di Cesare <andrea@softinstigate.com>
+ * @param <T> the type of the data read in the query phase
+ */
+public abstract class AsyncPipedHttpHandler<T> extends PipedHttpHandler {
+
+    private final AsyncDatabase asyncDbsDAO;
+
+    /**
+     * Creates a default instance of AsyncPipedHttpHandler with next = null and
+     * dbsDAO = new DbsDAO()
+     */
+    public AsyncPipedHttpHandler() {
+        this(null, new DbsDAO());
+    }
+
+    /**
+     *
+     * @param next the next handler in this chain
+     */
+    public AsyncPipedHttpHandler(PipedHttpHandler next) {
+        this(next, new DbsDAO());
+    }
+
+    /**
+     * Inject a custom DbsDAO, usually a mock for testing purposes
+     *
+     * @param next
+     * @param dbsDAO
+     */
+    public AsyncPipedHttpHandler(PipedHttpHandler next, Database dbsDAO) {
+        super(next, dbsDAO);
+        this.asyncDbsDAO = new AsyncDbsDAO(dbsDAO);
+    }
+
+    /**
+     *
+     * @param exchange
+     * @param context
+     * @return the future of the data to send or null if the exchange has been
+     * already ended
+     * @throws Exception
+     */
+    protected abstract CompletableFuture<T> handleQuery(HttpServerExchange exchange, RequestContext context) throws Exception;
+
+    /**
+     * Returns the key of the query, to coalesce the concurrent identical
+     * queries with the SingleFlight. It must include everything the result of
+     * the query depends on; by default it is null and queries are not
+     * coalesced.
+     *
+     * If not null, handleQuery() must not return null and the result is shared
+     * and must not be modified.
+     *
+     * @param exchange
+     * @param context
+     * @return the key of the query or null if the query must not be coalesced
+     */
+    protected Object getQueryKey(HttpServerExchange exchange, RequestContext context) {
+        return null;
+    }
+
+    /**
+     *
+     * @param exchange
+     * @param context
+     * @param result the data read by the query
+     * @throws Exception
+     */
+    protected abstract void handleResult(HttpServerExchange exchange, RequestContext context, T result) throws Exception;
+
+    /**
+     * Handles the error of the query; by default it is rethrown, to be handled
+     * by the ErrorHandler.
+     *
+     * @param exchange
+     * @param context
+     * @param error the cause of the exceptional completion of the query
+     * @throws Exception
+     */
+    protected void handleError(HttpServerExchange exchange, RequestContext context, Throwable error) throws Exception {
+        if (error instanceof Exception) {
+            throw (Exception) error;
+        } else {
+            throw (Error) error;
+        }
+    }
+
+    /**
+     *
+     * @param exchange
+     * @param context
+     * @throws Exception
+     */
+    @Override
+    public void handleRequest(HttpServerExchange exchange, RequestContext context) throws Exception {
+        Object key = Bootstrapper.getConf().isSingleFlight() ? getQueryKey(exchange, context) : null;
+
+        CompletableFuture<T> query;
+
+        if (key == null) {
+            query = handleQuery(exchange, context);
+        } else {
+            query = SingleFlight.getInstance().execute(key, () -> {
+                try {
+                    return Objects.requireNonNull(handleQuery(exchange, context));
+                } catch (Exception ex) {
+                    throw new CompletionException(ex);
+                }
+            });
+        }
+
+        if (query == null) {
+            return;
+        }
+
+        if (query.isDone()) {
+            complete(exchange, context, query);
+        } else {
+            // the executor of the blocking handler, null for the worker threads
+            Executor executor = ElasticBlockingHandler.getExecutor(exchange);
+
+            // the exchange is not ended when the handlers return; the response is sent on completion
+            exchange.dispatch(SameThreadExecutor.INSTANCE, () -> {
+                query.whenComplete((result, error) -> {
+                    exchange.dispatch(executor, new ErrorHandler(ex -> complete(ex, context, query)));
+                });
+            });
+        }
+    }
+
+    private void complete(HttpServerExchange exchange, RequestContext context, CompletableFuture<T> query) throws Exception {
+        T result;
+
+        try {
+            result = query.join();
+        } catch (CompletionException | CancellationException ex) {
+            handleError(exchange, context, ex.getCause() == null ? ex : ex.getCause());
+            return;
+        }
+
+        handleResult(exchange, context, result);
+    }
+
+    /**
+     * @param exchange
+     * @return the name of the authenticated account or null
+     */
+    protected static String getAccountName(HttpServerExchange exchange) {
+        SecurityContext sc = exchange.getSecurityContext();
+
+        if (sc == null || sc.getAuthenticatedAccount() == null) {
+            return null;
+        }
+
+        return sc.getAuthenticatedAccount().getPrincipal().getName();
+    }
+
+    /**
+     * @return the asyncDbsDAO
+     */
+    protected AsyncDatabase getAsyncDatabase() {
+        return asyncDbsDAO;
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * RESTHeart - the data REST API server
+ * Copyright (C) 2014 - 2015 SoftInstigate Srl
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.restheart.handlers;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.AttachmentKey;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A BlockingHandler that dispatches the requests to an elastic pool of
+ * threads instead of the fixed pool of the worker threads. The threads are
+ * created on demand, up to maxThreads, and terminated after being idle for 60
+ * seconds, so that the requests blocked waiting for mongodb don't queue the
+ * other ones. When all the threads are busy, the requests are dispatched to
+ * the worker threads.
+ *
+ * The executor is attached to the exchange with the key EXECUTOR_KEY, so that
+ * the continuations of the request can be dispatched to it; Undertow resets
+ * the dispatch executor of the exchange once the handler chain is running.
+ *
+ * @author Andrea Di Cesare <andrea@softinstigate.com>
+ */
+public class ElasticBlockingHandler implements HttpHandler {
+
+    /**
+     * the key of the exchange attachment with the executor of the request
+     */
+    public static final AttachmentKey<Executor> EXECUTOR_KEY = AttachmentKey.create(Executor.class);
+
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    private final HttpHandler next;
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Creates a new instance of ElasticBlockingHandler
+     *
+     * @param next
+     * @param maxThreads the maximum number of threads of the pool
+     */
+    public ElasticBlockingHandler(HttpHandler next, int maxThreads) {
+        this.next = next;
+
+        this.executor = new ThreadPoolExecutor(0, Math.max(1, maxThreads),
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new SynchronousQueue<>(),
+                new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .setNameFormat("elastic-worker-%d")
+                .build());
+    }
+
+    @Override
+    public void handleRequest(HttpServerExchange exchange) throws Exception {
+        exchange.startBlocking();
+
+        Executor dispatcher = task -> {
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException ree) {
+                // all the elastic threads are busy
+                exchange.getConnection().getWorker().execute(task);
+            }
+        };
+
+        exchange.putAttachment(EXECUTOR_KEY, dispatcher);
+
+        if (exchange.isInIoThread()) {
+            exchange.dispatch(dispatcher, next);
+        } else {
+            next.handleRequest(exchange);
+        }
+    }
+
+    /**
+     * @param exchange
+     * @return the executor of the request attached by the
+     * ElasticBlockingHandler, or null to dispatch to the worker threads
+     */
+    public static Executor getExecutor(HttpServerExchange exchange) {
+        return exchange.getAttachment(EXECUTOR_KEY);
+    }
+}
@@ -22,6 +22,7 @@ import org.restheart.handlers.document.DocumentRepresentationFactory;
 import org.restheart.utils.HttpStatus;
 import io.undertow.server.HttpHandler;
 import io.undertow.server.HttpServerExchange;
+import java.io.IOException;
 import java.net.URISyntaxException;
 import org.restheart.db.Database;
 import org.restheart.db.DbsDAO;
@@ -75,7 +76,7 @@ public abstract class PipedHttpHandler implements HttpHandler {
         handleRequest(exchange, null);
     }
 
-    protected static void sendWarnings(int SC, HttpServerExchange exchange, RequestContext context) throws IllegalQueryParamenterException, URISyntaxException {
+    protected static void sendWarnings(int SC, HttpServerExchange exchange, RequestContext context) throws IllegalQueryParamenterException, URISyntaxException, IOException {
         if (SC == HttpStatus.SC_NO_CONTENT) {
             exchange.setResponseCode(HttpStatus.SC_OK);
         } else {
@@ -0,0 +1,200 @@
+/*
+ * RESTHeart - the data REST API server
+ * Copyright (C) 2014 - 2015 SoftInstigate Srl
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.restheart.handlers;
+
+import com.mongodb.DBObject;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.Headers;
+import io.undertow.util.HttpString;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import org.bson.BasicBSONEncoder;
+import org.restheart.db.RawDBObject;
+import org.restheart.hal.BsonJsonTranscoder;
+import static org.restheart.hal.Representation.BSON_MEDIA_TYPE;
+import static org.restheart.hal.Representation.JSON_MEDIA_TYPE;
+import static org.restheart.hal.Representation.NDJSON_MEDIA_TYPE;
+import org.restheart.handlers.RequestContext.REPRESENTATION_FORMAT;
+
+/**
+ * Sends documents in the bson and ndjson formats (and, for streamed exports, as
+ * a json array), bypassing the HAL representation: the documents are written
+ * one at a time to the response channel as they are stored, i.e. without the
+ * _links, _embedded and the computed properties (_type, _created_on and
+ * _lastupdated_on).
+ *
+ * @author Andrea Di Cesare <andrea@softinstigate.com>
+ */
+public class RawDocumentsSender {
+
+    /**
+     * the size of the chunks of ndjson written to the response channel
+     */
+    private static final int WRITE_CHUNK_SIZE = 8 * 1024;
+
+    private RawDocumentsSender() {
+    }
+
+    /**
+     * @param context
+     * @return true if the documents must be sent with sendDocuments()
+     */
+    public static boolean isRawFormat(RequestContext context) {
+        return context.getRepresentationFormat() == REPRESENTATION_FORMAT.BSON
+                || context.getRepresentationFormat() == REPRESENTATION_FORMAT.NDJSON;
+    }
+
+    /**
+     * Sends the documents as concatenated bson documents or as one json
+     * document per line, depending on the representation format of the
+     * request.
+     *
+     * @param exchange
+     * @param context
+     * @param documents
+     * @param links the links to send in the Link header, as the pagination
+     * links of collections; can be null
+     * @throws IOException
+     */
+    public static void sendDocuments(HttpServerExchange exchange, RequestContext context, List<DBObject> documents, Map<String, String> links) throws IOException {
+        if (links != null && !links.isEmpty()) {
+            StringBuilder header = new StringBuilder();
+
+            links.forEach((rel, href) -> {
+                if (header.length() > 0) {
+                    header.append(", ");
+                }
+
+                header.append("<").append(href).append(">; rel=\"").append(rel).append("\"");
+            });
+
+            exchange.getResponseHeaders().put(HttpString.tryFromString("Link"), header.toString());
+        }
+
+        if (documents == null) {
+            documents = Collections.emptyList();
+        }
+
+        writeDocuments(exchange, context.getRepresentationFormat(), documents.iterator(), false);
+    }
+
+    /**
+     * Streams all the documents returned by the iterator, usually a cursor,
+     * as concatenated bson documents, as one json document per line or, if
+     * the representation format is HAL, as a json array of documents.
+     *
+     * The documents are written one at a time: the writes block when the
+     * response buffer is full until the client reads it, so that a slow
+     * client also slows down the iteration and no more than a chunk of the
+     * response is held in memory.
+     *
+     * @param exchange
+     * @param context
+     * @param documents
+     * @throws IOException
+     */
+    public static void streamDocuments(HttpServerExchange exchange, RequestContext context, Iterator<DBObject> documents) throws IOException {
+        writeDocuments(exchange, context.getRepresentationFormat(), documents, context.getRepresentationFormat() == REPRESENTATION_FORMAT.HAL);
+    }
+
+    private static void writeDocuments(HttpServerExchange exchange, REPRESENTATION_FORMAT format, Iterator<DBObject> documents, boolean jsonArray) throws IOException {
+        if (!exchange.isBlocking()) {
+            exchange.startBlocking();
+        }
+
+        if (format == REPRESENTATION_FORMAT.BSON) {
+            exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, BSON_MEDIA_TYPE);
+            writeBson(exchange.getOutputStream(), documents);
+        } else if (jsonArray) {
+            exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, JSON_MEDIA_TYPE);
+            writeJson(exchange.getOutputStream(), documents, true);
+        } else {
+            exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, NDJSON_MEDIA_TYPE);
+            writeJson(exchange.getOutputStream(), documents, false);
+        }
+    }
+
+    private static void writeBson(OutputStream out, Iterator<DBObject> documents) throws IOException {
+        BasicBSONEncoder encoder = null;
+
+        while (documents.hasNext()) {
+            DBObject document = documents.next();
+
+            if (document instanceof RawDBObject) {
+                // the bytes returned by mongodb
+                RawDBObject raw = (RawDBObject) document;
+                out.write(raw.getRawBytes(), raw.getRawOffset(), raw.getBSONSize());
+            } else {
+                if (encoder == null) {
+                    encoder = new BasicBSONEncoder();
+                }
+
+                out.write(encoder.encode(document));
+            }
+        }
+
+        out.flush();
+    }
+
+    /**
+     * writes the documents as ndjson or, if array is true, as a json array
+     */
+    private static void writeJson(OutputStream out, Iterator<DBObject> documents, boolean array) throws IOException {
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        StringBuilder buf = new StringBuilder(2 * WRITE_CHUNK_SIZE);
+
+        if (array) {
+            buf.append("[ ");
+        }
+
+        boolean first = true;
+
+        while (documents.hasNext()) {
+            if (array && !first) {
+                buf.append(" , ");
+            }
+
+            first = false;
+
+            BsonJsonTranscoder.writeJson(documents.next(), buf);
+
+            if (!array) {
+                buf.append('\n');
+            }
+
+            if (buf.length() >= WRITE_CHUNK_SIZE) {
+                writer.append(buf);
+                buf.setLength(0);
+            }
+        }
+
+        if (array) {
+            buf.append("]");
+        }
+
+        writer.append(buf);
+        writer.flush();
+    }
+}
@@ -19,6 +19,9 @@ package org.restheart.handlers;
 
 import com.mongodb.DBObject;
 import org.restheart.db.DBCursorPool.EAGER_CURSOR_ALLOCATION_POLICY;
+import org.restheart.db.CompiledQuery;
+import org.restheart.hal.metadata.CollectionProps;
+import org.restheart.hal.metadata.DbProps;
 import org.restheart.utils.URLUtils;
 import io.undertow.server.HttpServerExchange;
 import io.undertow.util.HttpString;
@@ -71,11 +74,21 @@ public class RequestContext {
         MAXKEY // org.bson.types.MaxKey
     }
 
+    public enum REPRESENTATION_FORMAT {
+        HAL, // application/hal+json, the default
+        NDJSON, // application/x-ndjson, one json document per line
+        BSON // application/bson, concatenated bson documents
+    }
+
     public static final String PAGE_QPARAM_KEY = "page";
     public static final String PAGESIZE_QPARAM_KEY = "pagesize";
     public static final String COUNT_QPARAM_KEY = "count";
+    public static final String KEYSET_QPARAM_KEY = "keyset";
+    public static final String AFTER_QPARAM_KEY = "after";
+    public static final String STREAM_QPARAM_KEY = "stream";
     public static final String SORT_BY_QPARAM_KEY = "sort_by";
     public static final String FILTER_QPARAM_KEY = "filter";
+    public static final String KEYS_QPARAM_KEY = "keys";
     public static final String EAGER_CURSOR_ALLOCATION_POLICY_QPARAM_KEY = "eager";
     public static final String DOC_ID_TYPE_KEY = "id_type";
     public static final String SLASH = "/";
@@ -99,8 +112,10 @@ public class RequestContext {
     private final METHOD method;
     private final String[] pathTokens;
 
-    private DBObject dbProperties;
-    private DBObject collectionProps;
+    private DbProps dbProperties;
+    private CollectionProps collectionProps;
+    private boolean dbPropsCached = false;
+    private boolean collectionPropsCached = false;
 
     private DBObject content;
 
@@ -109,9 +124,18 @@ public class RequestContext {
     private int page = 1;
     private int pagesize = 100;
     private boolean count = false;
+    private boolean keyset = false;
+    private boolean stream = false;
+    private String continuationToken = null;
+    private String nextContinuationToken = null;
     private EAGER_CURSOR_ALLOCATION_POLICY cursorAllocationPolicy;
+    private REPRESENTATION_FORMAT representationFormat = REPRESENTATION_FORMAT.HAL;
     private Deque<String> filter = null;
     private Deque<String> sortBy = null;
+    private Deque<String> keys = null;
+    private CompiledQuery query = null;
+    private boolean sizeEstimated = false;
+    private String collectionEtag = null;
     private DOC_ID_TYPE docIdType = DOC_ID_TYPE.STRING_OID;
     private Object documentId;
 
@@ -477,31 +501,59 @@ public class RequestContext {
     /**
      * @return the collectionProps
      */
-    public DBObject getCollectionProps() {
+    public CollectionProps getCollectionProps() {
         return collectionProps;
     }
 
     /**
      * @param collectionProps the collectionProps to set
      */
-    public void setCollectionProps(DBObject collectionProps) {
+    public void setCollectionProps(CollectionProps collectionProps) {
         this.collectionProps = collectionProps;
     }
 
     /**
      * @return the dbProperties
      */
-    public DBObject getDbProperties() {
+    public DbProps getDbProperties() {
         return dbProperties;
     }
 
     /**
      * @param dbProperties the dbProperties to set
      */
-    public void setDbProperties(DBObject dbProperties) {
+    public void setDbProperties(DbProps dbProperties) {
         this.dbProperties = dbProperties;
     }
 
+    /**
+     * @return true if the dbProperties have been read from the local cache
+     */
+    public boolean isDbPropsCached() {
+        return dbPropsCached;
+    }
+
+    /**
+     * @param dbPropsCached the dbPropsCached to set
+     */
+    public void setDbPropsCached(boolean dbPropsCached) {
+        this.dbPropsCached = dbPropsCached;
+    }
+
+    /**
+     * @return true if the collectionProps have been read from the local cache
+     */
+    public boolean isCollectionPropsCached() {
+        return collectionPropsCached;
+    }
+
+    /**
+     * @param collectionPropsCached the collectionPropsCached to set
+     */
+    public void setCollectionPropsCached(boolean collectionPropsCached) {
+        this.collectionPropsCached = collectionPropsCached;
+    }
+
     /**
      * @return the content
      */
@@ -595,4 +647,132 @@ public class RequestContext {
     public Object getDocumentId() {
         return documentId;
     }
+
+    /**
+     * @return the keyset
+     */
+    public boolean isKeyset() {
+        return keyset;
+    }
+
+    /**
+     * @param keyset the keyset to set
+     */
+    public void setKeyset(boolean keyset) {
+        this.keyset = keyset;
+    }
+
+    /**
+     * @return the continuationToken
+     */
+    public String getContinuationToken() {
+        return continuationToken;
+    }
+
+    /**
+     * @param continuationToken the continuationToken to set
+     */
+    public void setContinuationToken(String continuationToken) {
+        this.continuationToken = continuationToken;
+    }
+
+    /**
+     * @return the nextContinuationToken
+     */
+    public String getNextContinuationToken() {
+        return nextContinuationToken;
+    }
+
+    /**
+     * @param nextContinuationToken the nextContinuationToken to set
+     */
+    public void setNextContinuationToken(String nextContinuationToken) {
+        this.nextContinuationToken = nextContinuationToken;
+    }
+
+    /**
+     * @return the keys
+     */
+    public Deque<String> getKeys() {
+        return keys;
+    }
+
+    /**
+     * @param keys the keys to set
+     */
+    public void setKeys(Deque<String> keys) {
+        this.keys = keys;
+    }
+
+    /**
+     * @return the query compiled from the filter, sort_by and keys query
+     * parameters
+     */
+    public CompiledQuery getQuery() {
+        return query;
+    }
+
+    /**
+     * @param query the query to set
+     */
+    public void setQuery(CompiledQuery query) {
+        this.query = query;
+    }
+
+    /**
+     * @return the sizeEstimated
+     */
+    public boolean isSizeEstimated() {
+        return sizeEstimated;
+    }
+
+    /**
+     * @param sizeEstimated the sizeEstimated to set
+     */
+    public void setSizeEstimated(boolean sizeEstimated) {
+        this.sizeEstimated = sizeEstimated;
+    }
+
+    /**
+     * @return the etag of the collection page, derived from the collection
+     * version
+     */
+    public String getCollectionEtag() {
+        return collectionEtag;
+    }
+
+    /**
+     * @param collectionEtag the collectionEtag to set
+     */
+    public void setCollectionEtag(String collectionEtag) {
+        this.collectionEtag = collectionEtag;
+    }
+
+    /**
+     * @return the representationFormat
+     */
+    public REPRESENTATION_FORMAT getRepresentationFormat() {
+        return representationFormat;
+    }
+
+    /**
+     * @param representationFormat the representationFormat to set
+     */
+    public void setRepresentationFormat(REPRESENTATION_FORMAT representationFormat) {
+        this.representationFormat = representationFormat;
+    }
+
+    /**
+     * @return the stream
+     */
+    public boolean isStream() {
+        return stream;
+    }
+
+    /**
+     * @param stream the stream to set
+     */
+    public void setStream(boolean stream) {
+        this.stream = stream;
+    }
 }
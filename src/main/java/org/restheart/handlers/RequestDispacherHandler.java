@@ -99,14 +99,14 @@ public final class RequestDispacherHandler extends PipedHttpHandler {
 
         // COLLECTION handlres
         final GetCollectionHandler getCollectionHandler = new GetCollectionHandler();
-        putPipedHttpHandler(TYPE.COLLECTION, METHOD.GET, getCollectionHandler);
+        putPipedHttpHandler(TYPE.COLLECTION, METHOD.GET, new ResponseCacheHandler(getCollectionHandler));
         putPipedHttpHandler(TYPE.COLLECTION, METHOD.POST, new PostCollectionHandler());
         putPipedHttpHandler(TYPE.COLLECTION, METHOD.PUT, new PutCollectionHandler());
         putPipedHttpHandler(TYPE.COLLECTION, METHOD.DELETE, new DeleteCollectionHandler());
         putPipedHttpHandler(TYPE.COLLECTION, METHOD.PATCH, new PatchCollectionHandler());
 
         // DOCUMENT handlers
-        putPipedHttpHandler(TYPE.DOCUMENT, METHOD.GET, new GetDocumentHandler());
+        putPipedHttpHandler(TYPE.DOCUMENT, METHOD.GET, new ResponseCacheHandler(new GetDocumentHandler()));
         putPipedHttpHandler(TYPE.DOCUMENT, METHOD.PUT, new PutDocumentHandler());
         putPipedHttpHandler(TYPE.DOCUMENT, METHOD.DELETE, new DeleteDocumentHandler());
         putPipedHttpHandler(TYPE.DOCUMENT, METHOD.PATCH, new PatchDocumentHandler());
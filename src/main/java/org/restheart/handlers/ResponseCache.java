@@ -0,0 +1,210 @@
+/*
+ * RESTHeart - the data REST API server
+ * Copyright (C) 2014 - 2015 SoftInstigate Srl
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.restheart.handlers;
+
+import io.undertow.util.HttpString;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import org.restheart.Bootstrapper;
+import org.restheart.cache.Cache;
+import org.restheart.cache.CacheFactory;
+
+/**
+ * Caches the responses of the GET requests of documents and collections.
+ *
+ * The entries are bounded by the size of their bodies and hold the version
+ * of the collection read before the request was handled: an entry is stale,
+ * and removed when looked up, if the collection has been written since.
+ *
+ * @author Andrea Di Cesare <andrea@softinstigate.com>
+ */
+public class ResponseCache {
+
+    // the estimated size of the key and headers of an entry
+    private static final int ENTRY_OVERHEAD = 512;
+
+    private final Cache<Object, CachedResponse> cache;
+    private final long maxEntrySize;
+
+    private final AtomicLong hits = new AtomicLong(0);
+    private final AtomicLong misses = new AtomicLong(0);
+
+    public static ResponseCache getInstance() {
+        return ResponseCacheSingletonHolder.INSTANCE;
+    }
+
+    /**
+     *
+     * @param maxSize the maximum size of the cached bodies in bytes
+     * @param ttl the time to live of the entries in msecs
+     */
+    ResponseCache(long maxSize, long ttl) {
+        this.cache = CacheFactory.createLocalWeightedCache(maxSize,
+                (CachedResponse r) -> r.getBody().length + (r.getGzippedBody() == null ? 0 : r.getGzippedBody().length) + ENTRY_OVERHEAD,
+                Cache.EXPIRE_POLICY.AFTER_WRITE, ttl, entry -> {
+                });
+
+        // the weight limit is split among the segments of the cache, larger entries would be evicted right away
+        this.maxEntrySize = maxSize / 16;
+    }
+
+    /**
+     *
+     * @param key the key of the request
+     * @param version the current version of the collection
+     * @return the cached response or null if missing or stale
+     */
+    public CachedResponse get(Object key, long version) {
+        Optional<CachedResponse> cached = cache.get(key);
+
+        if (cached != null && cached.isPresent()) {
+            if (cached.get().getVersion() == version) {
+                hits.incrementAndGet();
+                return cached.get();
+            }
+
+            cache.invalidate(key);
+        }
+
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     *
+     * @param key the key of the request
+     * @param response the response to cache
+     */
+    public void put(Object key, CachedResponse response) {
+        if (response.getBody().length <= maxEntrySize) {
+            cache.put(key, response);
+        }
+    }
+
+    /**
+     * @return the maximum size of the body of a cached response
+     */
+    public long getMaxEntrySize() {
+        return maxEntrySize;
+    }
+
+    /**
+     * @return the number of the requests served from the cache
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of the requests not found in the cache
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return the ratio of the requests served from the cache
+     */
+    public double getHitRate() {
+        long _hits = hits.get();
+        long total = _hits + misses.get();
+
+        return total == 0 ? 0 : (double) _hits / total;
+    }
+
+    /**
+     * @return the number of the cached responses
+     */
+    public long getEntries() {
+        return cache.asMap().size();
+    }
+
+    /**
+     * a cached response; it is shared by the requests and must not be modified
+     */
+    public static class CachedResponse {
+
+        private final long version;
+        private final Map<HttpString, String> headers;
+        private final byte[] body;
+        private final byte[] gzippedBody;
+
+        /**
+         *
+         * @param version the version of the collection read before the
+         * request was handled
+         * @param headers the response headers to replay
+         * @param body the response body, not encoded
+         */
+        public CachedResponse(long version, Map<HttpString, String> headers, byte[] body) {
+            this(version, headers, body, null);
+        }
+
+        /**
+         *
+         * @param version the version of the collection read before the
+         * request was handled
+         * @param headers the response headers to replay
+         * @param body the response body, not encoded
+         * @param gzippedBody the response body gzip encoded, or null
+         */
+        public CachedResponse(long version, Map<HttpString, String> headers, byte[] body, byte[] gzippedBody) {
+            this.version = version;
+            this.headers = Collections.unmodifiableMap(headers);
+            this.body = body;
+            this.gzippedBody = gzippedBody;
+        }
+
+        /**
+         * @return the version
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * @return the headers
+         */
+        public Map<HttpString, String> getHeaders() {
+            return headers;
+        }
+
+        /**
+         * @return the body
+         */
+        public byte[] getBody() {
+            return body;
+        }
+
+        /**
+         * @return the gzipped body or null if not cached gzipped
+         */
+        public byte[] getGzippedBody() {
+            return gzippedBody;
+        }
+    }
+
+    private static class ResponseCacheSingletonHolder {
+
+        private static final ResponseCache INSTANCE = new ResponseCache(
+                Bootstrapper.getConf().getResponseCacheSize(),
+                Bootstrapper.getConf().getResponseCacheTTL());
+    }
+}
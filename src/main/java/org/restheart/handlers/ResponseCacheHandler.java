@@ -0,0 +1,307 @@
+/*
+ * RESTHeart - the data REST API server
+ * Copyright (C) 2014 - 2015 SoftInstigate Srl
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.restheart.handlers;
+
+import io.undertow.io.BlockingSenderImpl;
+import io.undertow.io.Sender;
+import io.undertow.server.BlockingHttpExchange;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.handlers.encoding.AllowedContentEncodings;
+import io.undertow.util.Headers;
+import io.undertow.util.HttpString;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+import org.restheart.Bootstrapper;
+import org.restheart.db.CollectionVersions;
+import org.restheart.hal.metadata.InvalidMetadataException;
+import org.restheart.utils.HttpStatus;
+import org.restheart.utils.RequestHelper;
+import org.restheart.utils.ResponseHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Serves the GET requests of documents and collections from the
+ * ResponseCache; on a miss, the response sent by the next handler is captured
+ * and cached if successful.
+ *
+ * The key of a request is its path and query string, since the HAL
+ * representation embeds them in its links, plus the representation format and
+ * the authenticated account. The bodies are cached not encoded, and the gzip
+ * encoding, if requested, is applied to each response; with
+ * response-cache-gzip they are also cached gzipped, and sent as they are to
+ * the requests accepting gzip.
+ *
+ * The responses vary by the Accept header, that selects the representation
+ * format, and by the Accept-Encoding header.
+ *
+ * @author Andrea Di Cesare <andrea@softinstigate.com>
+ */
+public class ResponseCacheHandler extends PipedHttpHandler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResponseCacheHandler.class);
+
+    private static final List<HttpString> CACHED_HEADERS = Arrays.asList(
+            Headers.CONTENT_TYPE,
+            Headers.ETAG,
+            HttpString.tryFromString("Link"));
+
+    private static final String VARY = "Accept, Accept-Encoding";
+
+    private static final String GZIP = "gzip";
+
+    /**
+     *
+     * @param next the handler of the GET request
+     */
+    public ResponseCacheHandler(PipedHttpHandler next) {
+        super(next);
+    }
+
+    /**
+     *
+     * @param exchange
+     * @param context
+     * @throws Exception
+     */
+    @Override
+    public void handleRequest(HttpServerExchange exchange, RequestContext context) throws Exception {
+        if (context.isStream() || !exchange.isBlocking() || !isEnabled(context)) {
+            getNext().handleRequest(exchange, context);
+            return;
+        }
+
+        // read before handling the request, so that a write in the meantime makes the entry stale
+        long version = CollectionVersions.getInstance().getVersion(context.getDBName(), context.getCollectionName());
+
+        Object key = Arrays.asList(context.getType(), exchange.getRequestPath(), exchange.getQueryString(),
+                context.getRepresentationFormat(), AsyncPipedHttpHandler.getAccountName(exchange));
+
+        ResponseCache.CachedResponse cached = ResponseCache.getInstance().get(key, version);
+
+        if (cached != null) {
+            sendCachedResponse(exchange, cached);
+            return;
+        }
+
+        exchange.getResponseHeaders().put(Headers.VARY, VARY);
+
+        CapturingBlockingHttpExchange capturing = new CapturingBlockingHttpExchange(exchange, ResponseCache.getInstance().getMaxEntrySize());
+        capturing.wrapped = exchange.startBlocking(capturing);
+
+        exchange.addExchangeCompleteListener((ex, nextListener) -> {
+            try {
+                byte[] body = capturing.getCaptured();
+
+                if (ex.getResponseCode() == HttpStatus.SC_OK && body != null) {
+                    Map<HttpString, String> headers = new HashMap<>();
+
+                    CACHED_HEADERS.stream().forEach(header -> {
+                        String value = ex.getResponseHeaders().getFirst(header);
+
+                        if (value != null) {
+                            headers.put(header, value);
+                        }
+                    });
+
+                    byte[] gzippedBody = Bootstrapper.getConf().isResponseCacheGzip() ? gzip(body) : null;
+
+                    ResponseCache.getInstance().put(key, new ResponseCache.CachedResponse(version, headers, body, gzippedBody));
+                }
+            } finally {
+                nextListener.proceed();
+            }
+        });
+
+        getNext().handleRequest(exchange, context);
+    }
+
+    private void sendCachedResponse(HttpServerExchange exchange, ResponseCache.CachedResponse cached) throws IOException {
+        String etag = cached.getHeaders().get(Headers.ETAG);
+
+        exchange.getResponseHeaders().put(Headers.VARY, VARY);
+
+        // in case the request contains the IF_NONE_MATCH header with the current etag value,
+        // just return 304 NOT_MODIFIED code
+        if (RequestHelper.checkReadEtag(exchange, etag)) {
+            exchange.getResponseHeaders().put(Headers.ETAG, etag);
+            ResponseHelper.endExchange(exchange, HttpStatus.SC_NOT_MODIFIED);
+            return;
+        }
+
+        exchange.setResponseCode(HttpStatus.SC_OK);
+
+        cached.getHeaders().entrySet().stream().forEach(header -> {
+            exchange.getResponseHeaders().put(header.getKey(), header.getValue());
+        });
+
+        if (cached.getGzippedBody() != null && isGzipAccepted(exchange)) {
+            // the encoding handler does not encode a response with the Content-Encoding header
+            exchange.getResponseHeaders().put(Headers.CONTENT_ENCODING, GZIP);
+            exchange.setResponseContentLength(cached.getGzippedBody().length);
+            exchange.getOutputStream().write(cached.getGzippedBody());
+        } else {
+            exchange.getOutputStream().write(cached.getBody());
+        }
+
+        exchange.endExchange();
+    }
+
+    /**
+     * @param exchange
+     * @return true if the encoding handler selected the gzip encoding for the
+     * response
+     */
+    private static boolean isGzipAccepted(HttpServerExchange exchange) {
+        AllowedContentEncodings encodings = exchange.getAttachment(AllowedContentEncodings.ATTACHMENT_KEY);
+
+        return encodings != null && GZIP.equals(encodings.getCurrentContentEncoding());
+    }
+
+    /**
+     * @param body
+     * @return the body gzip encoded
+     */
+    static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream ret = new ByteArrayOutputStream(body.length / 4 + 64);
+
+        try (GZIPOutputStream out = new GZIPOutputStream(ret)) {
+            out.write(body);
+        } catch (IOException ioe) {
+            // writing to a ByteArrayOutputStream does not fail
+            throw new UncheckedIOException(ioe);
+        }
+
+        return ret.toByteArray();
+    }
+
+    private boolean isEnabled(RequestContext context) {
+        try {
+            Boolean enabled = context.getCollectionProps() == null ? null : context.getCollectionProps().getResponseCache();
+
+            return enabled == null ? Bootstrapper.getConf().isResponseCache() : enabled;
+        } catch (InvalidMetadataException ime) {
+            LOGGER.warn("wrong response cache property of collection {}/{}, using the default one", context.getDBName(), context.getCollectionName(), ime);
+            return Bootstrapper.getConf().isResponseCache();
+        }
+    }
+
+    /**
+     * the blocking exchange that copies the response body written to its
+     * output stream, up to the given size
+     */
+    private static class CapturingBlockingHttpExchange implements BlockingHttpExchange {
+
+        private final HttpServerExchange exchange;
+        private final long maxSize;
+
+        private BlockingHttpExchange wrapped;
+        private OutputStream out;
+        private Sender sender;
+
+        private ByteArrayOutputStream captured = new ByteArrayOutputStream();
+
+        CapturingBlockingHttpExchange(HttpServerExchange exchange, long maxSize) {
+            this.exchange = exchange;
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return wrapped.getInputStream();
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            if (out == null) {
+                out = new CapturingOutputStream(wrapped.getOutputStream());
+            }
+
+            return out;
+        }
+
+        @Override
+        public Sender getSender() {
+            if (sender == null) {
+                sender = new BlockingSenderImpl(exchange, getOutputStream());
+            }
+
+            return sender;
+        }
+
+        @Override
+        public void close() throws IOException {
+            wrapped.close();
+        }
+
+        /**
+         * @return the captured body or null if larger than the maximum size
+         */
+        synchronized byte[] getCaptured() {
+            return captured == null ? null : captured.toByteArray();
+        }
+
+        private synchronized void capture(byte[] b, int off, int len) {
+            if (captured != null) {
+                if (captured.size() + len > maxSize) {
+                    captured = null;
+                } else {
+                    captured.write(b, off, len);
+                }
+            }
+        }
+
+        private class CapturingOutputStream extends OutputStream {
+
+            private final OutputStream delegate;
+
+            CapturingOutputStream(OutputStream delegate) {
+                this.delegate = delegate;
+            }
+
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                delegate.write(b, off, len);
+                capture(b, off, len);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                delegate.flush();
+            }
+
+            @Override
+            public void close() throws IOException {
+                delegate.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * RESTHeart - the data REST API server
+ * Copyright (C) 2014 - 2015 SoftInstigate Srl
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.restheart.handlers;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces the concurrent identical queries: the first request executes the
+ * query and the requests with the same key arriving while it is in flight get
+ * its result, without querying the db.
+ *
+ * The keys must include everything the result depends on, including the
+ * version of the collection, so that a request following a write never gets
+ * the result of a query started before it.
+ *
+ * @author Andrea Di Cesare <andrea@softinstigate.com>
+ */
+public class SingleFlight {
+
+    private final ConcurrentMap<Object, CompletableFuture<?>> flights = new ConcurrentHashMap<>();
+
+    private final AtomicLong requests = new AtomicLong(0);
+    private final AtomicLong coalesced = new AtomicLong(0);
+
+    public static SingleFlight getInstance() {
+        return SingleFlightSingletonHolder.INSTANCE;
+    }
+
+    private SingleFlight() {
+    }
+
+    /**
+     *
+     * @param <T>
+     * @param key the key identifying the query
+     * @param query the supplier of the future of the query, invoked only if
+     * there is no query with the same key in flight
+     * @return the future of the query in flight with the same key or of the
+     * new one
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> execute(Object key, Supplier<CompletableFuture<T>> query) {
+        requests.incrementAndGet();
+
+        CompletableFuture<T> flight = new CompletableFuture<>();
+
+        CompletableFuture<?> existing = flights.putIfAbsent(key, flight);
+
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            return (CompletableFuture<T>) existing;
+        }
+
+        try {
+            query.get().whenComplete((result, error) -> {
+                flights.remove(key, flight);
+
+                if (error != null) {
+                    flight.completeExceptionally(error);
+                } else {
+                    flight.complete(result);
+                }
+            });
+        } catch (Throwable t) {
+            flights.remove(key, flight);
+            flight.completeExceptionally(t);
+        }
+
+        return flight;
+    }
+
+    /**
+     * @return the number of the queries requested
+     */
+    public long getRequests() {
+        return requests.get();
+    }
+
+    /**
+     * @return the number of the queries that got the result of a query in
+     * flight
+     */
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    /**
+     * @return the ratio of the coalesced queries to the requested ones
+     */
+    public double getCoalescingRatio() {
+        long _requests = requests.get();
+
+        return _requests == 0 ? 0 : (double) coalesced.get() / _requests;
+    }
+
+    /**
+     * @return the number of the queries in flight
+     */
+    public int getInFlight() {
+        return flights.size();
+    }
+
+    private static class SingleFlightSingletonHolder {
+
+        private static final SingleFlight INSTANCE = new SingleFlight();
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * RESTHeart - the data REST API server
+ * Copyright (C) 2014 - 2015 SoftInstigate Srl
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.restheart.handlers;
+
+/**
+ * Exposes the single flight statistics via JMX with the object name
+ * org.restheart:type=SingleFlight
+ *
+ * @author Andrea Di Cesare <andrea@softinstigate.com>
+ */
+public class SingleFlightStats implements SingleFlightStatsMBean {
+
+    public static final String OBJECT_NAME = "org.restheart:type=SingleFlight";
+
+    @Override
+    public long getRequests() {
+        return SingleFlight.getInstance().getRequests();
+    }
+
+    @Override
+    public long getCoalesced() {
+        return SingleFlight.getInstance().getCoalesced();
+    }
+
+    @Override
+    public double getCoalescingRatio() {
+        return SingleFlight.getInstance().getCoalescingRatio();
+    }
+
+    @Override
+    public int getInFlight() {
+        return SingleFlight.getInstance().getInFlight();
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * RESTHeart - the data REST API server
+ * Copyright (C) 2014 - 2015 SoftInstigate Srl
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.restheart.handlers.collection;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the GET collection queries and the time spent counting the documents,
+ * querying the page data and exporting the collections.
+ *
+ * @author Andrea Di Cesare <andrea@softinstigate.com>
+ */
+public class CollectionQueryStats {
+
+    private final AtomicLong queries = new AtomicLong(0);
+    private final AtomicLong counts = new AtomicLong(0);
+    private final AtomicLong exports = new AtomicLong(0);
+    private final AtomicLong totalCountTime = new AtomicLong(0);
+    private final AtomicLong totalDataTime = new AtomicLong(0);
+    private final AtomicLong totalQueryTime = new AtomicLong(0);
+    private final AtomicLong totalExportTime = new AtomicLong(0);
+
+    CollectionQueryStats() {
+    }
+
+    /**
+     *
+     * @param dataNanos the time spent querying the page data
+     * @param totalNanos the time spent querying the page data and the count
+     */
+    public void recordQuery(long dataNanos, long totalNanos) {
+        queries.incrementAndGet();
+        totalDataTime.addAndGet(dataNanos);
+        totalQueryTime.addAndGet(totalNanos);
+    }
+
+    /**
+     *
+     * @param nanos the time spent counting the documents
+     */
+    public void recordCount(long nanos) {
+        counts.incrementAndGet();
+        totalCountTime.addAndGet(nanos);
+    }
+
+    /**
+     *
+     * @param nanos the time spent exporting the collection
+     */
+    public void recordExport(long nanos) {
+        exports.incrementAndGet();
+        totalExportTime.addAndGet(nanos);
+    }
+
+    /**
+     * @return the number of the paginated queries
+     */
+    public long getQueries() {
+        return queries.get();
+    }
+
+    /**
+     * @return the number of the counts
+     */
+    public long getCounts() {
+        return counts.get();
+    }
+
+    /**
+     * @return the number of the exports
+     */
+    public long getExports() {
+        return exports.get();
+    }
+
+    /**
+     * @return the average time spent counting the documents in msecs
+     */
+    public double getAverageCountTime() {
+        return average(totalCountTime, counts);
+    }
+
+    /**
+     * @return the average time spent querying the page data in msecs
+     */
+    public double getAverageDataTime() {
+        return average(totalDataTime, queries);
+    }
+
+    /**
+     * @return the average time spent querying the page data and the count in
+     * msecs
+     */
+    public double getAverageQueryTime() {
+        return average(totalQueryTime, queries);
+    }
+
+    /**
+     * @return the average time spent exporting a collection in msecs
+     */
+    public double getAverageExportTime() {
+        return average(totalExportTime, exports);
+    }
+
+    private static double average(AtomicLong totalTime, AtomicLong samples) {
+        long _samples = samples.get();
+
+        return _samples == 0 ? 0 : (double) TimeUnit.NANOSECONDS.toMicros(totalTime.get()) / _samples / 1000;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public static CollectionQueryStats getInstance() {
+        return CollectionQueryStatsHolder.INSTANCE;
+    }
+
+    private static class CollectionQueryStatsHolder {
+
+        private static final CollectionQueryStats INSTANCE = new CollectionQueryStats();
+    }
+}
@@ -18,6 +18,7 @@
 package org.restheart.handlers.collection;
 
 import com.mongodb.DBObject;
+import org.restheart.hal.metadata.CollectionProps;
 import org.restheart.Configuration;
 import org.restheart.hal.Link;
 import org.restheart.hal.Representation;
@@ -26,6 +27,7 @@ import org.restheart.handlers.RequestContext;
 import org.restheart.handlers.document.DocumentRepresentationFactory;
 import org.restheart.utils.URLUtils;
 import io.undertow.server.HttpServerExchange;
+import java.util.ArrayList;
 import java.util.List;
 import org.restheart.handlers.AbstractRepresentationFactory;
 
@@ -54,10 +56,11 @@ public class CollectionRepresentationFactory extends AbstractRepresentationFacto
         final Representation rep = createRepresentation(exchange, context, requestPath);
 
         // add the collection properties
-        final DBObject collProps = context.getCollectionProps();
+        final CollectionProps collProps = context.getCollectionProps();
 
         if (collProps != null) {
-            rep.addProperties(collProps);
+            rep.addProperties(collProps.getProps());
+            rep.addProperty("_collection-props-cached", context.isCollectionPropsCached());
         }
 
         addSizeAndTotalPagesProperties(size, context, rep);
@@ -96,23 +99,23 @@ public class CollectionRepresentationFactory extends AbstractRepresentationFacto
     }
 
     private void embeddedDocuments(List<DBObject> embeddedData, String requestPath, HttpServerExchange exchange, RequestContext context, Representation rep) throws IllegalQueryParamenterException {
+        List<DBObject> documents = new ArrayList<>(embeddedData.size());
+
         for (DBObject d : embeddedData) {
             Object _id = d.get("_id");
 
             if (RequestContext.isReservedResourceCollection(_id.toString())) {
-                rep.addWarning("filtered out reserved resource " + requestPath + "/" + _id.toString());;
+                rep.addWarning("filtered out reserved resource " + requestPath + "/" + _id.toString());
             } else {
-
-                Representation nrep = DocumentRepresentationFactory.getDocument(requestPath + "/" + _id.toString(), exchange, context, d);
-
-                if (rep.getType() == RequestContext.TYPE.FILES_BUCKET) {
-                    nrep.addProperty("_type", RequestContext.TYPE.FILE.name());
-                    rep.addRepresentation("rh:file", nrep);
-                } else {
-                    nrep.addProperty("_type", RequestContext.TYPE.DOCUMENT.name());
-                    rep.addRepresentation("rh:doc", nrep);
-                }
+                documents.add(d);
             }
         }
+
+        // the embedded documents are written directly to the response while sending the representation
+        RequestContext.TYPE type = rep.getType() == RequestContext.TYPE.FILES_BUCKET ? RequestContext.TYPE.FILE : RequestContext.TYPE.DOCUMENT;
+
+        rep.addDocuments(type == RequestContext.TYPE.FILE ? "rh:file" : "rh:doc", documents, (d, out) -> {
+            DocumentRepresentationFactory.writeDocument(requestPath + "/" + d.get("_id").toString(), exchange, context, d, type, out);
+        });
     }
 }
@@ -17,18 +17,36 @@
  */
 package org.restheart.handlers.collection;
 
+import com.google.common.hash.Hashing;
 import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
 import com.mongodb.DBObject;
 import com.mongodb.MongoException;
-import com.mongodb.util.JSONParseException;
 import org.restheart.utils.HttpStatus;
 import org.restheart.handlers.IllegalQueryParamenterException;
+import org.restheart.handlers.AsyncPipedHttpHandler;
 import org.restheart.handlers.PipedHttpHandler;
+import org.restheart.handlers.RawDocumentsSender;
 import org.restheart.handlers.RequestContext;
+import org.restheart.utils.CountExecutorSingleton;
+import org.restheart.utils.RequestHelper;
 import org.restheart.utils.ResponseHelper;
 import io.undertow.server.HttpServerExchange;
+import io.undertow.util.Headers;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.restheart.Bootstrapper;
+import org.restheart.db.CollectionVersions;
+import org.restheart.db.ContinuationToken;
 import org.restheart.db.Database;
+import org.restheart.db.InvalidContinuationTokenException;
+import org.restheart.hal.HALUtils;
+import org.restheart.hal.metadata.CountStrategy;
+import org.restheart.hal.metadata.InvalidMetadataException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -36,7 +54,7 @@ import org.slf4j.LoggerFactory;
  *
  * @author Andrea Di Cesare <andrea@softinstigate.com>
  */
-public class GetCollectionHandler extends PipedHttpHandler {
+public class GetCollectionHandler extends AsyncPipedHttpHandler<GetCollectionHandler.CollectionPage> {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(GetCollectionHandler.class);
 
@@ -56,56 +74,288 @@ public class GetCollectionHandler extends PipedHttpHandler {
      */
     @Override
     public void handleRequest(HttpServerExchange exchange, RequestContext context) throws Exception {
+        if (context.isStream()) {
+            exportCollection(exchange, context, getDatabase().getCollection(context.getDBName(), context.getCollectionName()));
+            return;
+        }
+
+        if (Bootstrapper.getConf().isCollectionEtag()) {
+            String etag = getCollectionEtag(context);
+
+            // in case the request contains the IF_NONE_MATCH header with the current etag value,
+            // just return 304 NOT_MODIFIED code without querying the db
+            if (RequestHelper.checkReadEtag(exchange, etag)) {
+                ResponseHelper.endExchange(exchange, HttpStatus.SC_NOT_MODIFIED);
+                return;
+            }
+
+            context.setCollectionEtag(etag);
+        }
+
+        super.handleRequest(exchange, context);
+    }
+
+    /**
+     * The etag of the collection page combines the version of the collection,
+     * read before querying it, with the parameters of the request the page
+     * depends on. It changes on every write to the collection handled by this
+     * instance.
+     *
+     * @param context
+     * @return the etag of the collection page
+     */
+    static String getCollectionEtag(RequestContext context) {
+        CollectionVersions versions = CollectionVersions.getInstance();
+
+        long version = versions.getVersion(context.getDBName(), context.getCollectionName());
+
+        // the canonical string of the request parameters, digested so that
+        // different requests cannot get the same etag
+        String request = context.getQuery().getShape() + " " + context.getPage() + " " + context.getPagesize()
+                + " " + context.isKeyset() + " " + context.getContinuationToken() + " " + context.isCount()
+                + " " + context.getRepresentationFormat();
+
+        return versions.getInstanceId() + "-" + version + "-" + Hashing.sha1().hashString(request, StandardCharsets.UTF_8);
+    }
+
+    /**
+     *
+     * @param exchange
+     * @param context
+     * @return the key of the query, including the collection version
+     */
+    @Override
+    protected Object getQueryKey(HttpServerExchange exchange, RequestContext context) {
+        return Arrays.asList(context.getDBName(), context.getCollectionName(),
+                CollectionVersions.getInstance().getVersion(context.getDBName(), context.getCollectionName()),
+                context.getQuery().getShape(), context.getPage(), context.getPagesize(),
+                context.isKeyset(), context.getContinuationToken(),
+                context.isCount() ? getCountStrategy(context) : null,
+                getAccountName(exchange));
+    }
+
+    /**
+     *
+     * @param exchange
+     * @param context
+     * @return the future of the page data and of the collection size
+     * @throws Exception
+     */
+    @Override
+    protected CompletableFuture<CollectionPage> handleQuery(HttpServerExchange exchange, RequestContext context) throws Exception {
         DBCollection coll = getDatabase().getCollection(context.getDBName(), context.getCollectionName());
-        long size = -1;
+
+        final long start = System.nanoTime();
+        final AtomicLong countTime = new AtomicLong(0);
+
+        CompletableFuture<Long> _size;
+        boolean sizeEstimated = false;
 
         if (context.isCount()) {
-            size = getDatabase().getCollectionSize(coll, exchange.getQueryParameters().get("filter"));
+            CountStrategy.TYPE countStrategy = getCountStrategy(context);
+
+            // the count runs concurrently with the query of the page data
+            _size = CompletableFuture.supplyAsync(() -> {
+                long countStart = System.nanoTime();
+
+                try {
+                    return getDatabase().getCollectionSize(coll, context.getQuery(), countStrategy);
+                } finally {
+                    countTime.set(System.nanoTime() - countStart);
+                }
+            }, CountExecutorSingleton.getInstance().getExecutorService());
+
+            sizeEstimated = countStrategy == CountStrategy.TYPE.ESTIMATED && context.getQuery().isUnfiltered();
+        } else {
+            _size = CompletableFuture.completedFuture((long) -1);
         }
 
         // ***** get data
-        ArrayList<DBObject> data = null;
+        CompletableFuture<ArrayList<DBObject>> _data;
 
         if (context.getPagesize() > 0) {
-
-            try {
-                data = getDatabase().getCollectionData(coll, context.getPage(), context.getPagesize(),
-                        context.getSortBy(), context.getFilter(), context.getCursorAllocationPolicy());
-            } catch (JSONParseException jpe) {
-                // the filter expression is not a valid json string
-                LOGGER.error("invalid filter expression {}", context.getFilter(), jpe);
-                ResponseHelper.endExchangeWithMessage(exchange, HttpStatus.SC_BAD_REQUEST, "wrong request, filter expression is invalid", jpe);
-                return;
-            } catch (MongoException me) {
-                if (me.getMessage().matches(".*Can't canonicalize query.*")) {
-                    // error with the filter expression during query execution
-                    LOGGER.error("invalid filter expression {}", context.getFilter(), me);
-                    ResponseHelper.endExchangeWithMessage(exchange, HttpStatus.SC_BAD_REQUEST, "wrong request, filter expression is invalid", me);
-                    return;
-                } else {
-                    throw me;
-                }
+            if (context.isKeyset()) {
+                _data = getAsyncDatabase().getCollectionDataAfter(coll, context.getPagesize(),
+                        context.getQuery(), context.getContinuationToken());
+            } else {
+                _data = getAsyncDatabase().getCollectionData(coll, context.getPage(), context.getPagesize(),
+                        context.getQuery(), context.getCursorAllocationPolicy());
             }
+        } else {
+            _data = CompletableFuture.completedFuture(null);
         }
 
-        if (exchange.isComplete()) {
-            // if an error occured getting data, the exchange is already closed
-            return;
+        final AtomicLong dataTime = new AtomicLong(0);
+        final boolean _sizeEstimated = sizeEstimated;
+
+        return _data.thenApply(data -> {
+            dataTime.set(System.nanoTime() - start);
+            return data;
+        }).thenCombine(_size, (data, size) -> {
+            long totalTime = System.nanoTime() - start;
+
+            CollectionQueryStats stats = CollectionQueryStats.getInstance();
+
+            stats.recordQuery(dataTime.get(), totalTime);
+
+            if (context.isCount()) {
+                stats.recordCount(countTime.get());
+            }
+
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("GET {}/{} timings: count {}ms, data {}ms, total {}ms",
+                        context.getDBName(), context.getCollectionName(),
+                        TimeUnit.NANOSECONDS.toMillis(countTime.get()),
+                        TimeUnit.NANOSECONDS.toMillis(dataTime.get()),
+                        TimeUnit.NANOSECONDS.toMillis(totalTime));
+            }
+
+            return new CollectionPage(data, size, _sizeEstimated);
+        });
+    }
+
+    /**
+     *
+     * @param exchange
+     * @param context
+     * @param page
+     * @throws Exception
+     */
+    @Override
+    protected void handleResult(HttpServerExchange exchange, RequestContext context, CollectionPage page) throws Exception {
+        ArrayList<DBObject> data = page.data;
+
+        context.setSizeEstimated(page.sizeEstimated);
+
+        if (context.isKeyset() && data != null && data.size() == context.getPagesize()) {
+            context.setNextContinuationToken(ContinuationToken.encode(context.getQuery(), data.get(data.size() - 1)));
         }
 
         // ***** return NOT_FOUND from here if collection is not existing 
         // (this is to avoid to check existance via the slow CollectionDAO.checkCollectionExists)
-        if ((context.getPagesize() > 0 && (data == null || data.isEmpty())) && (context.getCollectionProps() == null || context.getCollectionProps().keySet().isEmpty())) {
+        if ((context.getPagesize() > 0 && (data == null || data.isEmpty())) && (context.getCollectionProps() == null || context.getCollectionProps().isEmpty())) {
             ResponseHelper.endExchange(exchange, HttpStatus.SC_NOT_FOUND);
             return;
         }
 
         try {
+            if (context.getCollectionEtag() != null) {
+                exchange.getResponseHeaders().put(Headers.ETAG, context.getCollectionEtag());
+            }
+
             exchange.setResponseCode(HttpStatus.SC_OK);
-            new CollectionRepresentationFactory().sendHal(exchange, context, data, size);
+
+            if (RawDocumentsSender.isRawFormat(context)) {
+                RawDocumentsSender.sendDocuments(exchange, context, data, HALUtils.getPaginationLinks(exchange, context, page.size));
+            } else {
+                new CollectionRepresentationFactory().sendHal(exchange, context, data, page.size);
+            }
+
             exchange.endExchange();
         } catch (IllegalQueryParamenterException ex) {
             ResponseHelper.endExchangeWithMessage(exchange, HttpStatus.SC_BAD_REQUEST, ex.getMessage(), ex);
         }
     }
+
+    /**
+     *
+     * @param exchange
+     * @param context
+     * @param error
+     * @throws Exception
+     */
+    @Override
+    protected void handleError(HttpServerExchange exchange, RequestContext context, Throwable error) throws Exception {
+        if (error instanceof MongoException) {
+            handleQueryError(exchange, context, (MongoException) error);
+        } else if (error instanceof InvalidContinuationTokenException) {
+            ResponseHelper.endExchangeWithMessage(exchange, HttpStatus.SC_BAD_REQUEST, "wrong request, " + error.getMessage(), error);
+        } else {
+            super.handleError(exchange, context, error);
+        }
+    }
+
+    /**
+     * streams all the documents matching the filter with a single cursor,
+     * ignoring the pagination parameters
+     */
+    private void exportCollection(HttpServerExchange exchange, RequestContext context, DBCollection coll) throws Exception {
+        DBCursor cursor = getDatabase().getCollectionDBCursor(coll, context.getQuery())
+                .batchSize(Bootstrapper.getConf().getExportBatchSize());
+
+        try {
+            boolean empty;
+
+            try {
+                empty = !cursor.hasNext();
+            } catch (MongoException me) {
+                handleQueryError(exchange, context, me);
+                return;
+            }
+
+            // ***** return NOT_FOUND if the collection is not existing, as for the paginated requests
+            if (empty && (context.getCollectionProps() == null || context.getCollectionProps().isEmpty())) {
+                ResponseHelper.endExchange(exchange, HttpStatus.SC_NOT_FOUND);
+                return;
+            }
+
+            long start = System.nanoTime();
+
+            exchange.setResponseCode(HttpStatus.SC_OK);
+            RawDocumentsSender.streamDocuments(exchange, context, cursor);
+            exchange.endExchange();
+
+            long exportTime = System.nanoTime() - start;
+
+            CollectionQueryStats.getInstance().recordExport(exportTime);
+
+            LOGGER.debug("GET {}/{} exported in {}ms",
+                    context.getDBName(), context.getCollectionName(),
+                    TimeUnit.NANOSECONDS.toMillis(exportTime));
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * ends the exchange with BAD_REQUEST if the error is due to the filter
+     * expression, otherwise rethrows it
+     */
+    private void handleQueryError(HttpServerExchange exchange, RequestContext context, MongoException me) {
+        if (me.getMessage().matches(".*Can't canonicalize query.*")) {
+            // error with the filter expression during query execution
+            LOGGER.error("invalid filter expression {}", context.getFilter(), me);
+            ResponseHelper.endExchangeWithMessage(exchange, HttpStatus.SC_BAD_REQUEST, "wrong request, filter expression is invalid", me);
+        } else {
+            throw me;
+        }
+    }
+
+    private CountStrategy.TYPE getCountStrategy(RequestContext context) {
+        try {
+            CountStrategy.TYPE strategy = context.getCollectionProps() == null ? null : context.getCollectionProps().getCountStrategy();
+
+            return strategy == null ? Bootstrapper.getConf().getCountDefaultStrategy() : strategy;
+        } catch (InvalidMetadataException ime) {
+            LOGGER.warn("wrong count strategy of collection {}/{}, using the default one", context.getDBName(), context.getCollectionName(), ime);
+            return Bootstrapper.getConf().getCountDefaultStrategy();
+        }
+    }
+
+    /**
+     * the page data and the collection size read by the query; it can be
+     * shared by concurrent requests and must not be modified
+     */
+    static class CollectionPage {
+
+        private final ArrayList<DBObject> data;
+        private final long size;
+        private final boolean sizeEstimated;
+
+        CollectionPage(ArrayList<DBObject> data, long size, boolean sizeEstimated) {
+            this.data = data;
+            this.size = size;
+            this.sizeEstimated = sizeEstimated;
+        }
+    }
 }
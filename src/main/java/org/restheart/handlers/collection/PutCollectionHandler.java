@@ -21,7 +21,10 @@ import com.mongodb.BasicDBList;
 import com.mongodb.BasicDBObject;
 import com.mongodb.DBObject;
 import org.restheart.hal.metadata.InvalidMetadataException;
+import org.restheart.hal.metadata.CountStrategy;
+import org.restheart.hal.metadata.Projection;
 import org.restheart.hal.metadata.Relationship;
+import org.restheart.hal.metadata.ResponseCachePolicy;
 import org.restheart.handlers.injectors.LocalCachesSingleton;
 import org.restheart.handlers.PipedHttpHandler;
 import org.restheart.utils.HttpStatus;
@@ -83,6 +86,36 @@ public class PutCollectionHandler extends PipedHttpHandler {
             }
         }
 
+        if (content.containsField(Projection.KEYS_ELEMENT_NAME)) {
+            try {
+                Projection.getFromJson(content);
+            } catch (InvalidMetadataException ex) {
+                ResponseHelper.endExchangeWithMessage(exchange, HttpStatus.SC_NOT_ACCEPTABLE,
+                        "wrong keys definition. " + ex.getMessage(), ex);
+                return;
+            }
+        }
+
+        if (content.containsField(CountStrategy.COUNT_STRATEGY_ELEMENT_NAME)) {
+            try {
+                CountStrategy.getFromJson(content);
+            } catch (InvalidMetadataException ex) {
+                ResponseHelper.endExchangeWithMessage(exchange, HttpStatus.SC_NOT_ACCEPTABLE,
+                        "wrong count strategy definition. " + ex.getMessage(), ex);
+                return;
+            }
+        }
+
+        if (content.containsField(ResponseCachePolicy.RESPONSE_CACHE_ELEMENT_NAME)) {
+            try {
+                ResponseCachePolicy.getFromJson(content);
+            } catch (InvalidMetadataException ex) {
+                ResponseHelper.endExchangeWithMessage(exchange, HttpStatus.SC_NOT_ACCEPTABLE,
+                        "wrong response cache definition. " + ex.getMessage(), ex);
+                return;
+            }
+        }
+
         ObjectId etag = RequestHelper.getWriteEtag(exchange);
         boolean updating = context.getCollectionProps() != null;
 
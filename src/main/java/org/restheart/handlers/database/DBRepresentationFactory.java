@@ -18,6 +18,7 @@
 package org.restheart.handlers.database;
 
 import com.mongodb.DBObject;
+import org.restheart.hal.metadata.DbProps;
 import org.restheart.Configuration;
 import org.restheart.hal.Link;
 import org.restheart.hal.Representation;
@@ -47,10 +48,11 @@ public class DBRepresentationFactory extends AbstractRepresentationFactory {
             throws IllegalQueryParamenterException {
         final String requestPath = buildRequestPath(exchange);
         final Representation representation = createRepresentation(exchange, context, requestPath);
-        final DBObject dbProps = context.getDbProperties();
+        final DbProps dbProps = context.getDbProperties();
 
         if (dbProps != null) {
-            representation.addProperties(dbProps);
+            representation.addProperties(dbProps.getProps());
+            representation.addProperty("_db-props-cached", context.isDbPropsCached());
         }
 
         addSizeAndTotalPagesProperties(size, context, representation);
@@ -17,19 +17,23 @@
  */
 package org.restheart.handlers.document;
 
-import org.restheart.hal.Link;
 import org.restheart.hal.Representation;
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
 import com.mongodb.DBObject;
 import org.restheart.Configuration;
-import static org.restheart.hal.Representation.HAL_JSON_MEDIA_TYPE;
 import org.restheart.hal.metadata.InvalidMetadataException;
 import org.restheart.hal.metadata.Relationship;
+import org.restheart.handlers.AbstractRepresentationFactory;
 import org.restheart.handlers.IllegalQueryParamenterException;
 import org.restheart.handlers.RequestContext;
 import org.restheart.utils.URLUtils;
 import io.undertow.server.HttpServerExchange;
-import io.undertow.util.Headers;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URISyntaxException;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.TreeMap;
 import jdk.nashorn.internal.runtime.URIUtils;
@@ -58,55 +62,104 @@ public class DocumentRepresentationFactory {
      */
     public static Representation getDocument(String href, HttpServerExchange exchange, RequestContext context, DBObject data)
             throws IllegalQueryParamenterException {
-        Representation rep;
+        Representation rep = new Representation(URLUtils.getReferenceLink(context, URLUtils.getParentPath(href), data.get("_id")));
 
-        Object id = data.get("_id");
-
-        String _docIdType = null;
+        try {
+            writeDocument(href, exchange, context, data, context.getType(), rep.getDocumentOutput());
+        } catch (IOException ioe) {
+            // never thrown adding to a representation
+            throw new UncheckedIOException(ioe);
+        }
 
-        rep = new Representation(URLUtils.getReferenceLink(context, URLUtils.getParentPath(href), id));
+        return rep;
+    }
 
-        rep.addProperty(
-                "_type", context.getType().name());
+    /**
+     * Writes the representation of a document to the output; getDocument()
+     * writes it to a Representation, the collection representation directly
+     * to the response, without creating a Representation for each document.
+     *
+     * @param href
+     * @param exchange
+     * @param context
+     * @param data
+     * @param type the type of the representation
+     * @param out
+     * @throws IOException
+     */
+    public static void writeDocument(String href, HttpServerExchange exchange, RequestContext context, DBObject data, RequestContext.TYPE type, Representation.DocumentOutput out)
+            throws IOException {
+        out.addProperty("_type", type.name());
 
         // document properties
-        data.keySet()
-                .stream().forEach((key) -> rep.addProperty(key, data.get(key)));
+        out.addFields(data, "_type");
 
-        // document links
-        TreeMap<String, String> links;
+        String lastUpdatedOn = getLastUpdatedOn(data);
+
+        if (lastUpdatedOn != null) {
+            out.addProperty("_lastupdated_on", lastUpdatedOn);
+        }
 
-        links = getRelationshipsLinks(rep, context, data);
+        String createdOn = getCreatedOn(data);
 
-        if (links
-                != null) {
-            links.keySet().stream().forEach((k) -> {
-                rep.addLink(new Link(k, links.get(k)));
-            });
+        if (createdOn != null) {
+            out.addProperty("_created_on", createdOn);
         }
 
-        // link templates and curies
-        String requestPath = URLUtils.removeTrailingSlashes(exchange.getRequestPath());
+        // document links
+        List<String> warnings = new ArrayList<>();
+
+        TreeMap<String, String> relationshipsLinks = getRelationshipsLinks(warnings, context, data);
+
+        out.addWarnings(warnings);
+
+        BasicDBObject links = new BasicDBObject("self", new BasicDBObject("href",
+                URLUtils.getReferenceLink(context, URLUtils.getParentPath(href), data.get("_id"))));
+
+        relationshipsLinks.forEach((k, v) -> links.append(k, new BasicDBObject("href", v)));
 
         if (isBinaryFile(data)) {
-            if (_docIdType == null) {
-                rep.addLink(new Link("rh:download",
-                        String.format("%s/%s", href, RequestContext.BINARY_CONTENT)));
-            } else {
-                rep.addLink(new Link("rh:download",
-                        String.format("%s/%s?%s", href, RequestContext.BINARY_CONTENT, _docIdType)));
-            }
+            links.append("rh:download", new BasicDBObject("href", String.format("%s/%s", href, RequestContext.BINARY_CONTENT)));
         }
 
         if (context.isParentAccessible()) {
             // this can happen due to mongo-mounts mapped URL
-            rep.addLink(new Link("rh:coll", URLUtils.getParentPath(requestPath)));
+            links.append("rh:coll", new BasicDBObject("href", URLUtils.getParentPath(URLUtils.removeTrailingSlashes(exchange.getRequestPath()))));
         }
 
-        rep.addLink(
-                new Link("rh", "curies", Configuration.RESTHEART_ONLINE_DOC_URL + "/#api-doc-{rel}", false), true);
+        BasicDBList curies = new BasicDBList();
+        curies.add(new BasicDBObject("href", Configuration.RESTHEART_ONLINE_DOC_URL + "/#api-doc-{rel}").append("name", "rh"));
+        links.append("curies", curies);
 
-        return rep;
+        out.addLinks(links);
+    }
+
+    /**
+     * @param data
+     * @return the _lastupdated_on timestamp generated from the _etag, or null
+     */
+    private static String getLastUpdatedOn(DBObject data) {
+        Object etag = data.get("_etag");
+
+        if (etag != null && etag instanceof ObjectId && data.get("_lastupdated_on") == null) {
+            return Instant.ofEpochSecond(((ObjectId) etag).getTimestamp()).toString();
+        }
+
+        return null;
+    }
+
+    /**
+     * @param data
+     * @return the _created_on timestamp generated from the _id, or null
+     */
+    private static String getCreatedOn(DBObject data) {
+        Object id = data.get("_id");
+
+        if (id != null && id instanceof ObjectId && data.get("_created_on") == null) {
+            return Instant.ofEpochSecond(((ObjectId) id).getTimestamp()).toString();
+        }
+
+        return null;
     }
 
     private static boolean isBinaryFile(DBObject data) {
@@ -121,28 +174,28 @@ public class DocumentRepresentationFactory {
      * @param data
      * @throws IllegalQueryParamenterException
      * @throws URISyntaxException
+     * @throws IOException
      */
     public static void sendDocument(String href, HttpServerExchange exchange, RequestContext context, DBObject data)
-            throws IllegalQueryParamenterException, URISyntaxException {
+            throws IllegalQueryParamenterException, URISyntaxException, IOException {
         Representation rep = getDocument(href, exchange, context, data);
 
         if (context.getWarnings() != null) {
             context.getWarnings().forEach(w -> rep.addWarning(w));
         }
 
-        exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, HAL_JSON_MEDIA_TYPE);
-        exchange.getResponseSender().send(rep.toString());
+        AbstractRepresentationFactory.sendRepresentation(exchange, rep);
     }
 
-    private static TreeMap<String, String> getRelationshipsLinks(Representation rep, RequestContext context, DBObject data) {
+    private static TreeMap<String, String> getRelationshipsLinks(List<String> warnings, RequestContext context, DBObject data) {
         TreeMap<String, String> links = new TreeMap<>();
 
         List<Relationship> rels = null;
 
         try {
-            rels = Relationship.getFromJson((DBObject) context.getCollectionProps());
+            rels = context.getCollectionProps() == null ? null : context.getCollectionProps().getRelationships();
         } catch (InvalidMetadataException ex) {
-            rep.addWarning("collection " + context.getDBName()
+            warnings.add("collection " + context.getDBName()
                     + "/" + context.getCollectionName()
                     + " has invalid relationships definition");
         }
@@ -159,7 +212,7 @@ public class DocumentRepresentationFactory {
                     links.put(rel.getRel(), link);
                 }
             } catch (IllegalArgumentException | UnsupportedDocumentIdException ex) {
-                rep.addWarning(ex.getMessage());
+                warnings.add(ex.getMessage());
                 LOGGER.debug(ex.getMessage(), ex);
             }
         }
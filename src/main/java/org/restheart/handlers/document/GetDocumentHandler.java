@@ -17,23 +17,27 @@
  */
 package org.restheart.handlers.document;
 
-import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
 import com.mongodb.DBObject;
-import org.restheart.handlers.PipedHttpHandler;
+import org.restheart.db.CollectionVersions;
+import org.restheart.handlers.AsyncPipedHttpHandler;
+import org.restheart.handlers.RawDocumentsSender;
 import org.restheart.utils.HttpStatus;
 import org.restheart.handlers.RequestContext;
 import org.restheart.utils.RequestHelper;
 import org.restheart.utils.ResponseHelper;
 import org.restheart.utils.URLUtils;
 import io.undertow.server.HttpServerExchange;
-import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
 import org.bson.types.ObjectId;
 
 /**
  *
  * @author Andrea Di Cesare <andrea@softinstigate.com>
  */
-public class GetDocumentHandler extends PipedHttpHandler {
+public class GetDocumentHandler extends AsyncPipedHttpHandler<DBObject> {
 
     /**
      * Default ctor
@@ -46,14 +50,39 @@ public class GetDocumentHandler extends PipedHttpHandler {
      *
      * @param exchange
      * @param context
+     * @return the future of the document
      * @throws Exception
      */
     @Override
-    public void handleRequest(HttpServerExchange exchange, RequestContext context) throws Exception {
-        BasicDBObject query = new BasicDBObject("_id", context.getDocumentId());
+    protected CompletableFuture<DBObject> handleQuery(HttpServerExchange exchange, RequestContext context) throws Exception {
+        DBCollection coll = getDatabase().getCollection(context.getDBName(), context.getCollectionName());
 
-        DBObject document = getDatabase().getCollection(context.getDBName(), context.getCollectionName()).findOne(query);
+        return getAsyncDatabase().getDocument(coll, context.getDocumentId(), context.getQuery().getKeys());
+    }
 
+    /**
+     *
+     * @param exchange
+     * @param context
+     * @return the key of the query, including the collection version
+     */
+    @Override
+    protected Object getQueryKey(HttpServerExchange exchange, RequestContext context) {
+        return Arrays.asList(context.getDBName(), context.getCollectionName(),
+                CollectionVersions.getInstance().getVersion(context.getDBName(), context.getCollectionName()),
+                context.getDocumentId(), context.getQuery().getShape().getKeys(),
+                getAccountName(exchange));
+    }
+
+    /**
+     *
+     * @param exchange
+     * @param context
+     * @param document
+     * @throws Exception
+     */
+    @Override
+    protected void handleResult(HttpServerExchange exchange, RequestContext context, DBObject document) throws Exception {
         if (document == null) {
             ResponseHelper.endExchangeWithMessage(exchange, HttpStatus.SC_NOT_FOUND, "document does not exist");
             return;
@@ -62,11 +91,6 @@ public class GetDocumentHandler extends PipedHttpHandler {
         Object etag = document.get("_etag");
 
         if (etag != null && etag instanceof ObjectId) {
-            if (document.get("_lastupdated_on") == null) {
-                // add the _lastupdated_on in case the _etag field is present and its value is an ObjectId
-                document.put("_lastupdated_on", Instant.ofEpochSecond(((ObjectId) etag).getTimestamp()).toString());
-            }
-
             // in case the request contains the IF_NONE_MATCH header with the current etag value,
             // just return 304 NOT_MODIFIED code
             if (RequestHelper.checkReadEtag(exchange, (ObjectId) etag)) {
@@ -74,20 +98,20 @@ public class GetDocumentHandler extends PipedHttpHandler {
                 return;
             }
         }
-        
-        Object id = document.get("_id");
-        
-        // generate the _created_on timestamp from the _id if this is an instance of ObjectId
-        if (document.get("_created_on") == null && id != null && id instanceof ObjectId) {
-            document.put("_created_on", Instant.ofEpochSecond(((ObjectId)id).getTimestamp()).toString());
-        }
+
+        // the _lastupdated_on and _created_on timestamps are added by the DocumentRepresentationFactory
 
         String requestPath = URLUtils.removeTrailingSlashes(exchange.getRequestPath());
 
         ResponseHelper.injectEtagHeader(exchange, document);
         exchange.setResponseCode(HttpStatus.SC_OK);
 
-        DocumentRepresentationFactory.sendDocument(requestPath, exchange, context, document);
+        if (RawDocumentsSender.isRawFormat(context)) {
+            RawDocumentsSender.sendDocuments(exchange, context, Collections.singletonList(document), null);
+        } else {
+            DocumentRepresentationFactory.sendDocument(requestPath, exchange, context, document);
+        }
+
         exchange.endExchange();
     }
 }
@@ -20,16 +20,16 @@ package org.restheart.handlers.injectors;
 import com.mongodb.DBObject;
 import com.mongodb.util.JSON;
 import com.mongodb.util.JSONParseException;
+import org.restheart.Bootstrapper;
 import org.restheart.hal.Representation;
 import org.restheart.handlers.PipedHttpHandler;
 import org.restheart.handlers.RequestContext;
-import org.restheart.utils.ChannelReader;
+import org.restheart.utils.BodyReader;
 import org.restheart.utils.HttpStatus;
 import org.restheart.utils.ResponseHelper;
 import io.undertow.server.HttpServerExchange;
 import io.undertow.util.HeaderValues;
 import io.undertow.util.Headers;
-import java.util.HashSet;
 
 /**
  *
@@ -45,6 +45,8 @@ public class BodyInjectorHandler extends PipedHttpHandler {
             + Representation.APP_FORM_URLENCODED_TYPE
             + " or " + Representation.MULTIPART_FORM_DATA_TYPE;
 
+    private static final long MAX_BODY_SIZE = Bootstrapper.getConf().getMaxRequestBodySize();
+
     /**
      * Creates a new instance of BodyInjectorHandler
      *
@@ -86,22 +88,29 @@ public class BodyInjectorHandler extends PipedHttpHandler {
         }
 
         if (isNotFormData(contentTypes)) {
-            final String contentString = ChannelReader.read(exchange.getRequestChannel());
-            DBObject content;
-            try {
-                content = (DBObject) JSON.parse(contentString);
-            } catch (JSONParseException | IllegalArgumentException ex) {
-                ResponseHelper.endExchangeWithMessage(exchange, HttpStatus.SC_NOT_ACCEPTABLE, "Invalid data", ex);
-                return;
-            }
-            if (content == null) {
-                context.setContent(null);
-            } else {
-                filterJsonContent(content, context);
-            }
-        }
+            BodyReader.read(exchange, MAX_BODY_SIZE, (ex, contentString) -> {
+                ReservedKeysFilteringCallback callback = new ReservedKeysFilteringCallback();
+
+                DBObject content;
+
+                try {
+                    content = (DBObject) JSON.parse(contentString, callback);
+                } catch (JSONParseException | IllegalArgumentException pe) {
+                    ResponseHelper.endExchangeWithMessage(ex, HttpStatus.SC_NOT_ACCEPTABLE, "Invalid data", pe);
+                    return;
+                }
 
-        getNext().handleRequest(exchange, context);
+                callback.getFiltered().stream().forEach(key -> {
+                    context.addWarning("the reserved field " + key + " was filtered out from the request");
+                });
+
+                context.setContent(content);
+
+                getNext().handleRequest(ex, context);
+            });
+        } else {
+            getNext().handleRequest(exchange, context);
+        }
     }
 
     /**
@@ -115,40 +124,6 @@ public class BodyInjectorHandler extends PipedHttpHandler {
                         || ct.startsWith(Representation.MULTIPART_FORM_DATA_TYPE));
     }
 
-    /**
-     * Clean-up the JSON content, filtering out reserved keys and injecting the
-     * request content in the ctx
-     *
-     * @param content
-     * @param ctx
-     */
-    private void filterJsonContent(DBObject content, RequestContext ctx) {
-        filterOutReservedKeys(content, ctx);
-        ctx.setContent(content);
-    }
-
-    /**
-     * Filter out reserved keys, removoing them from request
-     *
-     * @param content
-     * @param context
-     */
-    private void filterOutReservedKeys(DBObject content, RequestContext context) {
-        final HashSet<String> keysToRemove = new HashSet<>();
-        content.keySet().stream()
-                .filter(key -> key.startsWith("_") && !key.equals("_id"))
-                .forEach(key -> {
-                    keysToRemove.add(key);
-                });
-
-        keysToRemove.stream().map(keyToRemove -> {
-            content.removeField(keyToRemove);
-            return keyToRemove;
-        }).forEach(keyToRemove -> {
-            context.addWarning("the reserved field " + keyToRemove + " was filtered out from the request");
-        });
-    }
-
     /**
      * true is the content-type is unsupported
      *
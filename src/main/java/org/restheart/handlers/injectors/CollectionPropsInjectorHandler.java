@@ -18,6 +18,14 @@
 package org.restheart.handlers.injectors;
 
 import com.mongodb.DBObject;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import org.restheart.db.CompiledQuery;
+import org.restheart.hal.metadata.InvalidMetadataException;
+import org.restheart.hal.metadata.CollectionProps;
+import org.restheart.hal.metadata.Relationship;
 import org.restheart.handlers.PipedHttpHandler;
 import org.restheart.handlers.RequestContext;
 import org.restheart.utils.HttpStatus;
@@ -57,19 +65,28 @@ public class CollectionPropsInjectorHandler extends PipedHttpHandler {
     @Override
     public void handleRequest(HttpServerExchange exchange, RequestContext context) throws Exception {
         if (context.getDBName() != null && context.getCollectionName() != null) {
-            DBObject collProps;
+            CollectionProps collProps = null;
 
             if (!LocalCachesSingleton.isEnabled()) {
-                collProps = getDatabase().getCollectionProperties(context.getDBName(), context.getCollectionName(), true);
-                if (collProps != null) {
-                    collProps.put("_collection-props-cached", false);
+                DBObject _collProps = getDatabase().getCollectionProperties(context.getDBName(), context.getCollectionName(), true);
+
+                if (_collProps != null) {
+                    collProps = new CollectionProps(_collProps);
                 } else if (checkCollection(context)) {
                     collectionDoesNotExists(context, exchange);
                     return;
                 }
             } else {
-                collProps = LocalCachesSingleton.getInstance()
-                        .getCollectionProps(context.getDBName(), context.getCollectionName());
+                Optional<CollectionProps> cached = LocalCachesSingleton.getInstance()
+                        .getCachedCollectionProps(context.getDBName(), context.getCollectionName());
+
+                if (cached != null) {
+                    collProps = cached.orElse(null);
+                    context.setCollectionPropsCached(true);
+                } else {
+                    collProps = LocalCachesSingleton.getInstance()
+                            .loadCollectionProps(context.getDBName(), context.getCollectionName());
+                }
             }
 
             if (collProps == null && checkCollection(context)) {
@@ -78,11 +95,54 @@ public class CollectionPropsInjectorHandler extends PipedHttpHandler {
             }
 
             context.setCollectionProps(collProps);
+
+            if (context.getQuery() != null && collProps != null) {
+                CompiledQuery query = context.getQuery();
+
+                // the default projection of the collection applies to the requests without the keys query parameter
+                if (context.getKeys() == null) {
+                    try {
+                        DBObject keys = collProps.getKeys();
+
+                        if (keys != null) {
+                            query = query.withKeys(keys);
+                        }
+                    } catch (InvalidMetadataException ime) {
+                        LOGGER.warn("wrong keys of collection {}/{}, returning the whole documents", context.getDBName(), context.getCollectionName(), ime);
+                    }
+                }
+
+                // the projection must return the reference fields, otherwise the relationship links are lost
+                context.setQuery(query.withRequiredFields(getReferenceFields(collProps)));
+            }
         }
 
         getNext().handleRequest(exchange, context);
     }
 
+    /**
+     * @param collProps
+     * @return the reference fields of the owning relationships of the
+     * collection, that are needed to generate the links of the documents
+     */
+    private static List<String> getReferenceFields(CollectionProps collProps) {
+        try {
+            List<Relationship> rels = collProps.getRelationships();
+
+            if (rels == null) {
+                return Collections.emptyList();
+            }
+
+            return rels.stream()
+                    .filter(rel -> rel.getRole() == Relationship.ROLE.OWNING)
+                    .map(Relationship::getReferenceField)
+                    .collect(Collectors.toList());
+        } catch (InvalidMetadataException ime) {
+            // the links are not generated anyway
+            return Collections.emptyList();
+        }
+    }
+
     public static boolean checkCollection(RequestContext context) {
         return !(context.getType() == RequestContext.TYPE.COLLECTION && context.getMethod() == RequestContext.METHOD.PUT)
                 && !(context.getType() == RequestContext.TYPE.FILES_BUCKET && context.getMethod() == RequestContext.METHOD.PUT)
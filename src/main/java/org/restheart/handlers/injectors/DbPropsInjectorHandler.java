@@ -18,6 +18,8 @@
 package org.restheart.handlers.injectors;
 
 import com.mongodb.DBObject;
+import java.util.Optional;
+import org.restheart.hal.metadata.DbProps;
 import org.restheart.handlers.PipedHttpHandler;
 import org.restheart.handlers.RequestContext;
 import org.restheart.utils.HttpStatus;
@@ -52,13 +54,13 @@ public class DbPropsInjectorHandler extends PipedHttpHandler {
     @Override
     public void handleRequest(HttpServerExchange exchange, RequestContext context) throws Exception {
         if (context.getDBName() != null) {
-            DBObject dbProps = null;
+            DbProps dbProps = null;
 
             if (!LocalCachesSingleton.isEnabled()) {
-                dbProps = getDatabase().getDatabaseProperties(context.getDBName(), true);
+                DBObject _dbProps = getDatabase().getDatabaseProperties(context.getDBName(), true);
 
-                if (dbProps != null) {
-                    dbProps.put("_db-props-cached", false);
+                if (_dbProps != null) {
+                    dbProps = new DbProps(_dbProps);
                 } else if (!(context.getType() == RequestContext.TYPE.DB
                         && context.getMethod() == RequestContext.METHOD.PUT)
                         && context.getType() != RequestContext.TYPE.ROOT) {
@@ -66,7 +68,14 @@ public class DbPropsInjectorHandler extends PipedHttpHandler {
                     return;
                 }
             } else {
-                dbProps = LocalCachesSingleton.getInstance().getDBProps(context.getDBName());
+                Optional<DbProps> cached = LocalCachesSingleton.getInstance().getCachedDBProps(context.getDBName());
+
+                if (cached != null) {
+                    dbProps = cached.orElse(null);
+                    context.setDbPropsCached(true);
+                } else {
+                    dbProps = LocalCachesSingleton.getInstance().loadDBProps(context.getDBName());
+                }
             }
 
             if (dbProps == null
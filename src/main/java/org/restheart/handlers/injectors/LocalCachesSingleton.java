@@ -17,15 +17,22 @@
  */
 package org.restheart.handlers.injectors;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.mongodb.DBObject;
 import com.mongodb.MongoException;
 import org.restheart.Configuration;
 import org.restheart.db.DbsDAO;
 import java.util.Optional;
-import org.restheart.cache.Cache;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.restheart.cache.CacheStats;
 import org.restheart.cache.LoadingCache;
 import org.restheart.cache.CacheFactory;
 import org.restheart.db.Database;
+import org.restheart.hal.metadata.CollectionProps;
+import org.restheart.hal.metadata.DbProps;
 
 /**
  *
@@ -38,12 +45,18 @@ public class LocalCachesSingleton {
 
     private final Database dbsDAO;
 
-    private LoadingCache<String, DBObject> dbPropsCache = null;
-    private LoadingCache<String, DBObject> collectionPropsCache = null;
+    // the snapshots are built once per load and shared read-only by the requests
+    private LoadingCache<String, DbProps> dbPropsCache = null;
+    private LoadingCache<String, CollectionProps> collectionPropsCache = null;
+
+    private final CacheStats dbPropsStats = new CacheStats();
+    private final CacheStats collectionPropsStats = new CacheStats();
 
     private static long ttl = 1000;
+    private static long expiry = 60000;
     private static boolean enabled = false;
     private static final long maxCacheSize = 1000;
+    private static final int RELOAD_THREADS = 2;
 
     /**
      * Default ctor
@@ -59,6 +72,7 @@ public class LocalCachesSingleton {
      */
     public static void init(Configuration conf) {
         ttl = conf.getLocalCacheTtl();
+        expiry = conf.getLocalCacheExpiry();
         enabled = conf.isLocalCacheEnabled();
         initialized = true;
     }
@@ -69,15 +83,42 @@ public class LocalCachesSingleton {
         }
 
         if (enabled) {
-            this.dbPropsCache = CacheFactory.createLocalLoadingCache(maxCacheSize, Cache.EXPIRE_POLICY.AFTER_WRITE, ttl,
+            // the entries are reloaded in background, while the old values keep being used;
+            // the queue can hold a reload for each entry of the caches, when full the reload is executed by the requesting thread
+            Executor reloadExecutor = new ThreadPoolExecutor(RELOAD_THREADS, RELOAD_THREADS,
+                    0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>((int) maxCacheSize * 2),
+                    new ThreadFactoryBuilder()
+                    .setDaemon(true)
+                    .setNameFormat("local-caches-reloader-%d")
+                    .build(),
+                    new ThreadPoolExecutor.CallerRunsPolicy());
+
+            this.dbPropsCache = CacheFactory.createLocalRefreshingLoadingCache(maxCacheSize, ttl, expiry, reloadExecutor,
                     (String key) -> {
-                        return this.dbsDAO.getDatabaseProperties(key, true);
+                        long start = System.nanoTime();
+
+                        try {
+                            DBObject dbProps = this.dbsDAO.getDatabaseProperties(key, true);
+
+                            return dbProps == null ? null : new DbProps(dbProps);
+                        } finally {
+                            dbPropsStats.recordLoad(System.nanoTime() - start);
+                        }
                     });
 
-            this.collectionPropsCache = CacheFactory.createLocalLoadingCache(maxCacheSize, Cache.EXPIRE_POLICY.AFTER_WRITE, ttl,
+            this.collectionPropsCache = CacheFactory.createLocalRefreshingLoadingCache(maxCacheSize, ttl, expiry, reloadExecutor,
                     (String key) -> {
                         String[] dbNameAndCollectionName = key.split(SEPARATOR);
-                        return this.dbsDAO.getCollectionProperties(dbNameAndCollectionName[0], dbNameAndCollectionName[1], true);
+                        long start = System.nanoTime();
+
+                        try {
+                            DBObject collProps = this.dbsDAO.getCollectionProperties(dbNameAndCollectionName[0], dbNameAndCollectionName[1], true);
+
+                            return collProps == null ? null : new CollectionProps(collProps);
+                        } finally {
+                            collectionPropsStats.recordLoad(System.nanoTime() - start);
+                        }
                     });
         }
     }
@@ -98,88 +139,121 @@ public class LocalCachesSingleton {
     /**
      *
      * @param dbName
-     * @return
+     * @return the db properties, from the cache or loaded, or null if the db
+     * does not exist
+     */
+    public DbProps getDBProps(String dbName) {
+        Optional<DbProps> cached = getCachedDBProps(dbName);
+
+        return cached != null ? cached.orElse(null) : loadDBProps(dbName);
+    }
+
+    /**
+     *
+     * @param dbName
+     * @return the cached db properties, empty if the db does not exist, or null
+     * if not cached
      */
-    public DBObject getDBProps(String dbName) {
+    public Optional<DbProps> getCachedDBProps(String dbName) {
         if (!enabled) {
             throw new IllegalStateException("tried to use disabled cache");
         }
 
-        DBObject dbProps;
+        Optional<DbProps> cached = dbPropsCache.get(dbName);
 
-        Optional<DBObject> _dbProps = dbPropsCache.get(dbName);
-
-        if (_dbProps != null) {
-            if (_dbProps.isPresent()) {
-                dbProps = _dbProps.get();
-                dbProps.put("_db-props-cached", true);
-            } else {
-                dbProps = null;
-            }
+        if (cached != null) {
+            dbPropsStats.recordHit();
         } else {
-            try {
-                _dbProps = dbPropsCache.getLoading(dbName);
-            } catch (Throwable uex) {
-                if (uex.getCause() instanceof MongoException) {
-                    throw (MongoException) uex.getCause();
-                } else {
-                    throw uex;
-                }
-            }
+            dbPropsStats.recordMiss();
+        }
+
+        return cached;
+    }
+
+    /**
+     * loads the db properties into the cache
+     *
+     * @param dbName
+     * @return the db properties or null if the db does not exist
+     */
+    public DbProps loadDBProps(String dbName) {
+        if (!enabled) {
+            throw new IllegalStateException("tried to use disabled cache");
+        }
+
+        try {
+            Optional<DbProps> loaded = dbPropsCache.getLoading(dbName);
 
-            if (_dbProps != null && _dbProps.isPresent()) {
-                dbProps = _dbProps.get();
-                dbProps.put("_db-props-cached", false);
+            return loaded == null ? null : loaded.orElse(null);
+        } catch (Throwable uex) {
+            if (uex.getCause() instanceof MongoException) {
+                throw (MongoException) uex.getCause();
             } else {
-                dbProps = null;
+                throw uex;
             }
         }
+    }
+
+    /**
+     *
+     * @param dbName
+     * @param collName
+     * @return the collection properties, from the cache or loaded, or null if
+     * the collection does not exist
+     */
+    public CollectionProps getCollectionProps(String dbName, String collName) {
+        Optional<CollectionProps> cached = getCachedCollectionProps(dbName, collName);
 
-        return dbProps;
+        return cached != null ? cached.orElse(null) : loadCollectionProps(dbName, collName);
     }
 
     /**
      *
      * @param dbName
      * @param collName
-     * @return
+     * @return the cached collection properties, empty if the collection does
+     * not exist, or null if not cached
      */
-    public DBObject getCollectionProps(String dbName, String collName) {
+    public Optional<CollectionProps> getCachedCollectionProps(String dbName, String collName) {
         if (!enabled) {
             throw new IllegalStateException("tried to use disabled cache");
         }
 
-        DBObject collProps;
+        Optional<CollectionProps> cached = collectionPropsCache.get(dbName + SEPARATOR + collName);
 
-        Optional<DBObject> _collProps = collectionPropsCache.get(dbName + SEPARATOR + collName);
-
-        if (_collProps != null) {
-            if (_collProps.isPresent()) {
-                collProps = _collProps.get();
-                collProps.put("_collection-props-cached", true);
-            } else {
-                collProps = null;
-            }
+        if (cached != null) {
+            collectionPropsStats.recordHit();
         } else {
-            try {
-                _collProps = collectionPropsCache.getLoading(dbName + SEPARATOR + collName);
-            } catch (Throwable uex) {
-                if (uex.getCause() instanceof MongoException) {
-                    throw (MongoException) uex.getCause();
-                } else {
-                    throw uex;
-                }
-            }
+            collectionPropsStats.recordMiss();
+        }
+
+        return cached;
+    }
+
+    /**
+     * loads the collection properties into the cache
+     *
+     * @param dbName
+     * @param collName
+     * @return the collection properties or null if the collection does not
+     * exist
+     */
+    public CollectionProps loadCollectionProps(String dbName, String collName) {
+        if (!enabled) {
+            throw new IllegalStateException("tried to use disabled cache");
+        }
 
-            if (_collProps.isPresent()) {
-                collProps = _collProps.get();
-                collProps.put("_collection-props-cached", false);
+        try {
+            Optional<CollectionProps> loaded = collectionPropsCache.getLoading(dbName + SEPARATOR + collName);
+
+            return loaded == null ? null : loaded.orElse(null);
+        } catch (Throwable uex) {
+            if (uex.getCause() instanceof MongoException) {
+                throw (MongoException) uex.getCause();
             } else {
-                collProps = null;
+                throw uex;
             }
         }
-
-        return collProps;
     }
 
     /**
@@ -203,6 +277,20 @@ public class LocalCachesSingleton {
         }
     }
 
+    /**
+     * @return the statistics of the db properties cache
+     */
+    public CacheStats getDbPropsStats() {
+        return dbPropsStats;
+    }
+
+    /**
+     * @return the statistics of the collection properties cache
+     */
+    public CacheStats getCollectionPropsStats() {
+        return collectionPropsStats;
+    }
+
     /**
      * @return the enabled
      */
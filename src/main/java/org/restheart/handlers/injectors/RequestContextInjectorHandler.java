@@ -17,21 +17,30 @@
  */
 package org.restheart.handlers.injectors;
 
-import com.mongodb.util.JSON;
+import com.mongodb.BasicDBObject;
+import org.restheart.Bootstrapper;
+import org.restheart.db.DAOUtils;
 import org.restheart.db.DBCursorPool.EAGER_CURSOR_ALLOCATION_POLICY;
+import org.restheart.db.CompiledQuery;
+import org.restheart.hal.metadata.InvalidMetadataException;
+import org.restheart.hal.metadata.Projection;
 import org.restheart.handlers.PipedHttpHandler;
 import org.restheart.handlers.RequestContext;
+import static org.restheart.handlers.RequestContext.AFTER_QPARAM_KEY;
 import static org.restheart.handlers.RequestContext.EAGER_CURSOR_ALLOCATION_POLICY_QPARAM_KEY;
 import static org.restheart.handlers.RequestContext.FILTER_QPARAM_KEY;
+import static org.restheart.handlers.RequestContext.KEYSET_QPARAM_KEY;
+import static org.restheart.handlers.RequestContext.KEYS_QPARAM_KEY;
 import static org.restheart.handlers.RequestContext.PAGESIZE_QPARAM_KEY;
 import static org.restheart.handlers.RequestContext.PAGE_QPARAM_KEY;
 import static org.restheart.handlers.RequestContext.SORT_BY_QPARAM_KEY;
+import static org.restheart.handlers.RequestContext.STREAM_QPARAM_KEY;
 import org.restheart.utils.HttpStatus;
+import org.restheart.utils.RequestHelper;
 import org.restheart.utils.ResponseHelper;
 import org.restheart.utils.URLUtils;
 import io.undertow.server.HttpServerExchange;
 import java.util.Deque;
-import org.bson.BSONObject;
 import org.restheart.handlers.RequestContext.DOC_ID_TYPE;
 import static org.restheart.handlers.RequestContext.DOC_ID_TYPE_KEY;
 import org.restheart.utils.UnsupportedDocumentIdException;
@@ -42,6 +51,8 @@ import org.restheart.utils.UnsupportedDocumentIdException;
  */
 public class RequestContextInjectorHandler extends PipedHttpHandler {
 
+    private static final EAGER_CURSOR_ALLOCATION_POLICY DEFAULT_EAGER_POLICY = Bootstrapper.getConf().getEagerDefaultPolicy();
+
     private final String whereUri;
     private final String whatUri;
 
@@ -128,6 +139,37 @@ public class RequestContextInjectorHandler extends PipedHttpHandler {
         if (__count != null) {
             rcontext.setCount(true);
         }
+
+        // get and check the keyset pagination parameters
+        Deque<String> __after = exchange.getQueryParameters().get(AFTER_QPARAM_KEY);
+
+        if (exchange.getQueryParameters().get(KEYSET_QPARAM_KEY) != null || __after != null) {
+            if (page > 1) {
+                ResponseHelper.endExchangeWithMessage(exchange, HttpStatus.SC_BAD_REQUEST,
+                        "illegal page paramenter, it cannot be used with keyset pagination");
+                return;
+            }
+
+            rcontext.setKeyset(true);
+
+            if (__after != null && !__after.isEmpty() && __after.getFirst() != null && !__after.getFirst().isEmpty()) {
+                rcontext.setContinuationToken(__after.getFirst());
+            }
+        }
+
+        // get and check the stream parameter
+        Deque<String> __stream = exchange.getQueryParameters().get(STREAM_QPARAM_KEY);
+
+        if (__stream != null && (__stream.isEmpty() || !"false".equalsIgnoreCase(__stream.getFirst()))) {
+            if (rcontext.isKeyset()) {
+                ResponseHelper.endExchangeWithMessage(exchange, HttpStatus.SC_BAD_REQUEST,
+                        "illegal stream paramenter, it cannot be used with keyset pagination");
+                return;
+            }
+
+            rcontext.setStream(true);
+        }
+
         // get and check sort_by parameter
         Deque<String> sort_by = exchange.getQueryParameters().get("sort_by");
 
@@ -152,6 +194,9 @@ public class RequestContextInjectorHandler extends PipedHttpHandler {
         // get and check filter parameter
         Deque<String> filters = exchange.getQueryParameters().get(FILTER_QPARAM_KEY);
 
+        // the filters merged into a single query
+        final BasicDBObject filterQuery = new BasicDBObject();
+
         if (filters != null) {
             if (filters.stream().anyMatch(f -> {
                 if (f == null || f.isEmpty()) {
@@ -161,13 +206,11 @@ public class RequestContextInjectorHandler extends PipedHttpHandler {
                 }
 
                 try {
-                    Object _filter = JSON.parse(f);
-                    
-                    if (!(_filter instanceof BSONObject)) {
-                        ResponseHelper.endExchangeWithMessage(exchange, HttpStatus.SC_BAD_REQUEST,
-                            "illegal filter paramenter, it is not a json object: " + f + " => " + f.getClass().getSimpleName());
+                    filterQuery.putAll(CompiledQuery.compileFilter(f));
+                } catch (IllegalArgumentException iae) {
+                    ResponseHelper.endExchangeWithMessage(exchange, HttpStatus.SC_BAD_REQUEST,
+                            "illegal filter paramenter, " + iae.getMessage());
                     return true;
-                    }
                 } catch (Throwable t) {
                     ResponseHelper.endExchangeWithMessage(exchange, HttpStatus.SC_BAD_REQUEST,
                             "illegal filter paramenter: " + f, t);
@@ -182,11 +225,55 @@ public class RequestContextInjectorHandler extends PipedHttpHandler {
             rcontext.setFilter(exchange.getQueryParameters().get(FILTER_QPARAM_KEY));
         }
 
+        // get and check keys parameter
+        Deque<String> keys = exchange.getQueryParameters().get(KEYS_QPARAM_KEY);
+
+        // the keys merged into a single projection
+        final BasicDBObject projection = new BasicDBObject();
+
+        if (keys != null) {
+            if (keys.stream().anyMatch(k -> {
+                if (k == null || k.isEmpty()) {
+                    ResponseHelper.endExchangeWithMessage(exchange, HttpStatus.SC_BAD_REQUEST,
+                            "illegal keys paramenter (empty)");
+                    return true;
+                }
+
+                try {
+                    projection.putAll(CompiledQuery.compileFilter(k));
+                } catch (IllegalArgumentException iae) {
+                    ResponseHelper.endExchangeWithMessage(exchange, HttpStatus.SC_BAD_REQUEST,
+                            "illegal keys paramenter, " + iae.getMessage());
+                    return true;
+                } catch (Throwable t) {
+                    ResponseHelper.endExchangeWithMessage(exchange, HttpStatus.SC_BAD_REQUEST,
+                            "illegal keys paramenter: " + k, t);
+                    return true;
+                }
+
+                return false;
+            })) {
+                return; // an error occurred
+            }
+
+            try {
+                Projection.check(projection);
+            } catch (InvalidMetadataException ime) {
+                ResponseHelper.endExchangeWithMessage(exchange, HttpStatus.SC_BAD_REQUEST,
+                        "illegal keys paramenter, " + ime.getMessage(), ime);
+                return;
+            }
+
+            rcontext.setKeys(keys);
+        }
+
+        rcontext.setQuery(new CompiledQuery(rcontext.getDBName(), rcontext.getCollectionName(), filterQuery, DAOUtils.getSortObject(rcontext.getSortBy()), keys == null ? null : projection));
+
         // get and check eager parameter
         Deque<String> __eager = exchange.getQueryParameters().get(EAGER_CURSOR_ALLOCATION_POLICY_QPARAM_KEY);
 
         // default value
-        EAGER_CURSOR_ALLOCATION_POLICY eager = EAGER_CURSOR_ALLOCATION_POLICY.LINEAR;
+        EAGER_CURSOR_ALLOCATION_POLICY eager = DEFAULT_EAGER_POLICY;
 
         if (__eager != null && !__eager.isEmpty()) {
             String _eager = __eager.getFirst();
@@ -196,7 +283,7 @@ public class RequestContextInjectorHandler extends PipedHttpHandler {
                     eager = EAGER_CURSOR_ALLOCATION_POLICY.valueOf(_eager.trim().toUpperCase());
                 } catch (IllegalArgumentException iae) {
                     ResponseHelper.endExchangeWithMessage(exchange, HttpStatus.SC_BAD_REQUEST,
-                            "illegal eager paramenter (must be LINEAR, RANDOM or NONE)");
+                            "illegal eager paramenter (must be LINEAR, RANDOM, NONE or AUTO)");
                     return;
                 }
             }
@@ -204,6 +291,8 @@ public class RequestContextInjectorHandler extends PipedHttpHandler {
 
         rcontext.setCursorAllocationPolicy(eager);
 
+        rcontext.setRepresentationFormat(RequestHelper.getRepresentationFormat(exchange));
+
         // get and check the doc id type parameter
         Deque<String> __docIdType = exchange.getQueryParameters().get(DOC_ID_TYPE_KEY);
 
@@ -0,0 +1,102 @@
+/*
+ * RESTHeart - the data REST API server
+ * Copyright (C) 2014 - 2015 SoftInstigate Srl
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.restheart.handlers.injectors;
+
+import com.mongodb.util.JSONCallback;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import org.bson.BSONObject;
+
+/**
+ * The callback of the json parser that builds the request content, filtering
+ * out the reserved keys (the root properties starting with _, apart from _id)
+ * while parsing.
+ *
+ * The objects of the reserved keys are still built, since the parser events
+ * must be consumed, but are detached from the root object as soon as they
+ * start.
+ *
+ * @author Andrea Di Cesare <andrea@softinstigate.com>
+ */
+class ReservedKeysFilteringCallback extends JSONCallback {
+
+    // the number of the objects being parsed; the root properties are put at depth 1
+    private int depth = 0;
+
+    private final Set<String> filtered = new LinkedHashSet<>();
+
+    @Override
+    public void objectStart(boolean array) {
+        // the root object
+        super.objectStart(array);
+
+        depth++;
+    }
+
+    @Override
+    public void objectStart(boolean array, String name) {
+        BSONObject parent = depth == 1 ? cur() : null;
+
+        super.objectStart(array, name);
+
+        depth++;
+
+        if (parent != null && isReserved(name)) {
+            parent.removeField(name);
+            filtered.add(name);
+        }
+    }
+
+    @Override
+    public Object objectDone() {
+        // JSONCallback puts the special objects ($oid, $date...) to the parent
+        depth--;
+
+        return super.objectDone();
+    }
+
+    @Override
+    protected void _put(String name, Object o) {
+        if (depth == 1 && isReserved(name)) {
+            filtered.add(name);
+        } else {
+            super._put(name, o);
+        }
+    }
+
+    @Override
+    public void gotNull(String name) {
+        // BasicBSONCallback puts nulls directly, not via _put
+        if (depth == 1 && isReserved(name)) {
+            filtered.add(name);
+        } else {
+            super.gotNull(name);
+        }
+    }
+
+    /**
+     * @return the reserved keys filtered out from the content
+     */
+    public Set<String> getFiltered() {
+        return filtered;
+    }
+
+    private static boolean isReserved(String name) {
+        return name != null && name.startsWith("_") && !name.equals("_id");
+    }
+}
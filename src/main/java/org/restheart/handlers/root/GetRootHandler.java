@@ -22,6 +22,7 @@ import org.restheart.utils.HttpStatus;
 import org.restheart.handlers.PipedHttpHandler;
 import org.restheart.handlers.RequestContext;
 import org.restheart.handlers.injectors.LocalCachesSingleton;
+import org.restheart.hal.metadata.DbProps;
 import io.undertow.server.HttpServerExchange;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -73,7 +74,9 @@ public class GetRootHandler extends PipedHttpHandler {
 
             dbs.stream().map((db) -> {
                 if (LocalCachesSingleton.isEnabled()) {
-                    return LocalCachesSingleton.getInstance().getDBProps(db);
+                    DbProps dbProps = LocalCachesSingleton.getInstance().getDBProps(db);
+
+                    return dbProps == null ? null : dbProps.getProps();
                 } else {
                     return getDatabase().getDatabaseProperties(db, true);
                 }
@@ -0,0 +1,213 @@
+/*
+ * RESTHeart - the data REST API server
+ * Copyright (C) 2014 - 2015 SoftInstigate Srl
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.restheart.handlers.stats;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.Headers;
+import io.undertow.util.Methods;
+import org.restheart.Bootstrapper;
+import org.restheart.cache.CacheStats;
+import org.restheart.db.DBCursorPool;
+import org.restheart.db.PrefetchBuffer;
+import org.restheart.hal.Representation;
+import static org.restheart.hal.Representation.HAL_JSON_MEDIA_TYPE;
+import org.restheart.handlers.PipedHttpHandler;
+import org.restheart.handlers.RequestContext;
+import org.restheart.handlers.ResponseCache;
+import org.restheart.handlers.SingleFlight;
+import org.restheart.handlers.collection.CollectionQueryStats;
+import org.restheart.handlers.injectors.LocalCachesSingleton;
+import org.restheart.utils.HttpStatus;
+import org.restheart.utils.ResponseHelper;
+import org.restheart.utils.URLUtils;
+
+/**
+ * Returns the statistics of the db cursor pool at /_stats/cursorpool, of the
+ * single flight at /_stats/singleflight, of the db and collection properties
+ * caches at /_stats/localcaches, of the prefetch buffer at /_stats/prefetch, of
+ * the response cache at /_stats/responsecache and of the collection queries at
+ * /_stats/queries
+ *
+ * @author Andrea Di Cesare <andrea@softinstigate.com>
+ */
+public class StatsHandler extends PipedHttpHandler {
+
+    public static final String STATS_URI = "/_stats";
+    public static final String CURSOR_POOL_STATS_URI = STATS_URI + "/cursorpool";
+    public static final String SINGLE_FLIGHT_STATS_URI = STATS_URI + "/singleflight";
+    public static final String LOCAL_CACHES_STATS_URI = STATS_URI + "/localcaches";
+    public static final String PREFETCH_STATS_URI = STATS_URI + "/prefetch";
+    public static final String RESPONSE_CACHE_STATS_URI = STATS_URI + "/responsecache";
+    public static final String QUERIES_STATS_URI = STATS_URI + "/queries";
+
+    /**
+     *
+     * @param exchange
+     * @param context
+     * @throws Exception
+     */
+    @Override
+    public void handleRequest(HttpServerExchange exchange, RequestContext context) throws Exception {
+        if (!Methods.GET.equals(exchange.getRequestMethod())) {
+            ResponseHelper.endExchange(exchange, HttpStatus.SC_METHOD_NOT_ALLOWED);
+            return;
+        }
+
+        String path = URLUtils.removeTrailingSlashes(exchange.getRequestPath());
+
+        Representation rep;
+
+        if (CURSOR_POOL_STATS_URI.equals(path)) {
+            rep = getCursorPoolStats();
+        } else if (SINGLE_FLIGHT_STATS_URI.equals(path)) {
+            rep = getSingleFlightStats();
+        } else if (LOCAL_CACHES_STATS_URI.equals(path)) {
+            rep = getLocalCachesStats();
+        } else if (PREFETCH_STATS_URI.equals(path)) {
+            rep = getPrefetchStats();
+        } else if (RESPONSE_CACHE_STATS_URI.equals(path)) {
+            rep = getResponseCacheStats();
+        } else if (QUERIES_STATS_URI.equals(path)) {
+            rep = getQueriesStats();
+        } else {
+            ResponseHelper.endExchange(exchange, HttpStatus.SC_NOT_FOUND);
+            return;
+        }
+
+        exchange.setResponseCode(HttpStatus.SC_OK);
+        exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, HAL_JSON_MEDIA_TYPE);
+        exchange.getResponseSender().send(rep.toString());
+        exchange.endExchange();
+    }
+
+    private static Representation getCursorPoolStats() {
+        DBCursorPool pool = DBCursorPool.getInstance();
+
+        Representation rep = new Representation(CURSOR_POOL_STATS_URI);
+
+        rep.addProperty("hits", pool.getHits());
+        rep.addProperty("misses", pool.getMisses());
+        rep.addProperty("saved_seeks", pool.getSavedSeeks());
+        rep.addProperty("auto_saved_seeks", pool.getAutoSavedSeeks());
+        rep.addProperty("auto_policy_decisions", pool.getAutoPolicyDecisions());
+        rep.addProperty("created_cursors", pool.getCreatedCursors());
+        rep.addProperty("evicted_cursors", pool.getEvictedCursors());
+        rep.addProperty("refreshed_cursors", pool.getRefreshedCursors());
+        rep.addProperty("live_cursors", pool.getLiveCursors());
+        rep.addProperty("live_cursors_by_shape", pool.getLiveCursorsByShape());
+        rep.addProperty("population_queue_size", pool.getPopulationQueueSize());
+        rep.addProperty("population_tasks", pool.getPopulationTasks());
+        rep.addProperty("dropped_populations", pool.getDroppedPopulations());
+        rep.addProperty("average_population_time_ms", pool.getAveragePopulationTime());
+
+        return rep;
+    }
+
+    private static Representation getSingleFlightStats() {
+        SingleFlight singleFlight = SingleFlight.getInstance();
+
+        Representation rep = new Representation(SINGLE_FLIGHT_STATS_URI);
+
+        rep.addProperty("requests", singleFlight.getRequests());
+        rep.addProperty("coalesced", singleFlight.getCoalesced());
+        rep.addProperty("coalescing_ratio", singleFlight.getCoalescingRatio());
+        rep.addProperty("in_flight", singleFlight.getInFlight());
+
+        return rep;
+    }
+
+    private static Representation getLocalCachesStats() {
+        Representation rep = new Representation(LOCAL_CACHES_STATS_URI);
+
+        rep.addProperty("enabled", LocalCachesSingleton.isEnabled());
+
+        if (LocalCachesSingleton.isEnabled()) {
+            rep.addProperty("db_props", getCacheStats(LocalCachesSingleton.getInstance().getDbPropsStats()));
+            rep.addProperty("collection_props", getCacheStats(LocalCachesSingleton.getInstance().getCollectionPropsStats()));
+        }
+
+        return rep;
+    }
+
+    private static Representation getPrefetchStats() {
+        PrefetchBuffer buffer = PrefetchBuffer.getInstance();
+
+        Representation rep = new Representation(PREFETCH_STATS_URI);
+
+        rep.addProperty("enabled", buffer.isEnabled());
+        rep.addProperty("hits", buffer.getHits());
+        rep.addProperty("misses", buffer.getMisses());
+        rep.addProperty("hit_rate", buffer.getHitRate());
+        rep.addProperty("size_bytes", buffer.getSize());
+        rep.addProperty("pages", buffer.getPages());
+        rep.addProperty("prefetched_pages", buffer.getPrefetchedPages());
+        rep.addProperty("dropped_prefetches", buffer.getDroppedPrefetches());
+        rep.addProperty("queue_size", buffer.getQueueSize());
+
+        return rep;
+    }
+
+    private static Representation getResponseCacheStats() {
+        Representation rep = new Representation(RESPONSE_CACHE_STATS_URI);
+
+        boolean enabled = Bootstrapper.getConf().isResponseCache();
+
+        rep.addProperty("enabled", enabled);
+
+        if (enabled) {
+            ResponseCache cache = ResponseCache.getInstance();
+
+            rep.addProperty("hits", cache.getHits());
+            rep.addProperty("misses", cache.getMisses());
+            rep.addProperty("hit_rate", cache.getHitRate());
+            rep.addProperty("entries", cache.getEntries());
+            rep.addProperty("max_entry_size_bytes", cache.getMaxEntrySize());
+        }
+
+        return rep;
+    }
+
+    private static Representation getQueriesStats() {
+        CollectionQueryStats stats = CollectionQueryStats.getInstance();
+
+        Representation rep = new Representation(QUERIES_STATS_URI);
+
+        rep.addProperty("queries", stats.getQueries());
+        rep.addProperty("counts", stats.getCounts());
+        rep.addProperty("exports", stats.getExports());
+        rep.addProperty("average_count_time_ms", stats.getAverageCountTime());
+        rep.addProperty("average_data_time_ms", stats.getAverageDataTime());
+        rep.addProperty("average_query_time_ms", stats.getAverageQueryTime());
+        rep.addProperty("average_export_time_ms", stats.getAverageExportTime());
+
+        return rep;
+    }
+
+    private static DBObject getCacheStats(CacheStats stats) {
+        DBObject ret = new BasicDBObject();
+
+        ret.put("hits", stats.getHits());
+        ret.put("misses", stats.getMisses());
+        ret.put("loads", stats.getLoads());
+        ret.put("average_load_time_ms", stats.getAverageLoadTime());
+
+        return ret;
+    }
+}
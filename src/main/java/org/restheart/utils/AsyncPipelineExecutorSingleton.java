@@ -0,0 +1,76 @@
+/*
+ * RESTHeart - the data REST API server
+ * Copyright (C) 2014 - 2015 SoftInstigate Srl
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.restheart.utils;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.restheart.Bootstrapper;
+
+/**
+ * The bounded executor of the mongodb queries of the async pipeline. When its
+ * queue is full, the query is executed by the requesting thread. If the async
+ * pipeline is disabled, the queries are always executed by the requesting
+ * thread.
+ *
+ * @author Andrea Di Cesare <andrea@softinstigate.com>
+ */
+public class AsyncPipelineExecutorSingleton {
+
+    private final Executor executor;
+
+    private AsyncPipelineExecutorSingleton() {
+        if (Bootstrapper.getConf().isAsyncPipeline()) {
+            int threads = Math.max(1, Bootstrapper.getConf().getAsyncPipelineThreads());
+            int queueSize = Math.max(1, Bootstrapper.getConf().getAsyncPipelineQueueSize());
+
+            this.executor = new ThreadPoolExecutor(threads, threads,
+                    0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueSize),
+                    new ThreadFactoryBuilder()
+                    .setDaemon(true)
+                    .setNameFormat("async-pipeline-executor-%d")
+                    .build(),
+                    new ThreadPoolExecutor.CallerRunsPolicy());
+        } else {
+            this.executor = Runnable::run;
+        }
+    }
+
+    /**
+     *
+     * @return
+     */
+    public static AsyncPipelineExecutorSingleton getInstance() {
+        return AsyncPipelineExecutorSingletonHolder.INSTANCE;
+    }
+
+    /**
+     * @return the executor
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    private static class AsyncPipelineExecutorSingletonHolder {
+
+        private static final AsyncPipelineExecutorSingleton INSTANCE = new AsyncPipelineExecutorSingleton();
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * RESTHeart - the data REST API server
+ * Copyright (C) 2014 - 2015 SoftInstigate Srl
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.restheart.utils;
+
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.SameThreadExecutor;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executor;
+import org.restheart.handlers.ElasticBlockingHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xnio.IoUtils;
+import org.xnio.Pooled;
+import org.xnio.channels.StreamSourceChannel;
+
+/**
+ * Reads the request body without blocking, using the pooled buffers of the
+ * connection and decoding it as UTF-8 while the bytes arrive.
+ *
+ * The body available without waiting is read in the calling thread; otherwise
+ * the reading continues in the io thread when the channel is readable and the
+ * callback is then dispatched to the executor of the blocking handler.
+ *
+ * Requests bigger than the maximum size are rejected with 413 Request Entity
+ * Too Large, as soon as the Content-Length header or the read bytes exceed it.
+ *
+ * @author Andrea Di Cesare <andrea@softinstigate.com>
+ */
+public class BodyReader {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BodyReader.class);
+
+    // the maximum initial capacity of the char buffer, when the Content-Length is known
+    private static final int MAX_INITIAL_CAPACITY = 64 * 1024;
+
+    private static final int DEFAULT_INITIAL_CAPACITY = 1024;
+
+    private enum STATE {
+        READING, // waiting for more bytes
+        DONE, // the whole body has been read
+        TOO_LARGE // the body exceeds the maximum size
+    };
+
+    /**
+     * the callback invoked with the request body
+     */
+    @FunctionalInterface
+    public interface Callback {
+
+        /**
+         *
+         * @param exchange
+         * @param body the request body
+         * @throws Exception
+         */
+        void handle(HttpServerExchange exchange, String body) throws Exception;
+    }
+
+    private final HttpServerExchange exchange;
+    private final long maxSize;
+    private final Callback callback;
+
+    // malformed input is replaced, as String(byte[], Charset) does
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    private StreamSourceChannel channel;
+    private Pooled<ByteBuffer> pooled;
+    private CharBuffer chars;
+    private long read = 0;
+    private Executor executor;
+
+    private BodyReader(HttpServerExchange exchange, long maxSize, Callback callback) {
+        this.exchange = exchange;
+        this.maxSize = maxSize;
+        this.callback = callback;
+    }
+
+    /**
+     * Reads the request body and invokes the callback with it. The callback
+     * can be invoked in the calling thread, before this method returns, or
+     * later in a worker thread; in the latter case the exceptions it throws
+     * are handled as the ones of the handlers (500 Internal Server Error).
+     *
+     * @param exchange
+     * @param maxSize the maximum size of the body in bytes
+     * @param callback
+     * @throws Exception if the callback, invoked in the calling thread, throws
+     * it
+     */
+    public static void read(HttpServerExchange exchange, long maxSize, Callback callback) throws Exception {
+        long length = exchange.getRequestContentLength();
+
+        if (length > maxSize) {
+            tooLarge(exchange, maxSize);
+            return;
+        }
+
+        new BodyReader(exchange, maxSize, callback).start(length);
+    }
+
+    private void start(long length) throws Exception {
+        channel = exchange.getRequestChannel();
+
+        if (channel == null) {
+            throw new IllegalStateException("the request channel has been already read");
+        }
+
+        chars = CharBuffer.allocate(length > 0 ? (int) Math.min(length, MAX_INITIAL_CAPACITY) : DEFAULT_INITIAL_CAPACITY);
+        pooled = exchange.getConnection().getBufferPool().allocate();
+
+        STATE state;
+
+        try {
+            state = readAvailable();
+        } catch (IOException | RuntimeException ex) {
+            pooled.free();
+            throw ex;
+        }
+
+        switch (state) {
+            case DONE:
+                complete(true);
+                break;
+            case TOO_LARGE:
+                tooLarge(exchange, maxSize);
+                break;
+            default:
+                // the executor of the blocking handler, null for the worker threads
+                executor = ElasticBlockingHandler.getExecutor(exchange);
+
+                // wait for the rest of the body in the io thread
+                exchange.dispatch(SameThreadExecutor.INSTANCE, () -> {
+                    channel.getReadSetter().set(ch -> onReadable());
+                    channel.resumeReads();
+                });
+        }
+    }
+
+    /**
+     * invoked in the io thread when the channel is readable
+     */
+    private void onReadable() {
+        STATE state;
+
+        try {
+            state = readAvailable();
+        } catch (IOException | RuntimeException ex) {
+            LOGGER.debug("error reading the request body", ex);
+            pooled.free();
+            IoUtils.safeClose(exchange.getConnection());
+            return;
+        }
+
+        if (state != STATE.READING) {
+            channel.suspendReads();
+            channel.getReadSetter().set(null);
+
+            // the response is sent with blocking writes, not allowed in the io thread
+            if (state == STATE.DONE) {
+                exchange.dispatch(executor, ex -> complete(false));
+            } else {
+                exchange.dispatch(executor, ex -> tooLarge(ex, maxSize));
+            }
+        }
+    }
+
+    /**
+     * reads and decodes the bytes available in the channel; the pooled buffer
+     * is freed unless the state is READING
+     */
+    private STATE readAvailable() throws IOException {
+        ByteBuffer buf = pooled.getResource();
+
+        int res;
+
+        while ((res = channel.read(buf)) > 0) {
+            read += res;
+
+            if (read > maxSize) {
+                pooled.free();
+                return STATE.TOO_LARGE;
+            }
+
+            buf.flip();
+            decode(buf, false);
+            buf.compact();
+        }
+
+        if (res == -1) {
+            buf.flip();
+            decode(buf, true);
+            pooled.free();
+            return STATE.DONE;
+        }
+
+        return STATE.READING;
+    }
+
+    private void decode(ByteBuffer buf, boolean endOfInput) {
+        while (decoder.decode(buf, chars, endOfInput).isOverflow()) {
+            grow();
+        }
+
+        if (endOfInput) {
+            while (decoder.flush(chars).isOverflow()) {
+                grow();
+            }
+        }
+    }
+
+    private void grow() {
+        CharBuffer _chars = CharBuffer.allocate(chars.capacity() * 2);
+
+        chars.flip();
+        _chars.put(chars);
+
+        chars = _chars;
+    }
+
+    private void complete(boolean sameThread) throws Exception {
+        chars.flip();
+
+        if (sameThread) {
+            callback.handle(exchange, chars.toString());
+        } else {
+            try {
+                callback.handle(exchange, chars.toString());
+            } catch (Throwable t) {
+                LOGGER.error("error handling the request", t);
+
+                ResponseHelper.endExchangeWithMessage(exchange, HttpStatus.SC_INTERNAL_SERVER_ERROR, "error handling the request", t);
+            }
+        }
+    }
+
+    private static void tooLarge(HttpServerExchange exchange, long maxSize) {
+        ResponseHelper.endExchangeWithMessage(exchange, HttpStatus.SC_REQUEST_TOO_LONG, "request body too large, the maximum size is " + maxSize + " bytes");
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * RESTHeart - the data REST API server
+ * Copyright (C) 2014 - 2015 SoftInstigate Srl
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.restheart.utils;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.restheart.Bootstrapper;
+
+/**
+ * The bounded executor that counts the documents of collections concurrently
+ * with the queries of the page data. When its queue is full, the count is
+ * executed by the requesting thread.
+ *
+ * @author Andrea Di Cesare <andrea@softinstigate.com>
+ */
+public class CountExecutorSingleton {
+
+    private final ExecutorService executorService;
+
+    private CountExecutorSingleton() {
+        int threads = Math.max(1, Bootstrapper.getConf().getCountThreads());
+        int queueSize = Math.max(1, Bootstrapper.getConf().getCountQueueSize());
+
+        this.executorService = new ThreadPoolExecutor(threads, threads,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .setNameFormat("count-executor-%d")
+                .build(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     *
+     * @return
+     */
+    public static CountExecutorSingleton getInstance() {
+        return CountExecutorSingletonHolder.INSTANCE;
+    }
+
+    /**
+     * @return the executorService
+     */
+    public ExecutorService getExecutorService() {
+        return executorService;
+    }
+
+    private static class CountExecutorSingletonHolder {
+
+        private static final CountExecutorSingleton INSTANCE = new CountExecutorSingleton();
+    }
+}
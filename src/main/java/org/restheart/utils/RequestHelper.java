@@ -21,6 +21,11 @@ import io.undertow.server.HttpServerExchange;
 import io.undertow.util.HeaderValues;
 import io.undertow.util.Headers;
 import org.bson.types.ObjectId;
+import static org.restheart.hal.Representation.BSON_MEDIA_TYPE;
+import static org.restheart.hal.Representation.HAL_JSON_MEDIA_TYPE;
+import static org.restheart.hal.Representation.JSON_MEDIA_TYPE;
+import static org.restheart.hal.Representation.NDJSON_MEDIA_TYPE;
+import org.restheart.handlers.RequestContext.REPRESENTATION_FORMAT;
 
 /**
  *
@@ -44,6 +49,22 @@ public class RequestHelper {
         return vs == null || vs.getFirst() == null ? false : vs.getFirst().equals(etag.toString());
     }
 
+    /**
+     *
+     * @param exchange
+     * @param etag
+     * @return true if the IF_NONE_MATCH header matches the etag
+     */
+    public static boolean checkReadEtag(HttpServerExchange exchange, String etag) {
+        if (etag == null) {
+            return false;
+        }
+
+        HeaderValues vs = exchange.getRequestHeaders().get(Headers.IF_NONE_MATCH);
+
+        return vs == null || vs.getFirst() == null ? false : vs.getFirst().equals(etag);
+    }
+
     /**
      *
      * @param exchange
@@ -71,4 +92,78 @@ public class RequestHelper {
             return new ObjectId();
         }
     }
+
+    /**
+     * Negotiates the representation format from the Accept header: the media
+     * type with the highest quality among application/bson,
+     * application/x-ndjson and the hal ones (application/hal+json,
+     * application/json and the wildcards); HAL if the header is missing or
+     * does not accept any of them, so that existing clients are unaffected.
+     *
+     * @param exchange
+     * @return the representation format
+     */
+    public static REPRESENTATION_FORMAT getRepresentationFormat(HttpServerExchange exchange) {
+        HeaderValues vs = exchange.getRequestHeaders().get(Headers.ACCEPT);
+
+        if (vs == null || vs.isEmpty()) {
+            return REPRESENTATION_FORMAT.HAL;
+        }
+
+        REPRESENTATION_FORMAT ret = REPRESENTATION_FORMAT.HAL;
+        float retQuality = 0;
+
+        for (String header : vs) {
+            for (String mediaRange : header.split(",")) {
+                String[] tokens = mediaRange.split(";");
+                REPRESENTATION_FORMAT format = getRepresentationFormat(tokens[0].trim().toLowerCase());
+
+                if (format == null) {
+                    continue;
+                }
+
+                float quality = getQuality(tokens);
+
+                // on equal quality the first one wins
+                if (quality > retQuality) {
+                    ret = format;
+                    retQuality = quality;
+                }
+            }
+        }
+
+        return ret;
+    }
+
+    private static REPRESENTATION_FORMAT getRepresentationFormat(String mediaType) {
+        switch (mediaType) {
+            case BSON_MEDIA_TYPE:
+                return REPRESENTATION_FORMAT.BSON;
+            case NDJSON_MEDIA_TYPE:
+                return REPRESENTATION_FORMAT.NDJSON;
+            case HAL_JSON_MEDIA_TYPE:
+            case JSON_MEDIA_TYPE:
+            case "application/*":
+            case "*/*":
+                return REPRESENTATION_FORMAT.HAL;
+            default:
+                return null;
+        }
+    }
+
+    private static float getQuality(String[] mediaRangeTokens) {
+        for (int cont = 1; cont < mediaRangeTokens.length; cont++) {
+            String param = mediaRangeTokens[cont].trim();
+
+            if (param.startsWith("q=")) {
+                try {
+                    return Float.parseFloat(param.substring(2).trim());
+                } catch (NumberFormatException nfe) {
+                    return 0;
+                }
+            }
+        }
+
+        return 1;
+    }
 }
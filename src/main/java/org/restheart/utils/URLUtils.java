@@ -222,19 +222,55 @@ public class URLUtils {
      * @throws org.restheart.utils.UnsupportedDocumentIdException
      */
     static public String getUriWithDocId(RequestContext context, String dbName, String collName, Object id, boolean detectOids) throws UnsupportedDocumentIdException {
-        DOC_ID_TYPE docIdType = URLUtils.checkId(id);
-
         StringBuilder sb = new StringBuilder();
 
-        sb.append("/").append(dbName).append("/").append(collName).append("/").append(id);
+        sb.append("/").append(dbName).append("/").append(collName).append("/").append(id)
+                .append(getDocIdTypeQueryString(id, detectOids));
+
+        return context.mapUri(sb.toString().replaceAll(" ", ""));
+    }
+
+    /**
+     *
+     * @param id
+     * @param detectOids
+     * @return the id_type query parameter needed to get the document with the
+     * given id, or the empty string if not needed
+     * @throws org.restheart.utils.UnsupportedDocumentIdException
+     */
+    static public String getDocIdTypeQueryString(Object id, boolean detectOids) throws UnsupportedDocumentIdException {
+        DOC_ID_TYPE docIdType = URLUtils.checkId(id);
 
         if (!detectOids && docIdType == DOC_ID_TYPE.STRING_OID && ObjectId.isValid(id.toString())) {
-            sb.append("?").append(DOC_ID_TYPE_KEY).append("=STRING");
+            return "?" + DOC_ID_TYPE_KEY + "=STRING";
         } else if (docIdType != STRING && docIdType != DOC_ID_TYPE.OID && docIdType != DOC_ID_TYPE.STRING_OID) {
-            sb.append("?").append(DOC_ID_TYPE_KEY).append("=").append(docIdType.name());
+            return "?" + DOC_ID_TYPE_KEY + "=" + docIdType.name();
+        } else {
+            return "";
         }
+    }
 
-        return context.mapUri(sb.toString().replaceAll(" ", ""));
+    /**
+     *
+     * @param s
+     * @return the string without spaces, as the links built by this class
+     */
+    static public String removeSpaces(String s) {
+        if (s == null || s.indexOf(' ') < 0) {
+            return s;
+        }
+
+        StringBuilder sb = new StringBuilder(s.length());
+
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+
+            if (c != ' ') {
+                sb.append(c);
+            }
+        }
+
+        return sb.toString();
     }
 
     /**
@@ -395,7 +431,13 @@ public class URLUtils {
         return id;
     }
 
-    private static String getIdString(Object id) throws UnsupportedDocumentIdException {
+    /**
+     *
+     * @param id
+     * @return the id as a json value for the filter query parameter
+     * @throws org.restheart.utils.UnsupportedDocumentIdException
+     */
+    public static String getIdString(Object id) throws UnsupportedDocumentIdException {
         if (id == null) {
             return null;
         }
@@ -418,7 +460,13 @@ public class URLUtils {
         }
     }
 
-    private static String getIdsString(Object[] ids) throws UnsupportedDocumentIdException {
+    /**
+     *
+     * @param ids
+     * @return the ids as a json array for the filter query parameter
+     * @throws org.restheart.utils.UnsupportedDocumentIdException
+     */
+    public static String getIdsString(Object[] ids) throws UnsupportedDocumentIdException {
         if (ids == null) {
             return null;
         }
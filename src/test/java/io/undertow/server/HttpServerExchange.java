@@ -18,6 +18,7 @@
 package io.undertow.server;
 
 import io.undertow.util.AbstractAttachable;
+import io.undertow.util.HeaderMap;
 import io.undertow.util.HttpString;
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
@@ -40,6 +41,7 @@ public class HttpServerExchange extends AbstractAttachable {
     private String requestPath;
     private HttpString requestMethod;
     private Map<String, Deque<String>> queryParameters;
+    private final HeaderMap requestHeaders = new HeaderMap();
 
     public HttpServerExchange() {
     }
@@ -132,6 +134,13 @@ public class HttpServerExchange extends AbstractAttachable {
         this.requestMethod = requestMethod;
     }
     
+    /**
+     * @return the requestHeaders
+     */
+    public HeaderMap getRequestHeaders() {
+        return requestHeaders;
+    }
+
     public InputStream getInputStream() {
         return new ByteArrayInputStream("FAKE_STREAM".getBytes());
     }
@@ -0,0 +1,79 @@
+/*
+ * RESTHeart - the data REST API server
+ * Copyright (C) SoftInstigate Srl
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.restheart.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Andrea Di Cesare <andrea@softinstigate.com>
+ */
+public class RefreshingLoadingCacheTest {
+
+    public RefreshingLoadingCacheTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    @Test
+    public void testRefresh() throws InterruptedException {
+        System.out.println("testRefresh");
+
+        AtomicInteger version = new AtomicInteger(0);
+        List<Runnable> reloads = new ArrayList<>();
+
+        LoadingCache<String, String> cache = CacheFactory.createLocalRefreshingLoadingCache(10, 1, 60000,
+                reloads::add, key -> key + version.incrementAndGet());
+
+        assertEquals(Optional.of("a1"), cache.getLoading("a"));
+
+        Thread.sleep(10);
+
+        // the reload is pending, the old value is returned
+        assertEquals(Optional.of("a1"), cache.get("a"));
+        assertEquals(Optional.of("a1"), cache.get("a"));
+        assertEquals(1, reloads.size());
+
+        reloads.get(0).run();
+
+        assertEquals(Optional.of("a2"), cache.get("a"));
+    }
+}
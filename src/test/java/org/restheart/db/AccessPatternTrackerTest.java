@@ -0,0 +1,106 @@
+/*
+ * RESTHeart - the data REST API server
+ * Copyright (C) SoftInstigate Srl
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.restheart.db;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.restheart.db.AccessPatternTracker.ACCESS_PATTERN;
+
+/**
+ *
+ * @author Andrea Di Cesare <andrea@softinstigate.com>
+ */
+public class AccessPatternTrackerTest {
+
+    public AccessPatternTrackerTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    @Test
+    public void testOneShot() {
+        System.out.println("testOneShot");
+
+        AccessPatternTracker tracker = new AccessPatternTracker(8, 1000);
+
+        assertEquals(ACCESS_PATTERN.ONE_SHOT, tracker.record(5000));
+        assertEquals(ACCESS_PATTERN.ONE_SHOT, tracker.record(5000));
+    }
+
+    @Test
+    public void testSequential() {
+        System.out.println("testSequential");
+
+        AccessPatternTracker tracker = new AccessPatternTracker(8, 1000);
+
+        tracker.record(0);
+        tracker.record(100);
+        tracker.record(200);
+
+        assertEquals(ACCESS_PATTERN.SEQUENTIAL, tracker.record(300));
+        assertEquals(100, tracker.getStride());
+    }
+
+    @Test
+    public void testRandom() {
+        System.out.println("testRandom");
+
+        AccessPatternTracker tracker = new AccessPatternTracker(8, 1000);
+
+        tracker.record(50000);
+        tracker.record(1200);
+        tracker.record(98000);
+
+        assertEquals(ACCESS_PATTERN.RANDOM, tracker.record(30000));
+    }
+
+    @Test
+    public void testHistorySize() {
+        System.out.println("testHistorySize");
+
+        AccessPatternTracker tracker = new AccessPatternTracker(4, 1000);
+
+        tracker.record(50000);
+        tracker.record(1200);
+        tracker.record(98000);
+
+        for (int skipped = 10000; skipped < 10400; skipped += 100) {
+            tracker.record(skipped);
+        }
+
+        assertEquals(ACCESS_PATTERN.SEQUENTIAL, tracker.getPattern());
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * RESTHeart - the data REST API server
+ * Copyright (C) SoftInstigate Srl
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.restheart.db;
+
+import com.mongodb.BasicDBObject;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Andrea Di Cesare <andrea@softinstigate.com>
+ */
+public class CompiledQueryTest {
+
+    public CompiledQueryTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    @Test
+    public void testCompile() {
+        System.out.println("testCompile");
+
+        Deque<String> filters = new ArrayDeque<>();
+        filters.add("{'a': 1}");
+        filters.add("{'b': {'$gt': 2}}");
+
+        Deque<String> sortBy = new ArrayDeque<>();
+        sortBy.add("-a");
+
+        CompiledQuery query = CompiledQuery.compile("db", "coll", filters, sortBy);
+
+        assertEquals(new BasicDBObject("a", 1).append("b", new BasicDBObject("$gt", 2)), query.getFilter());
+        assertEquals(new BasicDBObject("a", -1), query.getSort());
+        assertEquals(new BasicDBObject("a", -1).append("_id", 1), query.getKeysetSort());
+    }
+
+    @Test
+    public void testKeys() {
+        System.out.println("testKeys");
+
+        Deque<String> sortBy = new ArrayDeque<>();
+        sortBy.add("b");
+
+        CompiledQuery query = CompiledQuery.compile("db", "coll", null, sortBy);
+
+        assertNull(query.getKeys());
+
+        CompiledQuery projected = query.withKeys(new BasicDBObject("a", 1));
+
+        assertEquals(new BasicDBObject("a", 1).append("b", 1).append("_id", 1).append("_etag", 1), projected.getKeys());
+        assertEquals(query.getFilter(), projected.getFilter());
+        assertNotEquals(query.getShape(), projected.getShape());
+        assertEquals(projected.getShape(), query.withKeys(new BasicDBObject("a", 1)).getShape());
+    }
+
+    @Test
+    public void testRequiredFields() {
+        System.out.println("testRequiredFields");
+
+        CompiledQuery query = CompiledQuery.compile("db", "coll", null, null);
+
+        assertSame(query, query.withRequiredFields(Arrays.asList("ref")));
+
+        CompiledQuery projected = query.withKeys(new BasicDBObject("a", 1)).withRequiredFields(Arrays.asList("ref"));
+
+        assertEquals(new BasicDBObject("a", 1).append("_id", 1).append("_etag", 1).append("ref", 1), projected.getKeys());
+        assertEquals(projected.getKeys(), projected.withKeys(new BasicDBObject("a", 1)).getKeys());
+
+        // an exclusion projection does not exclude the required fields
+        assertEquals(new BasicDBObject("b", 0), query.withKeys(new BasicDBObject("b", 0).append("ref", 0)).withRequiredFields(Arrays.asList("ref")).getKeys());
+    }
+
+    @Test
+    public void testCompiledFilterIsCached() {
+        System.out.println("testCompiledFilterIsCached");
+
+        assertSame(CompiledQuery.compileFilter("{'cached': true}"), CompiledQuery.compileFilter("{'cached': true}"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFilterNotObject() {
+        System.out.println("testFilterNotObject");
+
+        CompiledQuery.compileFilter("[1, 2]");
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * RESTHeart - the data REST API server
+ * Copyright (C) SoftInstigate Srl
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.restheart.db;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import org.bson.types.ObjectId;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Andrea Di Cesare <andrea@softinstigate.com>
+ */
+public class ContinuationTokenTest {
+
+    public ContinuationTokenTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    @Test
+    public void testDefaultSort() {
+        System.out.println("testDefaultSort");
+
+        ObjectId id = new ObjectId();
+
+        String token = ContinuationToken.encode(query(null), new BasicDBObject("_id", id).append("a", 1));
+
+        DBObject expResult = new BasicDBObject("_id", new BasicDBObject("$lt", id));
+
+        assertEquals(expResult, ContinuationToken.getRangeQuery(query(null), token));
+    }
+
+    @Test
+    public void testSortBy() {
+        System.out.println("testSortBy");
+
+        Deque<String> sortBy = new ArrayDeque<>();
+        sortBy.add("-a.b");
+
+        String token = ContinuationToken.encode(query(sortBy), new BasicDBObject("_id", 10).append("a", new BasicDBObject("b", "x")));
+
+        BasicDBList or = new BasicDBList();
+        or.add(new BasicDBObject("a.b", new BasicDBObject("$lt", "x")));
+        or.add(new BasicDBObject("a.b", "x").append("_id", new BasicDBObject("$gt", 10)));
+
+        assertEquals(new BasicDBObject("$or", or), ContinuationToken.getRangeQuery(query(sortBy), token));
+    }
+
+    @Test(expected = InvalidContinuationTokenException.class)
+    public void testInvalidToken() {
+        System.out.println("testInvalidToken");
+
+        ContinuationToken.getRangeQuery(query(null), "not a token");
+    }
+
+    private static CompiledQuery query(Deque<String> sortBy) {
+        return CompiledQuery.compile("db", "coll", null, sortBy);
+    }
+}
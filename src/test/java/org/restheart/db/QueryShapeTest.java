@@ -0,0 +1,106 @@
+/*
+ * RESTHeart - the data REST API server
+ * Copyright (C) SoftInstigate Srl
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.restheart.db;
+
+import com.mongodb.DBObject;
+import com.mongodb.util.JSON;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Andrea Di Cesare <andrea@softinstigate.com>
+ */
+public class QueryShapeTest {
+
+    public QueryShapeTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    @Test
+    public void testKeysOrderAndWhitespaces() {
+        System.out.println("testKeysOrderAndWhitespaces");
+
+        QueryShape s1 = shape("{\"a\":1,\"b\":{\"$gt\":2,\"$lt\":5}}", "-a");
+        QueryShape s2 = shape("{ \"b\" : { \"$lt\" : 5, \"$gt\" : 2 }, \"a\" : 1 }", "-a");
+
+        assertEquals(s1, s2);
+        assertEquals(s1.hashCode(), s2.hashCode());
+    }
+
+    @Test
+    public void testLogicalOperators() {
+        System.out.println("testLogicalOperators");
+
+        QueryShape s1 = shape("{\"$or\":[{\"a\":1,\"b\":2},{\"c\":3}]}", null);
+        QueryShape s2 = shape("{\"$or\":[{\"b\":2,\"a\":1},{\"c\":3}]}", null);
+
+        assertEquals(s1, s2);
+    }
+
+    @Test
+    public void testEmbeddedDocumentsOrder() {
+        System.out.println("testEmbeddedDocumentsOrder");
+
+        // the order of the keys of an embedded document matters for mongodb
+        QueryShape s1 = shape("{\"a\":{\"x\":1,\"y\":2}}", null);
+        QueryShape s2 = shape("{\"a\":{\"y\":2,\"x\":1}}", null);
+
+        assertNotEquals(s1, s2);
+    }
+
+    @Test
+    public void testSort() {
+        System.out.println("testSort");
+
+        assertEquals(shape("{}", null), shape("{}", "-_id"));
+        assertNotEquals(shape("{}", "a"), shape("{}", "-a"));
+    }
+
+    private static QueryShape shape(String filter, String sortBy) {
+        Deque<String> _sortBy = null;
+
+        if (sortBy != null) {
+            _sortBy = new ArrayDeque<>();
+            _sortBy.add(sortBy);
+        }
+
+        return new QueryShape("db", "coll", (DBObject) JSON.parse(filter), DAOUtils.getSortObject(_sortBy));
+    }
+}
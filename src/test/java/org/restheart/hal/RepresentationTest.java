@@ -0,0 +1,201 @@
+/*
+ * RESTHeart - the data REST API server
+ * Copyright (C) SoftInstigate Srl
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.restheart.hal;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.LazyDBDecoder;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Date;
+import java.util.regex.Pattern;
+import org.bson.BasicBSONEncoder;
+import org.bson.types.BSONTimestamp;
+import org.bson.types.Binary;
+import org.bson.types.MaxKey;
+import org.bson.types.MinKey;
+import org.bson.types.ObjectId;
+import org.restheart.db.RawDBDecoder;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Andrea Di Cesare <andrea@softinstigate.com>
+ */
+public class RepresentationTest {
+
+    public RepresentationTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    @Test
+    public void testWrite() throws IOException {
+        System.out.println("testWrite");
+
+        Representation rep = new Representation("/db/coll");
+        rep.addProperty("_type", "COLLECTION");
+        rep.addLink(new Link("rh:db", "/db"));
+        rep.addLink(new Link("rh", "curies", "http://doc/{rel}", true), true);
+
+        BasicDBList list = new BasicDBList();
+        list.add("a \"quoted\" string");
+        list.add(new BasicDBObject("n", 1));
+
+        for (int cont = 0; cont < 100; cont++) {
+            Representation nrep = new Representation("/db/coll/" + cont);
+            nrep.addProperty("_id", cont);
+            nrep.addProperty("list", list);
+            rep.addRepresentation("rh:doc", nrep);
+        }
+
+        rep.addWarning("a warning");
+
+        StringWriter writer = new StringWriter();
+
+        rep.write(writer);
+
+        assertEquals(rep.toString(), writer.toString());
+    }
+
+    @Test
+    public void testWriteEmpty() throws IOException {
+        System.out.println("testWriteEmpty");
+
+        Representation rep = new Representation("/");
+
+        StringWriter writer = new StringWriter();
+
+        rep.write(writer);
+
+        assertEquals(rep.toString(), writer.toString());
+    }
+
+    @Test
+    public void testAddDocument() throws IOException {
+        System.out.println("testAddDocument");
+
+        BasicDBList list = new BasicDBList();
+        list.add("a");
+        list.add(new BasicDBObject("n", 1));
+
+        BasicDBObject data = new BasicDBObject("_id", new ObjectId())
+                .append("_type", "FROM_DOC")
+                .append("list", list)
+                .append("sub", new BasicDBObject("s", "x"))
+                .append("overridden", 1);
+
+        DBObject lazy = LazyDBDecoder.FACTORY.create().decode(new BasicBSONEncoder().encode(data), (DBCollection) null);
+
+        Representation expected = new Representation("/db/coll/doc");
+        expected.addProperty("_type", "DOCUMENT");
+        expected.addProperties(data);
+        expected.addProperty("overridden", 2);
+        expected.addProperty("_created_on", "now");
+
+        Representation rep = new Representation("/db/coll/doc");
+        rep.addProperty("_type", "DOCUMENT");
+        rep.addDocument(lazy);
+        rep.addProperty("overridden", 2);
+        rep.addProperty("_created_on", "now");
+
+        StringWriter writer = new StringWriter();
+
+        rep.write(writer);
+
+        assertEquals(expected.toString(), writer.toString());
+        assertEquals(expected.toString(), rep.toString());
+        assertEquals(2, rep.getProperty("overridden"));
+        assertEquals("FROM_DOC", rep.getProperty("_type"));
+    }
+
+    @Test
+    public void testAddRawDocument() throws IOException {
+        System.out.println("testAddRawDocument");
+
+        BasicDBList list = new BasicDBList();
+        list.add(1.5);
+        list.add("a \"quoted\" string\n\u00e8");
+        list.add(new BasicDBObject("n", 1).append("empty", new BasicDBList()));
+        list.add(null);
+
+        BasicDBObject data = new BasicDBObject("_id", new ObjectId())
+                .append("double", -0.25)
+                .append("int", Integer.MIN_VALUE)
+                .append("long", Long.MAX_VALUE)
+                .append("bool", true)
+                .append("null", null)
+                .append("date", new Date())
+                .append("list", list)
+                .append("sub", new BasicDBObject("oid", new ObjectId()).append("empty", new BasicDBObject()))
+                .append("binary", new Binary((byte) 0, new byte[]{1, 2, 3}))
+                .append("regex", Pattern.compile("a.*", Pattern.CASE_INSENSITIVE))
+                .append("timestamp", new BSONTimestamp(1, 2))
+                .append("escaped", "\u00e8\t\u0001\\/")
+                .append("min", new MinKey())
+                .append("max", new MaxKey())
+                .append("overridden", 1);
+
+        DBObject raw = RawDBDecoder.FACTORY.create().decode(new BasicBSONEncoder().encode(data), (DBCollection) null);
+
+        assertTrue(raw.containsField("timestamp"));
+        assertFalse(raw.containsField("_created_on"));
+        assertEquals(data.get("_id"), raw.get("_id"));
+        assertNull(raw.get("_created_on"));
+
+        Representation expected = new Representation("/db/coll/doc");
+        expected.addProperty("_type", "DOCUMENT");
+        expected.addProperties(data);
+        expected.addProperty("overridden", 2);
+        expected.addProperty("_created_on", "now");
+
+        Representation rep = new Representation("/db/coll/doc");
+        rep.addProperty("_type", "DOCUMENT");
+        rep.addDocument(raw);
+        rep.addProperty("overridden", 2);
+        rep.addProperty("_created_on", "now");
+
+        StringWriter writer = new StringWriter();
+
+        rep.write(writer);
+
+        assertEquals(expected.toString(), writer.toString());
+        assertEquals(expected.toString(), rep.toString());
+    }
+}
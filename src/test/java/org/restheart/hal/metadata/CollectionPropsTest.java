@@ -0,0 +1,96 @@
+/*
+ * RESTHeart - the data REST API server
+ * Copyright (C) SoftInstigate Srl
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.restheart.hal.metadata;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import org.bson.types.ObjectId;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Andrea Di Cesare <andrea@softinstigate.com>
+ */
+public class CollectionPropsTest {
+
+    public CollectionPropsTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    @Test
+    public void testSnapshot() throws InvalidMetadataException {
+        System.out.println("testSnapshot");
+
+        ObjectId etag = new ObjectId();
+
+        DBObject raw = new BasicDBObject("_id", "coll")
+                .append("_etag", etag)
+                .append(CountStrategy.COUNT_STRATEGY_ELEMENT_NAME, "cached")
+                .append(Projection.KEYS_ELEMENT_NAME, new BasicDBObject("a", 1));
+
+        CollectionProps props = new CollectionProps(raw);
+
+        // the snapshot is not affected by changes to the loaded object
+        raw.put("b", 1);
+
+        assertNull(props.getProps().get("b"));
+        assertEquals("coll", props.getProps().get("_id"));
+        assertEquals(etag, props.getEtag());
+        assertEquals(etag.getTimestamp(), props.getLastUpdatedOn().getEpochSecond());
+        assertEquals(CountStrategy.TYPE.CACHED, props.getCountStrategy());
+        assertEquals(new BasicDBObject("a", 1), props.getKeys());
+        assertTrue(props.getRelationships().isEmpty());
+        assertNull(props.getResponseCache());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testReadOnly() {
+        System.out.println("testReadOnly");
+
+        new CollectionProps(new BasicDBObject("_id", "coll")).getProps().put("a", 1);
+    }
+
+    @Test(expected = InvalidMetadataException.class)
+    public void testInvalidMetadata() throws InvalidMetadataException {
+        System.out.println("testInvalidMetadata");
+
+        CollectionProps props = new CollectionProps(new BasicDBObject(CountStrategy.COUNT_STRATEGY_ELEMENT_NAME, "approximate"));
+
+        props.getCountStrategy();
+    }
+}
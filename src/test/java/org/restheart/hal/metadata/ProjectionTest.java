@@ -0,0 +1,103 @@
+/*
+ * RESTHeart - the data REST API server
+ * Copyright (C) SoftInstigate Srl
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.restheart.hal.metadata;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import com.mongodb.util.JSON;
+import java.util.Arrays;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Andrea Di Cesare <andrea@softinstigate.com>
+ */
+public class ProjectionTest {
+
+    public ProjectionTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    @Test
+    public void testGetFromJson() throws InvalidMetadataException {
+        System.out.println("testGetFromJson");
+
+        assertNull(Projection.getFromJson(null));
+        assertNull(Projection.getFromJson(new BasicDBObject("a", 1)));
+        assertEquals(new BasicDBObject("a", 1), Projection.getFromJson(new BasicDBObject(Projection.KEYS_ELEMENT_NAME, new BasicDBObject("a", 1))));
+    }
+
+    @Test
+    public void testCheck() throws InvalidMetadataException {
+        System.out.println("testCheck");
+
+        Projection.check(parse("{'a': 1, 'b': true, '_id': 0}"));
+        Projection.check(parse("{'a': 0, 'b': false}"));
+        Projection.check(parse("{'a': 1, 'c': {'$slice': 5}}"));
+    }
+
+    @Test(expected = InvalidMetadataException.class)
+    public void testMixedProjection() throws InvalidMetadataException {
+        System.out.println("testMixedProjection");
+
+        Projection.check(parse("{'a': 1, 'b': 0}"));
+    }
+
+    @Test(expected = InvalidMetadataException.class)
+    public void testInvalidValue() throws InvalidMetadataException {
+        System.out.println("testInvalidValue");
+
+        Projection.check(parse("{'a': 'yes'}"));
+    }
+
+    @Test
+    public void testNormalize() {
+        System.out.println("testNormalize");
+
+        assertNull(Projection.normalize(null, Arrays.asList("_id", "_etag")));
+        assertNull(Projection.normalize(parse("{'_id': 0}"), Arrays.asList("_id", "_etag")));
+
+        assertEquals(parse("{'a': 1, '_id': 1, '_etag': 1}"), Projection.normalize(parse("{'a': 1, '_id': 0}"), Arrays.asList("_id", "_etag")));
+        assertEquals(parse("{'a': 1, '_etag': 1}"), Projection.normalize(parse("{'a': 1}"), Arrays.asList("a.b", "_etag")));
+        assertEquals(parse("{'b': 0}"), Projection.normalize(parse("{'b': 0, '_etag': 0}"), Arrays.asList("_id", "_etag")));
+    }
+
+    private static DBObject parse(String json) {
+        return (DBObject) JSON.parse(json);
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * RESTHeart - the data REST API server
+ * Copyright (C) SoftInstigate Srl
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.restheart.hal.metadata;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.HttpString;
+import org.bson.types.ObjectId;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.restheart.handlers.RequestContext;
+import org.restheart.utils.URLUtils;
+import org.restheart.utils.UnsupportedDocumentIdException;
+
+/**
+ *
+ * @author Andrea Di Cesare <andrea@softinstigate.com>
+ */
+public class RelationshipTest {
+
+    public RelationshipTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    @Test
+    public void testOwningLinks() throws UnsupportedDocumentIdException {
+        System.out.println("testOwningLinks");
+
+        RequestContext context = prepareRequestContext();
+        ObjectId id = new ObjectId();
+
+        Relationship oneToOne = new Relationship("rel", Relationship.TYPE.ONE_TO_ONE, Relationship.ROLE.OWNING, null, "target", "ref", true);
+
+        assertEquals(URLUtils.getUriWithDocId(context, "db", "target", id, true),
+                oneToOne.getRelationshipLink(context, "db", "coll", new BasicDBObject("ref", id)));
+        assertEquals(URLUtils.getUriWithDocId(context, "db", "target", 123, true),
+                oneToOne.getRelationshipLink(context, "db", "coll", new BasicDBObject("ref", 123)));
+        assertNull(oneToOne.getRelationshipLink(context, "db", "coll", new BasicDBObject()));
+
+        Relationship oneToMany = new Relationship("rel", Relationship.TYPE.ONE_TO_MANY, Relationship.ROLE.OWNING, "other", "target", "ref", false);
+
+        BasicDBList ids = new BasicDBList();
+        ids.add(1);
+        ids.add("a b");
+        ids.add(id);
+
+        assertEquals(URLUtils.getUriWithFilterMany(context, "other", "target", ids.toArray(), false),
+                oneToMany.getRelationshipLink(context, "db", "coll", new BasicDBObject("ref", ids)));
+    }
+
+    @Test
+    public void testInverseLinks() throws UnsupportedDocumentIdException {
+        System.out.println("testInverseLinks");
+
+        RequestContext context = prepareRequestContext();
+        DBObject data = new BasicDBObject("_id", new ObjectId());
+
+        Relationship oneToMany = new Relationship("rel", Relationship.TYPE.ONE_TO_MANY, Relationship.ROLE.INVERSE, null, "target", "ref", true);
+
+        assertEquals(URLUtils.getUriWithFilterOne(context, "db", "target", "ref", data.get("_id"), true),
+                oneToMany.getRelationshipLink(context, "db", "coll", data));
+
+        Relationship manyToMany = new Relationship("rel", Relationship.TYPE.MANY_TO_MANY, Relationship.ROLE.INVERSE, null, "target", "ref", false);
+
+        assertEquals(URLUtils.getUriWithFilterManyInverse(context, "db", "target", "ref", data.get("_id"), false),
+                manyToMany.getRelationshipLink(context, "db", "coll", data));
+    }
+
+    @Test
+    public void testMappedLinks() throws UnsupportedDocumentIdException {
+        System.out.println("testMappedLinks");
+
+        HttpServerExchange exchange = new HttpServerExchange();
+        exchange.setRequestPath("/api/coll");
+        exchange.setRequestMethod(HttpString.EMPTY);
+        RequestContext context = new RequestContext(exchange, "/api", "/db");
+
+        Relationship oneToOne = new Relationship("rel", Relationship.TYPE.ONE_TO_ONE, Relationship.ROLE.OWNING, null, "target", "ref", true);
+
+        assertEquals(URLUtils.getUriWithDocId(context, "db", "target", "a", true),
+                oneToOne.getRelationshipLink(context, "db", "coll", new BasicDBObject("ref", "a")));
+        assertEquals("/api/target/a", oneToOne.getRelationshipLink(context, "db", "coll", new BasicDBObject("ref", "a")));
+    }
+
+    private RequestContext prepareRequestContext() {
+        HttpServerExchange exchange = new HttpServerExchange();
+        exchange.setRequestPath("");
+        exchange.setRequestMethod(HttpString.EMPTY);
+        RequestContext context = new RequestContext(exchange, "", "");
+        return context;
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * RESTHeart - the data REST API server
+ * Copyright (C) SoftInstigate Srl
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.restheart.hal.metadata;
+
+import com.mongodb.BasicDBObject;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Andrea Di Cesare <andrea@softinstigate.com>
+ */
+public class ResponseCachePolicyTest {
+
+    public ResponseCachePolicyTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    @Test
+    public void testGetFromJson() throws InvalidMetadataException {
+        System.out.println("testGetFromJson");
+
+        assertNull(ResponseCachePolicy.getFromJson(null));
+        assertNull(ResponseCachePolicy.getFromJson(new BasicDBObject("a", 1)));
+        assertTrue(ResponseCachePolicy.getFromJson(new BasicDBObject(ResponseCachePolicy.RESPONSE_CACHE_ELEMENT_NAME, true)));
+        assertFalse(ResponseCachePolicy.getFromJson(new BasicDBObject(ResponseCachePolicy.RESPONSE_CACHE_ELEMENT_NAME, false)));
+    }
+
+    @Test(expected = InvalidMetadataException.class)
+    public void testInvalidValue() throws InvalidMetadataException {
+        System.out.println("testInvalidValue");
+
+        ResponseCachePolicy.getFromJson(new BasicDBObject(ResponseCachePolicy.RESPONSE_CACHE_ELEMENT_NAME, "yes"));
+    }
+}
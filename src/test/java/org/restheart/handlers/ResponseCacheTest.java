@@ -0,0 +1,135 @@
+/*
+ * RESTHeart - the data REST API server
+ * Copyright (C) SoftInstigate Srl
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.restheart.handlers;
+
+import io.undertow.util.Headers;
+import io.undertow.util.HttpString;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Andrea Di Cesare <andrea@softinstigate.com>
+ */
+public class ResponseCacheTest {
+
+    public ResponseCacheTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    @Test
+    public void testGet() {
+        System.out.println("testGet");
+
+        ResponseCache cache = new ResponseCache(1024 * 1024, 0);
+        Map<HttpString, String> headers = Collections.singletonMap(Headers.CONTENT_TYPE, "application/hal+json");
+
+        cache.put("/db/coll", new ResponseCache.CachedResponse(1, headers, new byte[]{'{', '}'}));
+
+        ResponseCache.CachedResponse cached = cache.get("/db/coll", 1);
+
+        assertNotNull(cached);
+        assertArrayEquals(new byte[]{'{', '}'}, cached.getBody());
+        assertEquals("application/hal+json", cached.getHeaders().get(Headers.CONTENT_TYPE));
+        assertNull(cache.get("/db/other", 1));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(0.5, cache.getHitRate(), 0);
+        assertEquals(1, cache.getEntries());
+    }
+
+    @Test
+    public void testGzippedBody() throws IOException {
+        System.out.println("testGzippedBody");
+
+        byte[] body = "{ \"_type\" : \"COLLECTION\"}".getBytes(StandardCharsets.UTF_8);
+
+        ResponseCache cache = new ResponseCache(1024 * 1024, 0);
+
+        cache.put("/db/coll", new ResponseCache.CachedResponse(1, Collections.emptyMap(), body, ResponseCacheHandler.gzip(body)));
+
+        ResponseCache.CachedResponse cached = cache.get("/db/coll", 1);
+
+        assertNotNull(cached);
+        assertNotNull(cached.getGzippedBody());
+
+        ByteArrayOutputStream gunzipped = new ByteArrayOutputStream();
+
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(cached.getGzippedBody()))) {
+            byte[] buffer = new byte[1024];
+
+            for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                gunzipped.write(buffer, 0, read);
+            }
+        }
+
+        assertArrayEquals(body, gunzipped.toByteArray());
+    }
+
+    @Test
+    public void testStaleVersion() {
+        System.out.println("testStaleVersion");
+
+        ResponseCache cache = new ResponseCache(1024 * 1024, 0);
+
+        cache.put("/db/coll", new ResponseCache.CachedResponse(1, Collections.emptyMap(), new byte[10]));
+
+        // the collection has been written
+        assertNull(cache.get("/db/coll", 2));
+
+        // the stale entry has been removed
+        assertNull(cache.get("/db/coll", 1));
+    }
+
+    @Test
+    public void testMaxEntrySize() {
+        System.out.println("testMaxEntrySize");
+
+        ResponseCache cache = new ResponseCache(1024 * 1024, 0);
+
+        cache.put("/db/coll", new ResponseCache.CachedResponse(1, Collections.emptyMap(), new byte[(int) cache.getMaxEntrySize() + 1]));
+
+        assertNull(cache.get("/db/coll", 1));
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * RESTHeart - the data REST API server
+ * Copyright (C) SoftInstigate Srl
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.restheart.handlers;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Andrea Di Cesare <andrea@softinstigate.com>
+ */
+public class SingleFlightTest {
+
+    public SingleFlightTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    @Test
+    public void testCoalesce() {
+        System.out.println("testCoalesce");
+
+        SingleFlight singleFlight = SingleFlight.getInstance();
+
+        long coalesced = singleFlight.getCoalesced();
+
+        AtomicInteger queries = new AtomicInteger(0);
+        CompletableFuture<String> query = new CompletableFuture<>();
+
+        CompletableFuture<String> first = singleFlight.execute("testCoalesce", () -> {
+            queries.incrementAndGet();
+            return query;
+        });
+
+        CompletableFuture<String> second = singleFlight.execute("testCoalesce", () -> {
+            queries.incrementAndGet();
+            return CompletableFuture.completedFuture("other");
+        });
+
+        assertSame(first, second);
+        assertEquals(1, queries.get());
+        assertEquals(coalesced + 1, singleFlight.getCoalesced());
+
+        query.complete("result");
+
+        assertEquals("result", second.join());
+
+        // the query is not in flight anymore
+        CompletableFuture<String> third = singleFlight.execute("testCoalesce", () -> {
+            queries.incrementAndGet();
+            return CompletableFuture.completedFuture("new");
+        });
+
+        assertEquals("new", third.join());
+        assertEquals(2, queries.get());
+    }
+
+    @Test
+    public void testFailedQuery() {
+        System.out.println("testFailedQuery");
+
+        SingleFlight singleFlight = SingleFlight.getInstance();
+
+        CompletableFuture<String> failed = singleFlight.execute("testFailedQuery", () -> {
+            throw new IllegalStateException("failed");
+        });
+
+        assertTrue(failed.isCompletedExceptionally());
+
+        assertEquals("ok", singleFlight.execute("testFailedQuery", () -> CompletableFuture.completedFuture("ok")).join());
+    }
+}
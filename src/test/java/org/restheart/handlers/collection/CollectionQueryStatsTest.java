@@ -0,0 +1,74 @@
+/*
+ * RESTHeart - the data REST API server
+ * Copyright (C) SoftInstigate Srl
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.restheart.handlers.collection;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Andrea Di Cesare <andrea@softinstigate.com>
+ */
+public class CollectionQueryStatsTest {
+
+    public CollectionQueryStatsTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    @Test
+    public void testAverages() {
+        System.out.println("testAverages");
+
+        CollectionQueryStats stats = new CollectionQueryStats();
+
+        assertEquals(0, stats.getAverageQueryTime(), 0);
+
+        stats.recordQuery(TimeUnit.MILLISECONDS.toNanos(2), TimeUnit.MILLISECONDS.toNanos(4));
+        stats.recordQuery(TimeUnit.MILLISECONDS.toNanos(4), TimeUnit.MILLISECONDS.toNanos(6));
+        stats.recordCount(TimeUnit.MILLISECONDS.toNanos(3));
+        stats.recordExport(TimeUnit.MILLISECONDS.toNanos(10));
+
+        assertEquals(2, stats.getQueries());
+        assertEquals(1, stats.getCounts());
+        assertEquals(1, stats.getExports());
+        assertEquals(3, stats.getAverageDataTime(), 0.001);
+        assertEquals(5, stats.getAverageQueryTime(), 0.001);
+        assertEquals(3, stats.getAverageCountTime(), 0.001);
+        assertEquals(10, stats.getAverageExportTime(), 0.001);
+    }
+}
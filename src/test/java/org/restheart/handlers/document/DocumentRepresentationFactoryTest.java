@@ -0,0 +1,132 @@
+/*
+ * RESTHeart - the data REST API server
+ * Copyright (C) SoftInstigate Srl
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.restheart.handlers.document;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.Methods;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+import org.bson.BasicBSONEncoder;
+import org.bson.types.ObjectId;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.restheart.db.RawDBDecoder;
+import org.restheart.hal.Representation;
+import org.restheart.hal.metadata.CollectionProps;
+import org.restheart.hal.metadata.InvalidMetadataException;
+import org.restheart.handlers.IllegalQueryParamenterException;
+import org.restheart.handlers.RequestContext;
+
+/**
+ *
+ * @author Andrea Di Cesare <andrea@softinstigate.com>
+ */
+public class DocumentRepresentationFactoryTest {
+
+    public DocumentRepresentationFactoryTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    @Test
+    public void testWriteDocument() throws IOException, IllegalQueryParamenterException, InvalidMetadataException {
+        System.out.println("testWriteDocument");
+
+        HttpServerExchange exchange = new HttpServerExchange();
+        exchange.setRequestPath("/api/coll");
+        exchange.setRequestMethod(Methods.GET);
+
+        RequestContext context = new RequestContext(exchange, "/api", "/db");
+
+        BasicDBList rels = new BasicDBList();
+        rels.add(new BasicDBObject("rel", "owner").append("type", "MANY_TO_ONE").append("role", "OWNING")
+                .append("target-coll", "users").append("ref-field", "owner"));
+        rels.add(new BasicDBObject("rel", "tags").append("type", "ONE_TO_MANY").append("role", "OWNING")
+                .append("target-coll", "tags").append("ref-field", "tags"));
+
+        context.setCollectionProps(new CollectionProps(new BasicDBObject("_id", "_properties").append("rels", rels)));
+
+        BasicDBObject withRels = new BasicDBObject("_id", new ObjectId())
+                .append("_etag", new ObjectId())
+                .append("_type", "FROM_DOC")
+                .append("owner", "john")
+                .append("tags", "not an array")
+                .append("sub", new BasicDBObject("s", "x"));
+
+        BasicDBObject file = new BasicDBObject("_id", "file")
+                .append("filename", "a.txt")
+                .append("chunkSize", 1024);
+
+        DBObject raw = RawDBDecoder.FACTORY.create().decode(new BasicBSONEncoder().encode(withRels), (DBCollection) null);
+
+        List<DBObject> documents = Arrays.asList(withRels, file, raw);
+
+        // as the embedded documents used to be added, with a representation each
+        Representation expected = new Representation("/api/coll");
+        expected.addProperty("_type", "COLLECTION");
+
+        for (DBObject d : documents) {
+            Representation nrep = DocumentRepresentationFactory.getDocument("/api/coll/" + d.get("_id"), exchange, context, d);
+            nrep.addProperty("_type", RequestContext.TYPE.DOCUMENT.name());
+            expected.addRepresentation("rh:doc", nrep);
+        }
+
+        expected.addWarning("a warning");
+
+        Representation rep = new Representation("/api/coll");
+        rep.addProperty("_type", "COLLECTION");
+
+        rep.addDocuments("rh:doc", documents, (d, out) -> {
+            DocumentRepresentationFactory.writeDocument("/api/coll/" + d.get("_id"), exchange, context, d, RequestContext.TYPE.DOCUMENT, out);
+        });
+
+        rep.addWarning("a warning");
+
+        StringWriter writer = new StringWriter();
+
+        rep.write(writer);
+
+        assertEquals(expected.toString(), writer.toString());
+        assertEquals(expected.toString(), rep.toString());
+        assertEquals(expected, rep);
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * RESTHeart - the data REST API server
+ * Copyright (C) SoftInstigate Srl
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.restheart.handlers.injectors;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import com.mongodb.util.JSON;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import org.bson.types.ObjectId;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Andrea Di Cesare <andrea@softinstigate.com>
+ */
+public class ReservedKeysFilteringCallbackTest {
+
+    public ReservedKeysFilteringCallbackTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    @Test
+    public void testFilterReservedKeys() {
+        System.out.println("testFilterReservedKeys");
+
+        ReservedKeysFilteringCallback callback = new ReservedKeysFilteringCallback();
+
+        DBObject content = (DBObject) JSON.parse("{'_id': 1, 'a': {'_b': 1, '_c': null}, '_d': 'x', '_e': {'f': 1}, '_g': [1, 2], '_h': null, '_etag': {'$oid': '" + new ObjectId().toHexString() + "'}, 'i': [{'_j': 1}]}", callback);
+
+        DBObject expected = new BasicDBObject("_id", 1)
+                .append("a", new BasicDBObject("_b", 1).append("_c", null))
+                .append("i", JSON.parse("[{'_j': 1}]"));
+
+        assertEquals(expected, content);
+        assertEquals(new LinkedHashSet<>(Arrays.asList("_d", "_e", "_g", "_h", "_etag")), callback.getFiltered());
+    }
+
+    @Test
+    public void testNoReservedKeys() {
+        System.out.println("testNoReservedKeys");
+
+        ReservedKeysFilteringCallback callback = new ReservedKeysFilteringCallback();
+
+        assertEquals(JSON.parse("{'a': 1, 'b': {'$oid': '54c965cbc2e64568e235b711'}}"), JSON.parse("{'a': 1, 'b': {'$oid': '54c965cbc2e64568e235b711'}}", callback));
+        assertTrue(callback.getFiltered().isEmpty());
+        assertNull(JSON.parse("", callback));
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * RESTHeart - the data REST API server
+ * Copyright (C) SoftInstigate Srl
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.restheart.test.performance;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBDecoder;
+import com.mongodb.DBObject;
+import com.mongodb.DefaultDBDecoder;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.Date;
+import org.bson.BasicBSONEncoder;
+import org.bson.types.ObjectId;
+import org.restheart.db.RawDBDecoder;
+import org.restheart.hal.Representation;
+
+/**
+ * measures the bytes allocated per document to decode a page of documents
+ * read from mongodb and to write their representations, comparing the
+ * materialized documents with the raw ones transcoded while writing.
+ *
+ * run it from the target/test-classes directory as follows:
+ * java -cp .:../classes:<DEPENDENCIES> org.restheart.test.performance.DocumentAllocationPT
+ *
+ * @author Andrea Di Cesare <andrea@softinstigate.com>
+ */
+public class DocumentAllocationPT {
+
+    private static final int DOCUMENTS = 100;
+    private static final int ITERATIONS = 2000;
+
+    private static final Writer NULL_WRITER = new Writer() {
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+        }
+
+        @Override
+        public void flush() throws IOException {
+        }
+
+        @Override
+        public void close() throws IOException {
+        }
+    };
+
+    public static void main(String[] args) throws IOException {
+        byte[][] page = new byte[DOCUMENTS][];
+
+        BasicBSONEncoder encoder = new BasicBSONEncoder();
+
+        for (int cont = 0; cont < DOCUMENTS; cont++) {
+            page[cont] = encoder.encode(document(cont));
+        }
+
+        // warm up
+        run(page, false, ITERATIONS);
+        run(page, true, ITERATIONS);
+
+        long materialized = run(page, false, ITERATIONS);
+        long lazy = run(page, true, ITERATIONS);
+
+        System.out.println("bytes allocated per document, materialized: " + materialized);
+        System.out.println("bytes allocated per document, raw:          " + lazy);
+        System.out.println("reduction: " + (100 - lazy * 100 / materialized) + "%");
+    }
+
+    private static long run(byte[][] page, boolean lazy, int iterations) throws IOException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long tid = Thread.currentThread().getId();
+
+        long start = threads.getThreadAllocatedBytes(tid);
+
+        for (int cont = 0; cont < iterations; cont++) {
+            DBDecoder decoder = lazy ? RawDBDecoder.FACTORY.create() : DefaultDBDecoder.FACTORY.create();
+            Representation rep = new Representation("/db/coll");
+            rep.addProperty("_type", "COLLECTION");
+
+            for (byte[] bytes : page) {
+                DBObject data = decoder.decode(bytes, (DBCollection) null);
+                rep.addRepresentation("rh:doc", lazy ? lazyDocument(data) : materializedDocument(data));
+            }
+
+            rep.write(NULL_WRITER);
+        }
+
+        return (threads.getThreadAllocatedBytes(tid) - start) / ((long) iterations * page.length);
+    }
+
+    /**
+     * as the documents used to be read: timestamps added to the row, then
+     * each field copied to the representation
+     */
+    private static Representation materializedDocument(DBObject data) {
+        data.put("_created_on", Instant.ofEpochSecond(((ObjectId) data.get("_id")).getTimestamp()).toString());
+
+        Representation rep = new Representation("/db/coll/" + data.get("_id"));
+        rep.addProperty("_type", "DOCUMENT");
+        data.keySet().stream().forEach((key) -> rep.addProperty(key, data.get(key)));
+
+        return rep;
+    }
+
+    /**
+     * as the documents are read now: the representation refers the raw
+     * document and the timestamps are added as properties
+     */
+    private static Representation lazyDocument(DBObject data) {
+        Object id = data.get("_id");
+
+        Representation rep = new Representation("/db/coll/" + id);
+        rep.addProperty("_type", "DOCUMENT");
+        rep.addDocument(data);
+        rep.addProperty("_created_on", Instant.ofEpochSecond(((ObjectId) id).getTimestamp()).toString());
+
+        return rep;
+    }
+
+    private static DBObject document(int n) {
+        BasicDBList tags = new BasicDBList();
+        tags.add("tag" + n);
+        tags.add("tag" + (n + 1));
+
+        return new BasicDBObject("_id", new ObjectId())
+                .append("_etag", new ObjectId())
+                .append("name", "document " + n)
+                .append("n", n)
+                .append("price", n * 1.5)
+                .append("date", new Date())
+                .append("tags", tags)
+                .append("address", new BasicDBObject("street", "via Roma " + n).append("city", "Rome"))
+                .append("description", "a quite long description of the document number " + n);
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * RESTHeart - the data REST API server
+ * Copyright (C) SoftInstigate Srl
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.restheart.test.performance;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * measures the throughput and the latencies of GET requests with 1000, 5000
+ * and 10000 concurrent clients, to compare the fixed worker threads with the
+ * elastic ones.
+ *
+ * start restheart with elastic-workers false and then true, setting
+ * requests-limit above the number of concurrent clients, and run it from the
+ * target/test-classes directory as follows:
+ * java -cp . org.restheart.test.performance.ElasticWorkersPT
+ * [URL] [CLIENTS,...] [REQUESTS_PER_CLIENT]
+ *
+ * the defaults are http://127.0.0.1:8080/testdb/testcoll?pagesize=5,
+ * 1000,5000,10000 and 10
+ *
+ * @author Andrea Di Cesare <andrea@softinstigate.com>
+ */
+public class ElasticWorkersPT {
+
+    private static final String DEFAULT_URL = "http://127.0.0.1:8080/testdb/testcoll?pagesize=5";
+    private static final int[] DEFAULT_CLIENTS = {1000, 5000, 10000};
+    private static final int DEFAULT_REQUESTS = 10;
+
+    public static void main(String[] args) throws Exception {
+        URL url = new URL(args.length > 0 ? args[0] : DEFAULT_URL);
+
+        int[] clients = args.length > 1
+                ? Arrays.stream(args[1].split(",")).mapToInt(Integer::parseInt).toArray()
+                : DEFAULT_CLIENTS;
+
+        int requests = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_REQUESTS;
+
+        // warm up
+        run(url, 10, requests, false);
+
+        System.out.println("clients\trequests\terrors\treq/sec\tp50 ms\tp99 ms\tmax ms");
+
+        for (int c : clients) {
+            run(url, c, requests, true);
+        }
+    }
+
+    private static void run(URL url, int clients, int requests, boolean print) throws InterruptedException {
+        long[] latencies = new long[clients * requests];
+        AtomicLong errors = new AtomicLong(0);
+
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(clients);
+
+        for (int client = 0; client < clients; client++) {
+            int offset = client * requests;
+
+            Thread t = new Thread(() -> {
+                try {
+                    start.await();
+
+                    for (int cont = 0; cont < requests; cont++) {
+                        long begin = System.nanoTime();
+
+                        if (!get(url)) {
+                            errors.incrementAndGet();
+                        }
+
+                        latencies[offset + cont] = System.nanoTime() - begin;
+                    }
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }, "client-" + client);
+
+            t.setDaemon(true);
+            t.start();
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - begin;
+
+        if (!print) {
+            return;
+        }
+
+        Arrays.sort(latencies);
+
+        System.out.println(clients + "\t" + latencies.length + "\t\t" + errors.get()
+                + "\t" + Math.round(latencies.length / (elapsed / 1_000_000_000d))
+                + "\t" + millis(latencies[latencies.length / 2])
+                + "\t" + millis(latencies[(int) (latencies.length * 0.99)])
+                + "\t" + millis(latencies[latencies.length - 1]));
+    }
+
+    /**
+     * @param url
+     * @return true if the response status is 200
+     */
+    private static boolean get(URL url) {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+
+            int status = connection.getResponseCode();
+
+            try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+                if (in != null) {
+                    byte[] buffer = new byte[8192];
+
+                    while (in.read(buffer) >= 0) {
+                        // consume the response so that the connection can be reused
+                    }
+                }
+            }
+
+            return status == 200;
+        } catch (IOException ioe) {
+            return false;
+        }
+    }
+
+    private static long millis(long nanos) {
+        return nanos / 1_000_000;
+    }
+}
@@ -24,12 +24,16 @@ package org.restheart.test.performance;
  * org.restheart.LoadTestRestHeartTask#get -c 20 -n 500 -w 5 -p
  * "url=http://127.0.0.1:8080/testdb/testcoll?page=10&pagesize=5,id=a,pwd=a"
  *
+ * to compare the fixed worker threads with the elastic ones at 1000, 5000 and
+ * 10000 concurrent clients, run ElasticWorkersPT
+ *
  * @author Andrea Di Cesare <andrea@softinstigate.com>
  */
 import com.mongodb.BasicDBObject;
 import com.mongodb.DBCollection;
 import com.mongodb.DBObject;
 import org.restheart.ConfigurationException;
+import org.restheart.db.CompiledQuery;
 import org.restheart.db.DBCursorPool;
 import org.restheart.db.MongoDBClientSingleton;
 import org.restheart.utils.FileUtils;
@@ -160,7 +164,9 @@ public class LoadGetPT {
         ArrayList<DBObject> data;
         
         try {
-            data = new DbsDAO().getCollectionData(dbcoll, page, pagesize, null, _filter, DBCursorPool.EAGER_CURSOR_ALLOCATION_POLICY.NONE);
+            CompiledQuery query = CompiledQuery.compile(db, coll, _filter, null);
+
+            data = new DbsDAO().getCollectionData(dbcoll, page, pagesize, query, DBCursorPool.EAGER_CURSOR_ALLOCATION_POLICY.NONE);
         } catch(Exception e) {
             System.out.println("error: " + e.getMessage());
             return;
@@ -0,0 +1,94 @@
+/*
+ * RESTHeart - the data REST API server
+ * Copyright (C) SoftInstigate Srl
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.restheart.utils;
+
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.Headers;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.restheart.handlers.RequestContext.REPRESENTATION_FORMAT;
+
+/**
+ *
+ * @author Andrea Di Cesare <andrea@softinstigate.com>
+ */
+public class RequestHelperTest {
+
+    public RequestHelperTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    @Test
+    public void testGetRepresentationFormat() {
+        System.out.println("getRepresentationFormat");
+
+        assertEquals(REPRESENTATION_FORMAT.HAL, RequestHelper.getRepresentationFormat(exchange(null)));
+        assertEquals(REPRESENTATION_FORMAT.HAL, RequestHelper.getRepresentationFormat(exchange("application/hal+json")));
+        assertEquals(REPRESENTATION_FORMAT.HAL, RequestHelper.getRepresentationFormat(exchange("text/html,application/xml;q=0.9,*/*;q=0.8")));
+        assertEquals(REPRESENTATION_FORMAT.HAL, RequestHelper.getRepresentationFormat(exchange("text/plain")));
+        assertEquals(REPRESENTATION_FORMAT.BSON, RequestHelper.getRepresentationFormat(exchange("application/bson")));
+        assertEquals(REPRESENTATION_FORMAT.NDJSON, RequestHelper.getRepresentationFormat(exchange("application/x-ndjson")));
+        assertEquals(REPRESENTATION_FORMAT.HAL, RequestHelper.getRepresentationFormat(exchange("application/json, application/bson")));
+        assertEquals(REPRESENTATION_FORMAT.BSON, RequestHelper.getRepresentationFormat(exchange("application/json;q=0.5, application/bson")));
+        assertEquals(REPRESENTATION_FORMAT.NDJSON, RequestHelper.getRepresentationFormat(exchange("application/bson;q=0, application/x-ndjson;q=0.1")));
+    }
+
+    @Test
+    public void testCheckReadEtag() {
+        System.out.println("checkReadEtag");
+
+        HttpServerExchange exchange = new HttpServerExchange();
+
+        assertFalse(RequestHelper.checkReadEtag(exchange, "a-1-f"));
+
+        exchange.getRequestHeaders().put(Headers.IF_NONE_MATCH, "a-1-f");
+
+        assertTrue(RequestHelper.checkReadEtag(exchange, "a-1-f"));
+        assertFalse(RequestHelper.checkReadEtag(exchange, "a-2-f"));
+        assertFalse(RequestHelper.checkReadEtag(exchange, (String) null));
+    }
+
+    private HttpServerExchange exchange(String accept) {
+        HttpServerExchange exchange = new HttpServerExchange();
+
+        if (accept != null) {
+            exchange.getRequestHeaders().put(Headers.ACCEPT, accept);
+        }
+
+        return exchange;
+    }
+}